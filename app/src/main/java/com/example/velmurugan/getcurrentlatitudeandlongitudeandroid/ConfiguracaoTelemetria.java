@@ -0,0 +1,26 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+/**
+ * Configuração do envio da telemetria usada pelo aplicativo: os registros são agrupados em lotes comprimidos e
+ * gravados por serviço de transporte e faixa de tempo (veja FaixasTempo), para que o histórico de um serviço possa
+ * ser consultado por janela de tempo com JSONLeitor.lerDadosServico().
+ */
+public final class ConfiguracaoTelemetria {
+    public static final int TAMANHO_LOTE = 10; // Registros agrupados em cada escrita ao Firebase
+    public static final long JANELA_LOTE = 5000; // Tempo máximo (em milissegundos) de um registro no lote
+    public static final long DURACAO_FAIXA = 60000; // Duração (em milissegundos) das faixas de tempo dos registros
+
+    private ConfiguracaoTelemetria() {
+    }
+
+    /**
+     * Cria o TelemetriaEmLote com a configuração do aplicativo.
+     *
+     * @param armazenamento     o armazenamento que recebe as escritas multi-caminho.
+     * @param gerenciadorChaves o gerenciador que fornece as chaves e o envelope de sessão de cada serviço de transporte.
+     * @return o TelemetriaEmLote que grava os lotes por serviço de transporte e faixa de tempo.
+     */
+    public static TelemetriaEmLote criarTelemetriaEmLote(TelemetryStore armazenamento, GerenciadorChaves gerenciadorChaves) {
+        return new TelemetriaEmLote(armazenamento, gerenciadorChaves, TAMANHO_LOTE, JANELA_LOTE, true, DURACAO_FAIXA);
+    }
+}
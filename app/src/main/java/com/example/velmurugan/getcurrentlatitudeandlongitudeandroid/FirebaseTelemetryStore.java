@@ -0,0 +1,196 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Implementação de TelemetryStore e TelemetrySource sobre o Firebase Realtime Database.
+ * Cada escrita multi-caminho é enviada com um único updateChildren, que o Firebase aplica de forma atômica.
+ */
+public class FirebaseTelemetryStore implements TelemetryStore, TelemetrySource {
+    private final DatabaseReference raiz;
+    private final long tempoConfirmacao;
+    private volatile boolean conectado;
+
+    /**
+     * Construtor da classe FirebaseTelemetryStore sobre a raiz do banco de dados padrão.
+     */
+    public FirebaseTelemetryStore() {
+        this(FirebaseDatabase.getInstance().getReference());
+    }
+
+    /**
+     * Construtor da classe FirebaseTelemetryStore.
+     *
+     * @param raiz a referência a partir da qual os caminhos das escritas são resolvidos.
+     */
+    public FirebaseTelemetryStore(DatabaseReference raiz) {
+        this.raiz = raiz;
+        this.tempoConfirmacao = 0;
+    }
+
+    /**
+     * Construtor da classe FirebaseTelemetryStore com escritas confirmadas, para uso como destino do
+     * DiarioTelemetria: atualizar() espera a confirmação do servidor e, sem conexão, falha imediatamente, sem deixar
+     * a escrita na fila interna do SDK.
+     *
+     * @param raiz             a referência a partir da qual os caminhos das escritas são resolvidos.
+     * @param tempoConfirmacao o tempo máximo de espera pela confirmação de cada escrita, em milissegundos.
+     */
+    public FirebaseTelemetryStore(DatabaseReference raiz, long tempoConfirmacao) {
+        if (tempoConfirmacao <= 0) {
+            throw new IllegalArgumentException("O tempo de confirmação deve ser positivo.");
+        }
+        this.raiz = raiz;
+        this.tempoConfirmacao = tempoConfirmacao;
+
+        // O Firebase informa o estado da conexão em ".info/connected"
+        raiz.getRoot().child(".info/connected").addValueEventListener(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                conectado = Boolean.TRUE.equals(snapshot.getValue(Boolean.class));
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                conectado = false;
+            }
+        });
+    }
+
+    /**
+     * Envia a escrita com um único updateChildren. Com escritas confirmadas, não deve ser chamado na thread
+     * principal do Android.
+     *
+     * @throws IllegalStateException com escritas confirmadas, se não houver conexão ou a escrita não for confirmada
+     *                               dentro do tempo.
+     */
+    @Override
+    public void atualizar(Map<String, Object> atualizacoes) {
+        if (tempoConfirmacao == 0) {
+            raiz.updateChildren(atualizacoes);
+            return;
+        }
+        if (!conectado) {
+            throw new IllegalStateException("Sem conexão com o Firebase.");
+        }
+        try {
+            Tasks.await(raiz.updateChildren(atualizacoes), tempoConfirmacao, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Escrita não confirmada pelo Firebase.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Escrita interrompida.", e);
+        }
+    }
+
+    /**
+     * Lê uma única vez os valores abaixo do caminho. O callback é chamado na thread principal do Android.
+     */
+    @Override
+    public void ler(String caminho, final Callback callback) {
+        DatabaseReference referencia = caminho.isEmpty() ? raiz : raiz.child(caminho);
+        referencia.addListenerForSingleValueEvent(achatarPara(callback));
+    }
+
+    /**
+     * Lê uma única vez os filhos do caminho com chaves no intervalo, com uma consulta orderByKey() no servidor.
+     * O callback é chamado na thread principal do Android.
+     */
+    @Override
+    public void lerIntervalo(String caminho, String chaveInicial, String chaveFinal, Callback callback) {
+        DatabaseReference referencia = caminho.isEmpty() ? raiz : raiz.child(caminho);
+        referencia.orderByKey().startAt(chaveInicial).endAt(chaveFinal).addListenerForSingleValueEvent(achatarPara(callback));
+    }
+
+    private static ValueEventListener achatarPara(final Callback callback) {
+        return new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                SortedMap<String, Object> valores = new TreeMap<>();
+                achatar(snapshot, "", valores);
+                callback.onResult(valores);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                callback.onError(error.toException());
+            }
+        };
+    }
+
+    /**
+     * Assina os filhos do caminho com um ChildEventListener persistente: o Firebase entrega os filhos existentes
+     * e, depois, apenas os filhos novos ou alterados. O ouvinte é chamado na thread principal do Android.
+     */
+    @Override
+    public Assinatura assinar(String caminho, final OuvinteFilhos ouvinte) {
+        final DatabaseReference referencia = caminho.isEmpty() ? raiz : raiz.child(caminho);
+        final ChildEventListener listener = referencia.addChildEventListener(new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String anterior) {
+                entregar(snapshot);
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String anterior) {
+                entregar(snapshot);
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+            }
+
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String anterior) {
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                ouvinte.onError(error.toException());
+            }
+
+            private void entregar(DataSnapshot snapshot) {
+                if (!snapshot.hasChildren() && snapshot.getValue() != null) {
+                    ouvinte.onFilho(snapshot.getKey(), snapshot.getValue());
+                }
+            }
+        });
+        return new Assinatura() {
+            @Override
+            public void cancelar() {
+                referencia.removeEventListener(listener);
+            }
+        };
+    }
+
+    /**
+     * Converte o snapshot em pares caminho relativo/valor; o valor do próprio nó fica sob o caminho vazio.
+     */
+    private static void achatar(DataSnapshot snapshot, String prefixo, SortedMap<String, Object> valores) {
+        if (!snapshot.hasChildren()) {
+            if (snapshot.getValue() != null) {
+                valores.put(prefixo, snapshot.getValue());
+            }
+            return;
+        }
+        for (DataSnapshot filho : snapshot.getChildren()) {
+            achatar(filho, prefixo.isEmpty() ? filho.getKey() : prefixo + "/" + filho.getKey(), valores);
+        }
+    }
+}
@@ -20,9 +20,10 @@ import java.util.List;
 
 /**
  * GpsTracker é uma classe que gerencia o rastreamento da localização GPS do dispositivo Android.
- * Ela implementa a interface LocationListener para receber atualizações de localização do LocationManager.
+ * Ela implementa a interface LocationListener para receber atualizações de localização do LocationManager
+ * e a interface LocationSource para fornecer as localizações ao Veiculo.
  */
-class GpsTracker implements LocationListener {
+class GpsTracker implements LocationListener, LocationSource {
     private static final long MIN_DISTANCE_CHANGE_FOR_UPDATES = 10; // Distância mínima (em metros) para considerar uma atualização de localização
     private static final long MAX_TIME_BW_UPDATES = 1000 * 86400; // Tempo máximo (em milissegundos) entre atualizações de localização (1 dia)
     private double latitude; // Latitude atual do dispositivo
@@ -108,6 +109,7 @@ class GpsTracker implements LocationListener {
      *
      * @return A lista de LocationData ordenada.
      */
+    @Override
     public List<LocationData> getSortedLocationData() {
         return LocationDataList;
     }
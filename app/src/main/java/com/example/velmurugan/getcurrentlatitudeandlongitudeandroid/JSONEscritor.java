@@ -4,24 +4,25 @@ import android.os.Build;
 
 import androidx.annotation.RequiresApi;
 
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-
 import org.json.JSONObject;
 
 import java.nio.charset.StandardCharsets;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.Semaphore;
 
-import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 
 /**
  * Essa classe representa um escritor de dados JSON criptografados que será enviado para o Firebase Realtime Database.
  * Ela é responsável por receber os dados relevantes, criptografá-los usando AES e RSA, e enviá-los para o banco de dados.
+ * No modo de envelope de sessão, a chave AES da sessão é enviada uma única vez e cada registro é criptografado apenas
+ * com AES-GCM (veja EnvelopeSessao).
+ * Os dados são escritos em um TelemetryStore, que por padrão é o Firebase Realtime Database.
  */
 public class JSONEscritor extends Thread {
 
@@ -37,7 +38,12 @@ public class JSONEscritor extends Thread {
     private int intervaloTempoLocalizacoes;
     private final PublicKey publicKey;
     private final PrivateKey privateKey;
+    private final EnvelopeSessao envelopeSessao;
+    private final RegistroTelemetria registro;
+    private final TelemetryStore armazenamento;
     private static final Semaphore semaphore = new Semaphore(1);
+    private static final PipelineRegistro pipeline = new PipelineRegistro(); // Buffers reutilizados, protegidos pelo semáforo
+    private static volatile TelemetryStore armazenamentoPadrao;
 
     /**
      * Construtor da classe JSONEscritor.
@@ -60,6 +66,50 @@ public class JSONEscritor extends Thread {
         this.intervaloTempoLocalizacoes = intervaloTempoLocalizacoes;
         this.publicKey = publicKey;
         this.privateKey = privateKey;
+        this.envelopeSessao = null;
+        this.registro = null;
+        this.armazenamento = null;
+    }
+
+    /**
+     * Construtor da classe JSONEscritor no modo de envelope de sessão.
+     *
+     * @param registro       o registro com as métricas do veículo e os dados do serviço de transporte.
+     * @param envelopeSessao o envelope da sessão, com a chave AES já criptografada com RSA.
+     * @param privateKey     a chave privada RSA da sessão, enviada junto com a chave da sessão.
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public JSONEscritor(RegistroTelemetria registro, EnvelopeSessao envelopeSessao, PrivateKey privateKey) {
+        this(registro, envelopeSessao, privateKey, null);
+    }
+
+    /**
+     * Construtor da classe JSONEscritor no modo de envelope de sessão, escrevendo em um armazenamento específico.
+     *
+     * @param registro       o registro com as métricas do veículo e os dados do serviço de transporte.
+     * @param envelopeSessao o envelope da sessão, com a chave AES já criptografada com RSA.
+     * @param privateKey     a chave privada RSA da sessão, enviada junto com a chave da sessão.
+     * @param armazenamento  o armazenamento dos dados criptografados (Firebase, memória ou arquivo local),
+     *                       ou null para usar o Firebase Realtime Database.
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public JSONEscritor(RegistroTelemetria registro, EnvelopeSessao envelopeSessao, PrivateKey privateKey,
+                        TelemetryStore armazenamento) {
+        this.velocidadeMediaParcial = registro.getVelocidadeMediaParcial();
+        this.distanciaPercorrida = registro.getDistanciaPercorrida();
+        this.tempoParaDestinoFinal = registro.getTempoParaDestinoFinal();
+        this.numeroIdentificacao = registro.getNumeroIdentificacao();
+        this.dataHoraInicio = registro.getDataHoraInicio();
+        this.dataHoraFim = registro.getDataHoraFim();
+        this.descricaoCarga = registro.getDescricaoCarga();
+        this.nomeMotorista = registro.getNomeMotorista();
+        this.respectivoIntervalo = registro.getRespectivoIntervalo();
+        this.intervaloTempoLocalizacoes = registro.getIntervaloTempoLocalizacoes();
+        this.publicKey = null;
+        this.privateKey = privateKey;
+        this.envelopeSessao = envelopeSessao;
+        this.registro = registro;
+        this.armazenamento = armazenamento;
     }
 
     /**
@@ -70,8 +120,28 @@ public class JSONEscritor extends Thread {
     @RequiresApi(api = Build.VERSION_CODES.O)
     @Override
     public void run() {
+        escrever();
+    }
+
+    /**
+     * Criptografa e envia os dados na thread atual, por exemplo na thread escritora de uma FilaTelemetria.
+     * As escritas são serializadas pelo semáforo, que é sempre liberado, mesmo se a escrita falhar.
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public void escrever() {
         try {
             semaphore.acquire();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            if (envelopeSessao != null) {
+                escreverNaSessao();
+                return;
+            }
+
             // Criação do objeto JSON com os dados recebidos no construtor.
             JSONObject dados = new JSONObject();
             dados.put("velocidadeMediaParcial", velocidadeMediaParcial);
@@ -92,10 +162,10 @@ public class JSONEscritor extends Thread {
             SecretKey chaveAES = KeyGenerator.getInstance("AES").generateKey();
 
             // Criptografa os dados JSON usando AES
-            byte[] dadosCriptografados = criptografiaComAES(dadosJSON.getBytes(StandardCharsets.UTF_8), chaveAES);
+            byte[] dadosCriptografados = CriptografiaTelemetria.criptografiaComAES(dadosJSON.getBytes(StandardCharsets.UTF_8), chaveAES);
 
             // Criptografa a chave AES usando a chave pública RSA
-            byte[] chaveAesCriptografada = criptografiaComRSA(chaveAES.getEncoded(), publicKey);
+            byte[] chaveAesCriptografada = CriptografiaTelemetria.criptografiaComRSA(chaveAES.getEncoded(), publicKey);
 
             // Converte os arrays de bytes para strings em formato Base64
             String dadosCriptografadosString = Base64.getEncoder().encodeToString(dadosCriptografados);
@@ -103,43 +173,82 @@ public class JSONEscritor extends Thread {
             String chaveRsaString = Base64.getEncoder().encodeToString(privateKey.getEncoded());
 
             // Envia os dados criptografados e a chave AES criptografada para o Firebase Realtime Database
-            DatabaseReference databaseReference = FirebaseDatabase.getInstance().getReference();
-            DatabaseReference dataReference = databaseReference.child("dadosCriptografados");
-            dataReference.child("dados").setValue(dadosCriptografadosString);
-            dataReference.child("chaveAES").setValue(chaveAesCriptografadaString);
-            dataReference.child("chaveRSA").setValue(chaveRsaString);
-            semaphore.release();
+            // em uma única escrita multi-caminho (atômica e com uma só ida e volta)
+            Map<String, Object> atualizacoes = new HashMap<>();
+            atualizacoes.put("dadosCriptografados/dados", dadosCriptografadosString);
+            atualizacoes.put("dadosCriptografados/chaveAES", chaveAesCriptografadaString);
+            atualizacoes.put("dadosCriptografados/chaveRSA", chaveRsaString);
+            obterArmazenamento().atualizar(atualizacoes);
 
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            semaphore.release();
         }
     }
 
     /**
-     * Realiza criptografia simétrica dos dados fornecidos usando a chave AES.
+     * Criptografa o registro com a chave da sessão e o envia para o nó da sessão no Firebase Realtime Database.
+     * A chave AES da sessão (criptografada com RSA) e a chave RSA são enviadas apenas no primeiro registro da sessão.
+     * O registro é serializado, criptografado e codificado em Base64 nos buffers reutilizados do PipelineRegistro.
      *
-     * @param data       Dados a serem criptografados.
-     * @param secretKey  Chave secreta AES usada para criptografar os dados.
-     * @return Os dados criptografados em formato de array de bytes.
      * @throws Exception Se ocorrer algum erro durante a criptografia.
      */
-    private static byte[] criptografiaComAES(byte[] data, SecretKey secretKey) throws Exception {
-        Cipher cipher = Cipher.getInstance("AES");
-        cipher.init(Cipher.ENCRYPT_MODE, secretKey);
-        return cipher.doFinal(data);
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private void escreverNaSessao() throws Exception {
+        String caminhoSessao = TelemetriaEmLote.CAMINHO_SESSOES + "/" + envelopeSessao.getIdSessao();
+        Map<String, Object> atualizacoes = new HashMap<>();
+
+        // Envia a chave da sessão uma única vez, na mesma escrita do primeiro registro
+        boolean comChave = envelopeSessao.marcarPublicada();
+        if (comChave) {
+            atualizacoes.put(caminhoSessao + "/chaveAES", Base64.getEncoder().encodeToString(envelopeSessao.getChaveCriptografada()));
+            atualizacoes.put(caminhoSessao + "/chaveRSA", Base64.getEncoder().encodeToString(privateKey.getEncoded()));
+        }
+
+        // Os dados do serviço de transporte seguem em um cabeçalho, enviado apenas quando mudam; o registro só o referencia
+        long sequenciaCabecalho = -1;
+        if (envelopeSessao.atualizarCabecalho(registro)) {
+            sequenciaCabecalho = envelopeSessao.getSequenciaCabecalho(registro);
+            atualizacoes.put(caminhoSessao + "/cabecalhos/" + sequenciaCabecalho, pipeline.codificarCabecalhoParaTexto(envelopeSessao, sequenciaCabecalho));
+        }
+
+        // Criptografa o registro com AES-GCM usando o número de sequência da sessão
+        long sequencia = envelopeSessao.proximaSequencia();
+        atualizacoes.put(caminhoSessao + "/registros/" + sequencia, pipeline.codificarParaTexto(registro, envelopeSessao, sequencia));
+        try {
+            obterArmazenamento().atualizar(atualizacoes);
+        } catch (RuntimeException e) {
+            // A chave e o cabeçalho só contam como enviados depois de aceitos: seguem de novo com o próximo registro
+            if (comChave) {
+                envelopeSessao.marcarNaoPublicada();
+            }
+            if (sequenciaCabecalho >= 0) {
+                envelopeSessao.descartarCabecalho(sequenciaCabecalho);
+            }
+            throw e;
+        }
     }
 
     /**
-     * Realiza a criptografia assimétrica dos dados usando RSA (Rivest-Shamir-Adleman).
+     * Define o armazenamento usado pelos escritores criados sem armazenamento, por exemplo um DiarioTelemetria
+     * que guarda as escritas localmente até que sejam confirmadas pelo Firebase.
      *
-     * @param data       Chave AES que será criptografada.
-     * @param publicKey  A chave pública RSA usada para criptografia.
-     * @return A chave AES criptografada em formato de array de bytes.
-     * @throws Exception Se ocorrer algum erro durante a criptografia.
+     * @param armazenamento o armazenamento dos dados criptografados, ou null para usar o Firebase Realtime Database.
      */
-    private static byte[] criptografiaComRSA(byte[] data, PublicKey publicKey) throws Exception {
-        Cipher cipher = Cipher.getInstance("RSA");
-        cipher.init(Cipher.ENCRYPT_MODE, publicKey);
-        return cipher.doFinal(data);
+    public static void setArmazenamentoPadrao(TelemetryStore armazenamento) {
+        armazenamentoPadrao = armazenamento;
+    }
+
+    /**
+     * Obtém o armazenamento dos dados criptografados, usando o armazenamento padrão ou o Firebase Realtime Database
+     * se nenhum foi informado.
+     */
+    private TelemetryStore obterArmazenamento() {
+        if (armazenamento != null) {
+            return armazenamento;
+        }
+        TelemetryStore padrao = armazenamentoPadrao;
+        return padrao != null ? padrao : new FirebaseTelemetryStore();
     }
 }
\ No newline at end of file
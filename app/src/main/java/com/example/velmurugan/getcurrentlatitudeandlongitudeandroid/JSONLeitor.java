@@ -2,24 +2,31 @@ package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
 
 import android.os.Build;
 
-import androidx.annotation.NonNull;
 import androidx.annotation.RequiresApi;
 
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
-
+import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.security.KeyFactory;
 import java.security.PrivateKey;
-import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
-import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 
@@ -27,9 +34,25 @@ import javax.crypto.spec.SecretKeySpec;
  * Essa classe representa um leitor de dados JSON criptografados que serão lidos do Firebase Realtime Database.
  * Ela é responsável por obter os dados criptografados do banco de dados, descriptografá-los usando AES e RSA,
  * e fornecer o resultado descriptografado.
+ * Para as sessões escritas no modo de envelope de sessão, a chave da sessão é descriptografada com RSA uma única vez
+ * e mantida em cache, de modo que cada registro custa apenas uma descriptografia AES-GCM. Os dados do serviço de
+ * transporte vêm de um cabeçalho da sessão, também descriptografado uma única vez.
+ * Os dados são lidos de um TelemetrySource, que por padrão é o Firebase Realtime Database.
+ * Além das leituras únicas, assinarDadosSessao() mantém uma leitura contínua da sessão, que entrega apenas os
+ * registros novos e os decodifica em segundo plano, sem reler a sessão inteira a cada atualização.
  */
 public class JSONLeitor {
+    private static final long TEMPO_LIMITE_LEITURA = 30000; // Em milissegundos; sem conexão, o Firebase pode nunca responder
+
     private JSONLeitorCallback callback;
+    private final TelemetrySource origem;
+    private final Map<String, EnvelopeSessao> envelopes = new ConcurrentHashMap<>();
+    private final Map<String, PrivateKey> chavesPrivadas = new ConcurrentHashMap<>(); // Chaves RSA já convertidas, por chave em Base64
+    private final PipelineRegistro pipeline = new PipelineRegistro(); // Buffers reutilizados entre os registros lidos
+    private final RegistroBinario leitorBinario = new RegistroBinario();
+    private final PipelineRegistro pipelineAssinaturas = new PipelineRegistro(); // Usado apenas na thread do decodificador
+    private final RegistroBinario leitorAssinaturas = new RegistroBinario();
+    private ExecutorService decodificador; // Criado na primeira assinatura ou leitura de histórico
 
     /**
      * Interface para definir os métodos de retorno de chamada do JSONLeitor.
@@ -39,6 +62,14 @@ public class JSONLeitor {
         void onError(Exception e);
     }
 
+    /**
+     * Interface para receber o histórico de uma sessão lido com lerHistoricoSessao().
+     */
+    public interface HistoricoCallback {
+        void onResult(HistoricoSessao historico);
+        void onError(Exception e);
+    }
+
     /**
      * Construtor da classe JSONLeitor.
      *
@@ -46,7 +77,19 @@ public class JSONLeitor {
      */
     @RequiresApi(api = Build.VERSION_CODES.O)
     public JSONLeitor(JSONLeitorCallback callback) {
+        this(callback, new FirebaseTelemetryStore());
+    }
+
+    /**
+     * Construtor da classe JSONLeitor.
+     *
+     * @param callback  O objeto que implementa a interface JSONLeitorCallback para receber os resultados da leitura.
+     * @param origem    A origem dos dados criptografados (Firebase, memória ou arquivo local).
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public JSONLeitor(JSONLeitorCallback callback, TelemetrySource origem) {
         this.callback = callback;
+        this.origem = origem;
     }
 
     /**
@@ -55,36 +98,31 @@ public class JSONLeitor {
     @RequiresApi(api = Build.VERSION_CODES.O)
     public void lerDados() {
         try {
-            // Obtem uma referência ao Firebase Realtime Database
-            DatabaseReference databaseReference = FirebaseDatabase.getInstance().getReference();
-            DatabaseReference dataReference = databaseReference.child("dadosCriptografados");
-
-            // Lê os dados do Firebase Realtime Database usando um Listener
-            dataReference.addListenerForSingleValueEvent(new ValueEventListener() {
+            // Lê os dados da origem usando um callback
+            origem.ler("dadosCriptografados", new TelemetrySource.Callback() {
                 @Override
-                public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                public void onResult(SortedMap<String, Object> valores) {
                     try {
-                        // Obtem os dados criptografados do Firebase
-                        String dadosCriptografadosString = dataSnapshot.child("dados").getValue(String.class);
-                        String chaveAesCriptografadaString = dataSnapshot.child("chaveAES").getValue(String.class);
-                        String chaveRsaString = dataSnapshot.child("chaveRSA").getValue(String.class);
+                        // Obtem os dados criptografados
+                        String dadosCriptografadosString = (String) valores.get("dados");
+                        String chaveAesCriptografadaString = (String) valores.get("chaveAES");
+                        String chaveRsaString = (String) valores.get("chaveRSA");
 
                         // Decodifica os dados Base64 para arrays de bytes
                         byte[] dadosCriptografados = Base64.getDecoder().decode(dadosCriptografadosString);
                         byte[] chaveAesCriptografada = Base64.getDecoder().decode(chaveAesCriptografadaString);
-                        byte[] chaveRsa = Base64.getDecoder().decode(chaveRsaString);
 
-                        // Converte a chave privada RSA para o formato PrivateKey
-                        PrivateKey privateKey = converterParaPrivateKey(chaveRsa);
+                        // Converte a chave privada RSA para o formato PrivateKey, ou a obtém do cache
+                        PrivateKey privateKey = obterChavePrivada(chaveRsaString);
 
                         // Descriptografa a chave AES usando a chave privada RSA
-                        byte[] chaveAesDescriptografada = descriptografiaComRSA(chaveAesCriptografada, privateKey);
+                        byte[] chaveAesDescriptografada = CriptografiaTelemetria.descriptografiaComRSA(chaveAesCriptografada, privateKey);
 
                         // Converte o array de bytes de volta para um objeto SecretKey
                         SecretKey chaveAES = new SecretKeySpec(chaveAesDescriptografada, "AES");
 
                         // Descriptografa os dados JSON usando AES
-                        byte[] dadosDescriptografados = descriptografiaComAES(dadosCriptografados, chaveAES);
+                        byte[] dadosDescriptografados = CriptografiaTelemetria.descriptografiaComAES(dadosCriptografados, chaveAES);
 
                         // Converte o array de bytes de volta para uma String no formato JSON
                         String dadosJSON = new String(dadosDescriptografados, StandardCharsets.UTF_8);
@@ -102,12 +140,200 @@ public class JSONLeitor {
                 }
 
                 @Override
-                public void onCancelled(@NonNull DatabaseError databaseError) {
+                public void onError(Exception e) {
+                    if (callback != null) {
+                        callback.onError(e);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            if (callback != null) {
+                callback.onError(e);
+            }
+        }
+    }
+
+    /**
+     * Método para ler os registros de uma sessão escrita no modo de envelope de sessão e decifrá-los.
+     * O callback é chamado uma vez para cada registro, em ordem de sequência.
+     *
+     * @param idSessao o identificador da sessão.
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public void lerDadosSessao(final String idSessao) {
+        try {
+            origem.ler(TelemetriaEmLote.CAMINHO_SESSOES + "/" + idSessao, new TelemetrySource.Callback() {
+                @Override
+                public void onResult(SortedMap<String, Object> valores) {
+                    try {
+                        EnvelopeSessao envelope = obterEnvelopeSessao(idSessao, (String) valores.get("chaveAES"), (String) valores.get("chaveRSA"));
+
+                        // Os cabeçalhos com os dados do serviço de transporte são descriptografados uma única vez e mantidos no envelope
+                        for (Map.Entry<String, Object> cabecalho : valores.subMap("cabecalhos/", "cabecalhos0").entrySet()) {
+                            long sequencia = sequencia(cabecalho.getKey());
+                            if (!envelope.getCabecalhos().containsKey(sequencia)) {
+                                pipeline.decodificarCabecalho((String) cabecalho.getValue(), envelope, sequencia);
+                            }
+                        }
+
+                        // Ordena os registros e os lotes de registros pelo número de sequência
+                        List<Map.Entry<String, Object>> registros = new ArrayList<>();
+                        registros.addAll(valores.subMap("lotes/", "lotes0").entrySet());
+                        registros.addAll(valores.subMap("registros/", "registros0").entrySet());
+                        registros.sort((r1, r2) -> Long.compare(sequencia(r1.getKey()), sequencia(r2.getKey())));
+
+                        List<JSONObject> resultados = new ArrayList<>();
+                        for (Map.Entry<String, Object> registro : registros) {
+                            resultados.clear();
+                            decodificarRegistros(registro.getKey(), registro.getValue(), envelope, pipeline, leitorBinario, resultados);
+                            for (JSONObject result : resultados) {
+                                if (callback != null) {
+                                    callback.onResult(result);
+                                }
+                            }
+                        }
+                    } catch (Exception e) {
+                        if (callback != null) {
+                            callback.onError(e);
+                        }
+                    }
+                }
+
+                @Override
+                public void onError(Exception e) {
                     if (callback != null) {
-                        callback.onError(databaseError.toException());
+                        callback.onError(e);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            if (callback != null) {
+                callback.onError(e);
+            }
+        }
+    }
+
+    /**
+     * Lê o histórico de uma sessão escrita no modo de envelope de sessão para uma auditoria depois do percurso.
+     * Os registros e lotes com sequência no intervalo são descriptografados e decodificados em paralelo
+     * (veja LeitorHistorico) e entregues de uma só vez, em colunas de arrays primitivos, em vez de um
+     * JSONObject por registro. Apenas a chave, os cabeçalhos e os registros e lotes do intervalo são lidos da origem,
+     * com uma leitura por intervalo de chaves (veja LeitorHistorico.intervalosChaves()), e não o nó inteiro da sessão.
+     * O callback é chamado na thread em que as assinaturas são decodificadas.
+     *
+     * @param idSessao          o identificador da sessão.
+     * @param sequenciaInicial  a menor sequência de registro ou lote incluída.
+     * @param sequenciaFinal    a maior sequência de registro ou lote incluída.
+     * @param callbackHistorico o objeto que recebe o histórico.
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public void lerHistoricoSessao(final String idSessao, final long sequenciaInicial, final long sequenciaFinal,
+                                   final HistoricoCallback callbackHistorico) {
+        // As leituras são aguardadas e decodificadas fora da thread do callback, que no Firebase é a thread principal
+        executar(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    List<String> caminhos = new ArrayList<>();
+                    List<String[]> intervalos = new ArrayList<>();
+                    if (!envelopes.containsKey(idSessao)) {
+                        caminhos.add("chaveAES");
+                        intervalos.add(null);
+                        caminhos.add("chaveRSA");
+                        intervalos.add(null);
+                    }
+                    caminhos.add("cabecalhos");
+                    intervalos.add(null);
+                    for (String[] intervalo : LeitorHistorico.intervalosChaves(sequenciaInicial, sequenciaFinal)) {
+                        caminhos.add("lotes");
+                        intervalos.add(intervalo);
+                        caminhos.add("registros");
+                        intervalos.add(intervalo);
                     }
+                    SortedMap<String, Object> valores = lerAguardando(TelemetriaEmLote.CAMINHO_SESSOES + "/" + idSessao, caminhos, intervalos);
+                    EnvelopeSessao envelope = obterEnvelopeSessao(idSessao, (String) valores.get("chaveAES"), (String) valores.get("chaveRSA"));
+                    callbackHistorico.onResult(LeitorHistorico.decodificar(valores, envelope, sequenciaInicial, sequenciaFinal));
+                } catch (Exception e) {
+                    callbackHistorico.onError(e);
                 }
+            }
+        });
+    }
+
+    /**
+     * Lê os registros de um serviço de transporte gravados por faixa de tempo (veja FaixasTempo) em uma janela de tempo.
+     * Apenas as faixas da janela são lidas, com uma única leitura por intervalo de chaves; como os registros não
+     * trazem a hora, a janela é arredondada para as faixas que a contêm. As chaves e os cabeçalhos das sessões
+     * encontradas são lidos uma única vez e mantidos em cache. O callback é chamado uma vez para cada registro,
+     * em ordem de faixa, sessão e sequência, na thread em que as assinaturas são decodificadas.
+     *
+     * @param numeroIdentificacao o número de identificação do serviço de transporte.
+     * @param inicio              o início da janela, em milissegundos desde a época.
+     * @param fim                 o fim da janela, em milissegundos desde a época.
+     * @param duracaoFaixa        a duração das faixas usada na escrita, em milissegundos.
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public void lerDadosServico(String numeroIdentificacao, long inicio, long fim, long duracaoFaixa) {
+        try {
+            origem.lerIntervalo(FaixasTempo.caminhoServico(numeroIdentificacao), FaixasTempo.chaveFaixa(inicio, duracaoFaixa),
+                    FaixasTempo.chaveFaixa(fim, duracaoFaixa), new TelemetrySource.Callback() {
+                        @Override
+                        public void onResult(final SortedMap<String, Object> valores) {
+                            executar(new Runnable() {
+                                @Override
+                                public void run() {
+                                    decodificarFaixas(valores);
+                                }
+                            });
+                        }
+
+                        @Override
+                        public void onError(Exception e) {
+                            if (callback != null) {
+                                callback.onError(e);
+                            }
+                        }
+                    });
+        } catch (Exception e) {
+            if (callback != null) {
+                callback.onError(e);
+            }
+        }
+    }
+
+    /**
+     * Decodifica os registros lidos das faixas de tempo ("{faixa}/{idSessao}/{seq}"), na thread do decodificador.
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private void decodificarFaixas(SortedMap<String, Object> valores) {
+        try {
+            // Agrupa por faixa e sessão, ordenando pela sequência (as chaves são texto, então "10" viria antes de "9")
+            List<Map.Entry<String, Object>> registros = new ArrayList<>(valores.entrySet());
+            registros.sort((r1, r2) -> {
+                String grupo1 = r1.getKey().substring(0, r1.getKey().lastIndexOf('/'));
+                String grupo2 = r2.getKey().substring(0, r2.getKey().lastIndexOf('/'));
+                int comparacao = grupo1.compareTo(grupo2);
+                return comparacao != 0 ? comparacao : Long.compare(sequencia(r1.getKey()), sequencia(r2.getKey()));
             });
+
+            // Cada sessão da janela é lida uma única vez, para obter a chave e os cabeçalhos novos
+            Map<String, EnvelopeSessao> sessoes = new HashMap<>();
+            List<JSONObject> resultados = new ArrayList<>();
+            for (Map.Entry<String, Object> registro : registros) {
+                String idSessao = registro.getKey().split("/")[1];
+                EnvelopeSessao envelope = sessoes.get(idSessao);
+                if (envelope == null) {
+                    envelope = lerEnvelopeSessao(idSessao);
+                    sessoes.put(idSessao, envelope);
+                }
+                resultados.clear();
+                decodificarRegistros(registro.getKey(), registro.getValue(), envelope, pipelineAssinaturas, leitorAssinaturas, resultados);
+                for (JSONObject result : resultados) {
+                    if (callback != null) {
+                        callback.onResult(result);
+                    }
+                }
+            }
         } catch (Exception e) {
             if (callback != null) {
                 callback.onError(e);
@@ -116,41 +342,394 @@ public class JSONLeitor {
     }
 
     /**
-     * Realiza a descriptografia dos dados usando AES.
+     * Lê o nó da sessão, que na organização por faixas de tempo tem apenas a chave e os cabeçalhos, aguardando a
+     * leitura, e obtém o envelope da sessão com os cabeçalhos novos. Deve ser chamado apenas na thread do
+     * decodificador, nunca na thread dos callbacks da origem.
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private EnvelopeSessao lerEnvelopeSessao(String idSessao) throws Exception {
+        SortedMap<String, Object> sessao = lerAguardando(TelemetriaEmLote.CAMINHO_SESSOES + "/" + idSessao);
+        EnvelopeSessao envelope = obterEnvelopeSessao(idSessao, (String) sessao.get("chaveAES"), (String) sessao.get("chaveRSA"));
+        for (Map.Entry<String, Object> cabecalho : sessao.subMap("cabecalhos/", "cabecalhos0").entrySet()) {
+            long sequencia = sequencia(cabecalho.getKey());
+            if (!envelope.getCabecalhos().containsKey(sequencia)) {
+                pipelineAssinaturas.decodificarCabecalho((String) cabecalho.getValue(), envelope, sequencia);
+            }
+        }
+        return envelope;
+    }
+
+    /**
+     * Lê um caminho da origem e aguarda o resultado.
+     */
+    private SortedMap<String, Object> lerAguardando(String caminho) throws Exception {
+        return lerAguardando(caminho, Collections.singletonList(""), Collections.<String[]>singletonList(null));
+    }
+
+    /**
+     * Lê vários caminhos abaixo de uma base ao mesmo tempo e aguarda todos os resultados. Um intervalo nulo lê o
+     * caminho inteiro; os demais leem apenas os filhos com chaves no intervalo {chaveInicial, chaveFinal}.
+     *
+     * @param base       o caminho relativo à raiz sob o qual os caminhos são lidos.
+     * @param caminhos   os caminhos relativos à base ("" para a própria base).
+     * @param intervalos o intervalo de chaves de cada caminho, ou null.
+     * @return os valores lidos, indexados pelo caminho relativo à base.
+     * @throws TimeoutException se alguma leitura não terminar em TEMPO_LIMITE_LEITURA.
+     * @throws Exception a primeira falha de leitura.
+     */
+    private SortedMap<String, Object> lerAguardando(String base, List<String> caminhos, List<String[]> intervalos) throws Exception {
+        final CountDownLatch pronto = new CountDownLatch(caminhos.size());
+        final SortedMap<String, Object> valores = new TreeMap<>();
+        final Exception[] falha = new Exception[1];
+        for (int i = 0; i < caminhos.size(); ++i) {
+            final String caminho = caminhos.get(i);
+            TelemetrySource.Callback coletor = new TelemetrySource.Callback() {
+                @Override
+                public void onResult(SortedMap<String, Object> lidos) {
+                    synchronized (valores) {
+                        for (Map.Entry<String, Object> lido : lidos.entrySet()) {
+                            String chave = lido.getKey();
+                            valores.put(caminho.isEmpty() ? chave : chave.isEmpty() ? caminho : caminho + "/" + chave, lido.getValue());
+                        }
+                    }
+                    pronto.countDown();
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    synchronized (valores) {
+                        if (falha[0] == null) {
+                            falha[0] = e;
+                        }
+                    }
+                    pronto.countDown();
+                }
+            };
+            String completo = caminho.isEmpty() ? base : base + "/" + caminho;
+            String[] intervalo = intervalos.get(i);
+            if (intervalo == null) {
+                origem.ler(completo, coletor);
+            } else {
+                origem.lerIntervalo(completo, intervalo[0], intervalo[1], coletor);
+            }
+        }
+        if (!pronto.await(TEMPO_LIMITE_LEITURA, TimeUnit.MILLISECONDS)) {
+            throw new TimeoutException("A leitura de " + base + " não terminou em " + TEMPO_LIMITE_LEITURA + " ms.");
+        }
+        synchronized (valores) {
+            if (falha[0] != null) {
+                throw falha[0];
+            }
+            return valores;
+        }
+    }
+
+    /**
+     * Assina os registros de uma sessão escrita no modo de envelope de sessão: o callback recebe os registros já
+     * gravados e, enquanto a assinatura estiver ativa, cada registro novo, sem que a sessão seja relida.
+     * A chave da sessão é descriptografada uma única vez e os registros são decodificados em uma thread
+     * em segundo plano, na qual o callback também é chamado.
+     *
+     * @param idSessao o identificador da sessão.
+     * @return a assinatura, para encerrar a leitura contínua.
+     */
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public TelemetrySource.Assinatura assinarDadosSessao(String idSessao) {
+        AssinaturaSessao assinatura = new AssinaturaSessao(idSessao);
+        assinatura.iniciar();
+        return assinatura;
+    }
+
+    /**
+     * Encerra a thread em que as assinaturas e os históricos são decodificados. As assinaturas ativas deixam de
+     * entregar registros.
+     */
+    public synchronized void encerrar() {
+        if (decodificador != null) {
+            decodificador.shutdownNow();
+        }
+    }
+
+    private void executar(Runnable tarefa) {
+        try {
+            obterDecodificador().execute(tarefa);
+        } catch (RejectedExecutionException e) {
+            // O leitor foi encerrado
+        }
+    }
+
+    private synchronized ExecutorService obterDecodificador() {
+        if (decodificador == null) {
+            decodificador = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "JSONLeitor");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return decodificador;
+    }
+
+    /**
+     * Leitura contínua de uma sessão. Os filhos recebidos das assinaturas de cabeçalhos, lotes e registros são
+     * decodificados, em ordem de chegada, na thread do decodificador. As três assinaturas são independentes, então
+     * um registro pode chegar antes do cabeçalho que ele referencia: nesse caso, ele aguarda o próximo cabeçalho.
+     * Qualquer outro erro de leitura (Base64 inválido, autenticação, esquema desconhecido, compressão corrompida)
+     * é entregue ao callback.
+     */
+    private class AssinaturaSessao implements TelemetrySource.Assinatura {
+        private static final int MAXIMO_PENDENTES = 1000; // Registros que podem aguardar um cabeçalho ao mesmo tempo
+
+        private final String idSessao;
+        private final String caminho;
+        private final List<TelemetrySource.Assinatura> assinaturas = new ArrayList<>();
+        private final List<Object[]> pendentes = new ArrayList<>(); // Registros à espera do cabeçalho, usados apenas na thread do decodificador
+        private final List<JSONObject> resultados = new ArrayList<>();
+        private volatile boolean cancelada;
+        private EnvelopeSessao envelope;
+
+        AssinaturaSessao(String idSessao) {
+            this.idSessao = idSessao;
+            this.caminho = TelemetriaEmLote.CAMINHO_SESSOES + "/" + idSessao;
+        }
+
+        /**
+         * Obtém a chave da sessão (apenas na primeira leitura da sessão) e assina os cabeçalhos, lotes e registros.
+         */
+        @RequiresApi(api = Build.VERSION_CODES.O)
+        void iniciar() {
+            EnvelopeSessao emCache = envelopes.get(idSessao);
+            if (emCache != null) {
+                assinar(emCache);
+                return;
+            }
+            origem.ler(caminho + "/chaveAES", new TelemetrySource.Callback() {
+                @Override
+                public void onResult(SortedMap<String, Object> chaveAES) {
+                    origem.ler(caminho + "/chaveRSA", new TelemetrySource.Callback() {
+                        @Override
+                        public void onResult(final SortedMap<String, Object> chaveRSA) {
+                            // A descriptografia RSA da chave da sessão também fica fora da thread do callback
+                            executar(new Runnable() {
+                                @Override
+                                public void run() {
+                                    try {
+                                        assinar(obterEnvelopeSessao(idSessao, (String) chaveAES.get(""), (String) chaveRSA.get("")));
+                                    } catch (Exception e) {
+                                        erro(e);
+                                    }
+                                }
+                            });
+                        }
+
+                        @Override
+                        public void onError(Exception e) {
+                            erro(e);
+                        }
+                    });
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    erro(e);
+                }
+            });
+        }
+
+        @Override
+        public void cancelar() {
+            cancelada = true;
+            synchronized (assinaturas) {
+                for (TelemetrySource.Assinatura assinatura : assinaturas) {
+                    assinatura.cancelar();
+                }
+                assinaturas.clear();
+            }
+        }
+
+        private void assinar(EnvelopeSessao envelope) {
+            this.envelope = envelope;
+            // Os cabeçalhos são assinados primeiro, para que em geral cheguem antes dos registros que os referenciam
+            for (final String tipo : new String[]{"cabecalhos", "lotes", "registros"}) {
+                synchronized (assinaturas) {
+                    if (cancelada) {
+                        return;
+                    }
+                    assinaturas.add(origem.assinar(caminho + "/" + tipo, new TelemetrySource.OuvinteFilhos() {
+                        @Override
+                        public void onFilho(final String chave, final Object valor) {
+                            executar(new Runnable() {
+                                @Override
+                                public void run() {
+                                    processar(tipo + "/" + chave, valor);
+                                }
+                            });
+                        }
+
+                        @Override
+                        public void onError(Exception e) {
+                            erro(e);
+                        }
+                    }));
+                }
+            }
+        }
+
+        private void processar(String caminhoRelativo, Object valor) {
+            if (cancelada) {
+                return;
+            }
+            if (caminhoRelativo.startsWith("cabecalhos/")) {
+                long sequencia = sequencia(caminhoRelativo);
+                if (envelope.getCabecalhos().containsKey(sequencia)) {
+                    return;
+                }
+                try {
+                    pipelineAssinaturas.decodificarCabecalho((String) valor, envelope, sequencia);
+                } catch (Exception e) {
+                    erro(e);
+                    return;
+                }
+                List<Object[]> aguardando = new ArrayList<>(pendentes);
+                pendentes.clear();
+                for (Object[] pendente : aguardando) {
+                    processar((String) pendente[0], pendente[1]);
+                }
+                return;
+            }
+
+            try {
+                // O lote inteiro é decodificado antes da entrega, para que nada seja entregue em duplicidade se ele aguardar um cabeçalho
+                resultados.clear();
+                decodificarRegistros(caminhoRelativo, valor, envelope, pipelineAssinaturas, leitorAssinaturas, resultados);
+                for (JSONObject result : resultados) {
+                    if (callback != null) {
+                        callback.onResult(result);
+                    }
+                }
+            } catch (RegistroBinario.CabecalhoAusenteException e) {
+                // O registro é válido, mas o cabeçalho que ele referencia ainda não chegou
+                if (pendentes.size() == MAXIMO_PENDENTES) {
+                    erro(new IllegalStateException("Registros demais aguardando cabeçalhos da sessão; " + caminhoRelativo + " descartado.", e));
+                    return;
+                }
+                pendentes.add(new Object[]{caminhoRelativo, valor});
+            } catch (Exception e) {
+                erro(e);
+            }
+        }
+
+        private void erro(Exception e) {
+            if (callback != null && !cancelada) {
+                callback.onError(e);
+            }
+        }
+    }
+
+    /**
+     * Decodifica um registro ou todos os registros de um lote de uma sessão, acrescentando-os aos resultados em
+     * ordem. O lote é reconhecido pelo conteúdo, então o caminho pode ser o do nó da sessão ("registros/{seq}" ou
+     * "lotes/{seq}") ou o de uma faixa de tempo ("{faixa}/{idSessao}/{seq}").
+     *
+     * @param caminho    o caminho relativo, terminado pela sequência.
+     * @param valor      o registro ou lote criptografado em Base64.
+     * @param envelope   o envelope da sessão, com os cabeçalhos já lidos.
+     * @param pipeline   o pipeline com os buffers reutilizados da thread que decodifica.
+     * @param leitor     o leitor de registros binários da thread que decodifica.
+     * @param resultados a lista que recebe os registros decodificados.
+     * @throws Exception Se ocorrer algum erro durante a descriptografia ou a leitura dos registros.
+     */
+    private static void decodificarRegistros(String caminho, Object valor, EnvelopeSessao envelope, PipelineRegistro pipeline,
+                                             RegistroBinario leitor, List<JSONObject> resultados) throws Exception {
+        long sequencia = sequencia(caminho);
+
+        // Decodifica e descriptografa o registro nos buffers reutilizados, usando apenas a chave da sessão em cache
+        ByteBuffer dados = pipeline.decodificar((String) valor, envelope, sequencia);
+
+        // Um lote traz vários registros, criptografados (e comprimidos) juntos
+        if (RegistroBinario.ehBinario(dados) && dados.get(dados.position()) == RegistroBinario.ESQUEMA_LOTE) {
+            leitor.envolverLote(dados);
+            while (leitor.proximo(envelope.getCabecalhos()) != null) {
+                resultados.add(paraJSON(leitor));
+            }
+            return;
+        }
+        resultados.add(RegistroBinario.ehBinario(dados)
+                ? paraJSON(leitor.envolver(dados, envelope.getCabecalhos()))
+                : new JSONObject(StandardCharsets.UTF_8.decode(dados).toString()));
+    }
+
+    /**
+     * Obtém o envelope da sessão em cache ou, na primeira leitura da sessão, descriptografa a chave da sessão com RSA.
      *
-     * @param dadosCriptografados Os dados criptografados a serem descriptografados.
-     * @param secretKey     A chave AES usada para descriptografia.
-     * @return Os dados descriptografados.
-     * @throws Exception Se ocorrer algum erro durante a descriptografia.
+     * @param idSessao o identificador da sessão.
+     * @param chaveAES a chave da sessão criptografada com RSA, em Base64.
+     * @param chaveRSA a chave privada RSA no formato PKCS8, em Base64.
+     * @return o envelope da sessão.
+     * @throws Exception Se ocorrer algum erro durante a descriptografia da chave da sessão.
      */
-    private static byte[] descriptografiaComAES(byte[] dadosCriptografados, SecretKey secretKey) throws Exception {
-        Cipher cipher = Cipher.getInstance("AES");
-        cipher.init(Cipher.DECRYPT_MODE, secretKey);
-        return cipher.doFinal(dadosCriptografados);
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private EnvelopeSessao obterEnvelopeSessao(String idSessao, String chaveAES, String chaveRSA) throws Exception {
+        EnvelopeSessao envelope = envelopes.get(idSessao);
+        if (envelope == null) {
+            byte[] chaveAesCriptografada = Base64.getDecoder().decode(chaveAES);
+            envelope = EnvelopeSessao.abrir(idSessao, chaveAesCriptografada, obterChavePrivada(chaveRSA));
+            envelopes.put(idSessao, envelope);
+        }
+        return envelope;
     }
 
     /**
-     * Realiza a descriptografia da chave AES usando RSA.
+     * Obtém a chave privada RSA em cache ou a converte do formato PKCS8. A mesma chave é usada por todas as sessões
+     * do serviço de transporte, então a conversão é feita uma única vez por chave.
      *
-     * @param chaveAesCriptografada A chave AES que será descriptografados.
-     * @param privateKey    A chave privada RSA usada para descriptografia.
-     * @return A chave AES descriptografada.
-     * @throws Exception Se ocorrer algum erro durante a descriptografia.
+     * @param chaveRSA a chave privada RSA no formato PKCS8, em Base64.
+     * @return a chave privada.
+     * @throws Exception Se a chave for inválida.
      */
-    private static byte[] descriptografiaComRSA(byte[] chaveAesCriptografada, PrivateKey privateKey) throws Exception {
-        Cipher cipher = Cipher.getInstance("RSA");
-        cipher.init(Cipher.DECRYPT_MODE, privateKey);
-        return cipher.doFinal(chaveAesCriptografada);
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private PrivateKey obterChavePrivada(String chaveRSA) throws Exception {
+        PrivateKey chavePrivada = chavesPrivadas.get(chaveRSA);
+        if (chavePrivada == null) {
+            chavePrivada = CriptografiaTelemetria.converterParaPrivateKey(Base64.getDecoder().decode(chaveRSA));
+            chavesPrivadas.put(chaveRSA, chavePrivada);
+        }
+        return chavePrivada;
     }
 
     /**
-     * Converte um array de bytes em formato PKCS#8 para uma chave privada RSA.
+     * Monta o resultado a partir de um registro no formato binário, lendo os campos diretamente do buffer descriptografado.
      *
-     * @param chaveRsa O array de bytes representando a chave privada RSA em formato PKCS#8.
-     * @return A chave privada RSA no formato PrivateKey.
-     * @throws Exception Caso ocorra algum erro durante a conversão.
+     * @param registro o leitor do registro binário.
+     * @return o registro com os mesmos campos do JSON do modo anterior.
+     * @throws JSONException Se algum valor não puder ser representado em JSON.
+     */
+    private static JSONObject paraJSON(RegistroBinario registro) throws JSONException {
+        JSONObject result = new JSONObject();
+        result.put("velocidadeMediaParcial", registro.getVelocidadeMediaParcial());
+        result.put("distanciaPercorrida", registro.getDistanciaPercorrida());
+        result.put("tempoParaDestinoFinal", registro.getTempoParaDestinoFinal());
+        result.put("numeroIdentificacao", valorOuNulo(registro.getNumeroIdentificacao()));
+        result.put("dataHoraInicio", valorOuNulo(registro.getDataHoraInicio()));
+        result.put("dataHoraFim", valorOuNulo(registro.getDataHoraFim()));
+        result.put("descricaoCarga", valorOuNulo(registro.getDescricaoCarga()));
+        result.put("nomeMotorista", valorOuNulo(registro.getNomeMotorista()));
+        result.put("respectivoIntervalo", registro.getRespectivoIntervalo());
+        result.put("intervaloTempoLocalizacoes", registro.getIntervaloTempoLocalizacoes());
+        return result;
+    }
+
+    private static Object valorOuNulo(String valor) {
+        return valor != null ? valor : JSONObject.NULL;
+    }
+
+    /**
+     * Extrai o número de sequência do caminho relativo de um registro ("registros/{seq}"), lote ("lotes/{seq}")
+     * ou cabeçalho ("cabecalhos/{seq}").
      */
-    private PrivateKey converterParaPrivateKey(byte[] chaveRsa) throws Exception {
-        return KeyFactory.getInstance("RSA").generatePrivate(new PKCS8EncodedKeySpec(chaveRsa));
+    private static long sequencia(String caminho) {
+        return Long.parseLong(caminho.substring(caminho.lastIndexOf('/') + 1));
     }
 }
\ No newline at end of file
@@ -16,10 +16,11 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
 import com.google.firebase.FirebaseApp;
+import com.google.firebase.database.FirebaseDatabase;
 
+import java.io.File;
+import java.io.IOException;
 import java.security.KeyPair;
-import java.security.KeyPairGenerator;
-import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.util.concurrent.Semaphore;
@@ -29,6 +30,10 @@ import java.util.concurrent.Semaphore;
  * Esta é a classe de atividade principal que gerencia a interface do aplicativo Android.
  */
 public class MainActivity extends AppCompatActivity {
+    private static final GerenciadorChaves GERENCIADOR_CHAVES = new GerenciadorChaves(); // Mantém as chaves RSA entre reinícios da atividade
+    private static final int CAPACIDADE_FILA_TELEMETRIA = 64; // Registros aguardando envio ao Firebase
+    private static final long TEMPO_CONFIRMACAO_FIREBASE = 10000; // Tempo máximo (em milissegundos) de espera pela confirmação de um envio
+    private static DiarioTelemetria diarioTelemetria; // Mantém as escritas não enviadas entre reinícios da atividade
     private boolean percursoIniciado = false;
 
     private TextView tvLatitude, tvLongitude, tvVelocidadeMediaParcial, tvVelocidadeMediaTotal, tvTempoDeslocamento, tvDistanciaPercorrida, tvConsumoCombustivelTotal, tvTempoParaDestinoFinal, tvVelocidadeRecomendada;
@@ -36,6 +41,8 @@ public class MainActivity extends AppCompatActivity {
     private LocationThread locationThread;
     private Semaphore semaphore;
     private ServicoTransporte servicoTransporte;
+    private FilaTelemetria filaTelemetria;
+    private TelemetriaEmLote telemetriaEmLote;
 
     /**
      * Método chamado quando a Activity é criada. Ele é responsável por configurar a interface do usuário,
@@ -48,6 +55,14 @@ public class MainActivity extends AppCompatActivity {
 
         FirebaseApp.initializeApp(this); // Inicializa o Firebase
 
+        // As escritas são guardadas primeiro em um diário local e enviadas ao Firebase quando houver conexão; o diário
+        // é recuperado em segundo plano e guarda em memória as escritas feitas até lá
+        if (diarioTelemetria == null) {
+            diarioTelemetria = new DiarioTelemetria(new File(getFilesDir(), "telemetria.diario"),
+                    new FirebaseTelemetryStore(FirebaseDatabase.getInstance().getReference(), TEMPO_CONFIRMACAO_FIREBASE));
+            JSONEscritor.setArmazenamentoPadrao(diarioTelemetria);
+        }
+
         exibirLayoutParaInserirDados();
 
         // Inicializa os elementos de interface
@@ -106,6 +121,24 @@ public class MainActivity extends AppCompatActivity {
         EditText etDataHoraInicio = novoLayoutView.findViewById(R.id.etDataHoraInicio);
         EditText etDataHoraFim = novoLayoutView.findViewById(R.id.etDataHoraFim);
 
+        // Inicia a geração do par de chaves RSA assim que o número de identificação é preenchido, enquanto o usuário
+        // termina de inserir os demais dados; se o número mudar, o par preparado para o número anterior é descartado
+        etNumeroIdentificacao.setOnFocusChangeListener(new View.OnFocusChangeListener() {
+            private String numeroPreparado;
+
+            @Override
+            public void onFocusChange(View v, boolean hasFocus) {
+                String numeroIdentificacao = etNumeroIdentificacao.getText().toString();
+                if (!hasFocus && !numeroIdentificacao.isEmpty() && !numeroIdentificacao.equals(numeroPreparado)) {
+                    if (numeroPreparado != null) {
+                        GERENCIADOR_CHAVES.descartar(numeroPreparado);
+                    }
+                    GERENCIADOR_CHAVES.prepararParDeChaves(numeroIdentificacao);
+                    numeroPreparado = numeroIdentificacao;
+                }
+            }
+        });
+
         // Cria um AlertDialog
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setView(novoLayoutView);
@@ -132,31 +165,35 @@ public class MainActivity extends AppCompatActivity {
                 servicoTransporte.getCargas().add(carga1);
                 servicoTransporte.getMotoristas().add(motorista1);
 
+                // Garante a geração em segundo plano do par de chaves RSA, caso o campo ainda não tenha perdido o foco
+                GERENCIADOR_CHAVES.prepararParDeChaves(numeroIdentificacao);
+
                 // Fecha o AlertDialog após o processamento dos dados
                 dialog.dismiss();
 
-                try {
-                    // Gere um par de chaves RSA
-                    KeyPair keyPair = gerarParDeChavesRSA();
-                    PublicKey publicKey = keyPair.getPublic();
-                    PrivateKey privateKey = keyPair.getPrivate();
-
-                    // Escreva os dados no JSON criptografado usando a classe JSONEscritor
-                    JSONEscritor writerThread = new JSONEscritor(0, 0,
-                            0, servicoTransporte.getNumeroIdentificacao(), servicoTransporte.getDataHoraInicio(),
-                            servicoTransporte.getDataHoraFim(), servicoTransporte.getCargas().get(0).getDescricao(),
-                            servicoTransporte.getMotoristas().get(0).getNome(), 0, 0, publicKey, privateKey);
-
-                    writerThread.start();
-                    try {
-                        writerThread.join();
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
+                // Aguarda o par de chaves RSA e escreve os dados no JSON criptografado fora da thread da interface
+                final ServicoTransporte servico = servicoTransporte;
+                new Thread(new Runnable() {
+                    @RequiresApi(api = Build.VERSION_CODES.O)
+                    @Override
+                    public void run() {
+                        try {
+                            // Obtenha o par de chaves RSA do serviço de transporte
+                            KeyPair keyPair = GERENCIADOR_CHAVES.obterParDeChaves(servico.getNumeroIdentificacao());
+                            PublicKey publicKey = keyPair.getPublic();
+                            PrivateKey privateKey = keyPair.getPrivate();
+
+                            // Escreva os dados no JSON criptografado usando a classe JSONEscritor, nesta mesma thread
+                            new JSONEscritor(0, 0,
+                                    0, servico.getNumeroIdentificacao(), servico.getDataHoraInicio(),
+                                    servico.getDataHoraFim(), servico.getCargas().get(0).getDescricao(),
+                                    servico.getMotoristas().get(0).getNome(), 0, 0, publicKey, privateKey).escrever();
+
+                        } catch (Exception e) {
+                            e.printStackTrace();
+                        }
                     }
-
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
+                }, "EscritaServicoTransporte").start();
 
             }
         });
@@ -202,6 +239,27 @@ public class MainActivity extends AppCompatActivity {
         locationThread.interrupt();
     }
 
+    /**
+     * Método chamado quando a Activity é destruída.
+     * Encerra a fila de telemetria, aguardando brevemente o envio dos registros pendentes, envia o último lote ao
+     * diário e o sincroniza no disco, para que as escritas ainda não enviadas sobrevivam ao reinício.
+     */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (filaTelemetria != null) {
+            filaTelemetria.encerrar(1000);
+            telemetriaEmLote.encerrar();
+        }
+        if (diarioTelemetria != null) {
+            try {
+                diarioTelemetria.sincronizar();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
     /**
      * Obtém através classe GpsTracker os dados de localização e os atualiza e exibe informações relevantes na interface.
      * Esse método é chamado pela thread de atualização de localização para obter os dados de localização e desempenho
@@ -226,7 +284,16 @@ public class MainActivity extends AppCompatActivity {
 
             // Atualiza os dados do veículo com base nas coordenadas
             if (veiculo == null) {
-                veiculo = new Veiculo(servicoTransporte, gpsTracker);
+                // Os registros são enviados por uma única thread escritora; com a fila cheia, mantém o estado mais recente.
+                // A thread escritora agrupa os registros em lotes comprimidos, guardados no diário local e enviados em escritas multi-caminho ao Firebase,
+                // gravados por serviço de transporte e faixa de tempo.
+                telemetriaEmLote = ConfiguracaoTelemetria.criarTelemetriaEmLote(diarioTelemetria != null ? diarioTelemetria : new FirebaseTelemetryStore(),
+                        GERENCIADOR_CHAVES);
+                filaTelemetria = new FilaTelemetria(telemetriaEmLote,
+                        CAPACIDADE_FILA_TELEMETRIA, FilaTelemetria.PoliticaExcesso.MANTER_MAIS_RECENTE);
+                // A rota do aplicativo é fixa (coordenadas de início e fim e deslocamento por segmento no Veiculo), com 5 segmentos;
+                // o ServicoTransporte ainda não descreve a rota, então o número de segmentos não vem dele
+                veiculo = new Veiculo(servicoTransporte, gpsTracker, filaTelemetria);
             }
             veiculo.atualizarDados(latitude, longitude, timestamp);
 
@@ -293,15 +360,4 @@ public class MainActivity extends AppCompatActivity {
         AlertDialog dialog = builder.create();
         dialog.show();
     }
-
-    /**
-     * Método para gerar um par de chaves RSA.
-     *
-     * @return Um par de chaves RSA (pública e privada).
-     */
-    public static KeyPair gerarParDeChavesRSA() throws NoSuchAlgorithmException {
-        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
-        keyPairGenerator.initialize(2048); // Tamanho da chave (2048 bits)
-        return keyPairGenerator.generateKeyPair();
-    }
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testes locais do JSONEscritor no modo de envelope de sessão, usando o MemoryTelemetryStore no lugar do Firebase.
+ */
+public class JSONEscritorTest {
+    private static final GerenciadorChaves GERENCIADOR_CHAVES = new GerenciadorChaves();
+
+    private static RegistroTelemetria registro(int intervalo) {
+        return new RegistroTelemetria(62.5, 100.0 * intervalo, 1800 - intervalo, "ST-ESCRITOR",
+                "2023-06-01 08:00", "2023-06-01 12:00", "Eletrônicos", "Maria Souza", intervalo, 15);
+    }
+
+    @Test(timeout = 10000)
+    public void escritaComFalhaNaoBloqueiaAsSeguintes() throws Exception {
+        EnvelopeSessao envelope = GERENCIADOR_CHAVES.obterEnvelopeSessao("ST-ESCRITOR");
+        TelemetryStore semConexao = new TelemetryStore() {
+            @Override
+            public void atualizar(Map<String, Object> atualizacoes) {
+                throw new IllegalStateException("Sem conexão.");
+            }
+        };
+        new JSONEscritor(registro(0), envelope, envelope.getParDeChaves().getPrivate(), semConexao).escrever();
+
+        // O semáforo foi liberado pela escrita que falhou, e a chave e o cabeçalho que ela levava seguem na próxima
+        MemoryTelemetryStore armazenamento = new MemoryTelemetryStore();
+        new JSONEscritor(registro(1), envelope, envelope.getParDeChaves().getPrivate(), armazenamento).escrever();
+        assertEquals(1, armazenamento.getIdasEVoltas());
+        String caminhoSessao = TelemetriaEmLote.CAMINHO_SESSOES + "/" + envelope.getIdSessao();
+        assertNotNull(armazenamento.ler(caminhoSessao + "/chaveAES"));
+        assertNotNull(armazenamento.ler(caminhoSessao + "/chaveRSA"));
+        assertEquals(4, armazenamento.getTamanho());
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testes locais da leitura contínua do JSONLeitor, usando o MemoryTelemetryStore no lugar do Firebase.
+ */
+public class JSONLeitorTest {
+    private static final GerenciadorChaves GERENCIADOR_CHAVES = new GerenciadorChaves();
+
+    @Test(timeout = 10000)
+    public void assinaturaAguardaOCabecalhoEEntregaRegistrosCorrompidosComoErro() throws Exception {
+        // Uma sessão completa, gravada registro a registro
+        MemoryTelemetryStore gravada = new MemoryTelemetryStore();
+        TelemetriaEmLote telemetria = new TelemetriaEmLote(gravada, GERENCIADOR_CHAVES, 1, 0);
+        for (int i = 0; i < 5; ++i) {
+            telemetria.enviar(registro("ST-ASSINATURA", i));
+        }
+        telemetria.descarregar();
+        String idSessao = GERENCIADOR_CHAVES.obterEnvelopeSessao("ST-ASSINATURA").getIdSessao();
+        String caminhoSessao = TelemetriaEmLote.CAMINHO_SESSOES + "/" + idSessao;
+        SortedMap<String, Object> sessao = lerTudo(gravada, caminhoSessao);
+
+        // Os registros chegam antes do cabeçalho que referenciam
+        Map<String, Object> cabecalhos = new HashMap<>();
+        Map<String, Object> demais = new HashMap<>();
+        for (Map.Entry<String, Object> valor : sessao.entrySet()) {
+            (valor.getKey().startsWith("cabecalhos/") ? cabecalhos : demais).put(caminhoSessao + "/" + valor.getKey(), valor.getValue());
+        }
+        assertFalse(cabecalhos.isEmpty());
+        MemoryTelemetryStore armazenamento = new MemoryTelemetryStore();
+        armazenamento.atualizar(demais);
+
+        final BlockingQueue<Object> entregues = new LinkedBlockingQueue<>();
+        JSONLeitor leitor = new JSONLeitor(new JSONLeitor.JSONLeitorCallback() {
+            @Override
+            public void onResult(JSONObject result) {
+                entregues.add(result);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                entregues.add(e);
+            }
+        }, armazenamento);
+        TelemetrySource.Assinatura assinatura = leitor.assinarDadosSessao(idSessao);
+
+        // Com o cabeçalho, os registros que o aguardavam são entregues em ordem e uma única vez
+        armazenamento.atualizar(cabecalhos);
+        for (int i = 0; i < 5; ++i) {
+            Object entregue = entregues.take();
+            assertTrue(String.valueOf(entregue), entregue instanceof JSONObject);
+            assertEquals(i, ((JSONObject) entregue).getInt("respectivoIntervalo"));
+        }
+
+        // Um registro corrompido não aguarda um cabeçalho: o erro é entregue ao callback
+        armazenamento.atualizar(Collections.<String, Object>singletonMap(caminhoSessao + "/registros/100", "####"));
+        Object entregue = entregues.take();
+        assertTrue(String.valueOf(entregue), entregue instanceof IllegalArgumentException);
+        assertNull(entregues.poll(100, TimeUnit.MILLISECONDS));
+
+        assinatura.cancelar();
+        leitor.encerrar();
+    }
+
+    @Test(timeout = 10000)
+    public void historicoLeApenasOsRegistrosDoIntervalo() throws Exception {
+        final MemoryTelemetryStore armazenamento = new MemoryTelemetryStore();
+        TelemetriaEmLote telemetria = new TelemetriaEmLote(armazenamento, GERENCIADOR_CHAVES, 1, 0);
+        for (int i = 0; i < 120; ++i) {
+            telemetria.enviar(registro("ST-HISTORICO-LEITOR", i));
+        }
+        telemetria.descarregar();
+        String idSessao = GERENCIADOR_CHAVES.obterEnvelopeSessao("ST-HISTORICO-LEITOR").getIdSessao();
+
+        // Conta os registros entregues pela origem, que nunca deve ler o nó inteiro da sessão
+        final AtomicInteger registrosLidos = new AtomicInteger();
+        final String caminhoSessao = TelemetriaEmLote.CAMINHO_SESSOES + "/" + idSessao;
+        TelemetrySource origem = new TelemetrySource() {
+            @Override
+            public void ler(String caminho, Callback callback) {
+                assertNotEquals(caminhoSessao, caminho);
+                armazenamento.ler(caminho, callback);
+            }
+
+            @Override
+            public void lerIntervalo(String caminho, String chaveInicial, String chaveFinal, final Callback callback) {
+                armazenamento.lerIntervalo(caminho, chaveInicial, chaveFinal, new Callback() {
+                    @Override
+                    public void onResult(SortedMap<String, Object> valores) {
+                        registrosLidos.addAndGet(valores.size());
+                        callback.onResult(valores);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        callback.onError(e);
+                    }
+                });
+            }
+
+            @Override
+            public Assinatura assinar(String caminho, OuvinteFilhos ouvinte) {
+                return armazenamento.assinar(caminho, ouvinte);
+            }
+        };
+
+        final BlockingQueue<Object> entregues = new LinkedBlockingQueue<>();
+        JSONLeitor leitor = new JSONLeitor(null, origem);
+        // O intervalo atravessa a passagem de dois para três dígitos, em que a ordem como texto difere da numérica
+        leitor.lerHistoricoSessao(idSessao, 95, 105, new JSONLeitor.HistoricoCallback() {
+            @Override
+            public void onResult(HistoricoSessao historico) {
+                entregues.add(historico);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                entregues.add(e);
+            }
+        });
+        Object entregue = entregues.take();
+        assertTrue(String.valueOf(entregue), entregue instanceof HistoricoSessao);
+        HistoricoSessao historico = (HistoricoSessao) entregue;
+        assertEquals(11, historico.getTamanho());
+        for (int i = 0; i < 11; ++i) {
+            assertEquals(95 + i, historico.getSequencias()[i]);
+        }
+        assertEquals(11, registrosLidos.get());
+        leitor.encerrar();
+    }
+
+    @Test(timeout = 10000)
+    public void servicoLeOsLotesGravadosComAConfiguracaoDoAplicativo() throws Exception {
+        MemoryTelemetryStore armazenamento = new MemoryTelemetryStore();
+        long inicio = System.currentTimeMillis();
+        TelemetriaEmLote telemetria = ConfiguracaoTelemetria.criarTelemetriaEmLote(armazenamento, GERENCIADOR_CHAVES);
+        for (int i = 0; i < 25; ++i) {
+            telemetria.enviar(registro("ST-SERVICO-APP", i));
+        }
+        telemetria.encerrar();
+        long fim = System.currentTimeMillis();
+
+        // O nó da sessão guarda apenas a chave e os cabeçalhos; os lotes estão nas faixas de tempo do serviço
+        String idSessao = GERENCIADOR_CHAVES.obterEnvelopeSessao("ST-SERVICO-APP").getIdSessao();
+        for (String chave : lerTudo(armazenamento, TelemetriaEmLote.CAMINHO_SESSOES + "/" + idSessao).keySet()) {
+            assertTrue(chave, chave.startsWith("chave") || chave.startsWith("cabecalhos/"));
+        }
+        assertFalse(lerTudo(armazenamento, FaixasTempo.caminhoServico("ST-SERVICO-APP")).isEmpty());
+
+        final BlockingQueue<Object> entregues = new LinkedBlockingQueue<>();
+        JSONLeitor leitor = new JSONLeitor(new JSONLeitor.JSONLeitorCallback() {
+            @Override
+            public void onResult(JSONObject result) {
+                entregues.add(result);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                entregues.add(e);
+            }
+        }, armazenamento);
+        leitor.lerDadosServico("ST-SERVICO-APP", inicio, fim, ConfiguracaoTelemetria.DURACAO_FAIXA);
+        for (int i = 0; i < 25; ++i) {
+            Object entregue = entregues.take();
+            assertTrue(String.valueOf(entregue), entregue instanceof JSONObject);
+            assertEquals(i, ((JSONObject) entregue).getInt("respectivoIntervalo"));
+        }
+        assertNull(entregues.poll(100, TimeUnit.MILLISECONDS));
+        leitor.encerrar();
+    }
+
+    private static RegistroTelemetria registro(String numeroIdentificacao, int intervalo) {
+        return new RegistroTelemetria(62.5, 100.0 * intervalo, 1800 - intervalo, numeroIdentificacao,
+                "2023-06-01 08:00", "2023-06-01 12:00", "Eletrônicos", "Maria Souza", intervalo, 15);
+    }
+
+    private static SortedMap<String, Object> lerTudo(TelemetrySource source, String caminho) {
+        final Object[] resultado = new Object[1];
+        source.ler(caminho, new TelemetrySource.Callback() {
+            @Override
+            public void onResult(SortedMap<String, Object> valores) {
+                resultado[0] = valores;
+            }
+
+            @Override
+            public void onError(Exception e) {
+                resultado[0] = e;
+            }
+        });
+        assertTrue(resultado[0] instanceof SortedMap);
+        @SuppressWarnings("unchecked")
+        SortedMap<String, Object> valores = (SortedMap<String, Object>) resultado[0];
+        return valores;
+    }
+}
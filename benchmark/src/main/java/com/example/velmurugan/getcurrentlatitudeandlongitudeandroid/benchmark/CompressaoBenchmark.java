@@ -0,0 +1,75 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.benchmark;
+
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.EnvelopeSessao;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.GerenciadorChaves;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.PipelineRegistro;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.RegistroTelemetria;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo de CPU e taxa de compressão da codificação de um lote de registros de uma sessão (serialização binária →
+ * Deflate com dicionário → AES-GCM → Base64), por tamanho de lote, com e sem compressão e com e sem as diferenças
+ * entre registros (intervaloQuadroChave 1 escreve todos os registros completos). O tempo é do lote inteiro;
+ * o tamanho em Base64 por registro de cada configuração é impresso na preparação.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompressaoBenchmark {
+    @Param({"1", "10", "50", "200"})
+    public int tamanhoLote;
+
+    @Param({"false", "true"})
+    public boolean comprimir;
+
+    @Param({"1", "32"})
+    public int intervaloQuadroChave;
+
+    private List<RegistroTelemetria> registros;
+    private EnvelopeSessao envelope;
+    private PipelineRegistro pipeline;
+
+    @Setup
+    public void setup() throws Exception {
+        registros = new ArrayList<>();
+        for (int i = 0; i < tamanhoLote; ++i) {
+            // Velocidade e distância variando como em um percurso real, com leituras a cada 15 segundos
+            registros.add(new RegistroTelemetria(55 + 8 * Math.sin(i / 5.0), 12840.3 + 230.4 * i, 1860 - 15 * i,
+                    "ST-0042", "2023-06-01 08:00", "2023-06-01 12:00", "Eletrônicos", "Maria Souza", i, 15));
+        }
+        envelope = EnvelopeSessao.criar("ST-0042", GerenciadorChaves.gerarParDeChavesRSA().getPublic());
+        envelope.atualizarCabecalho(registros.get(0));
+        pipeline = new PipelineRegistro(1024, PipelineRegistro.Formato.BINARIO, comprimir);
+        pipeline.setIntervaloQuadroChave(intervaloQuadroChave);
+
+        PipelineRegistro completo = new PipelineRegistro(1024, PipelineRegistro.Formato.BINARIO, false);
+        completo.setIntervaloQuadroChave(1);
+        int semCompressao = completo.codificarLote(registros, envelope, envelope.proximaSequencia());
+        int tamanho = pipeline.codificarLote(registros, envelope, envelope.proximaSequencia());
+        System.out.printf("%nLote de %d registros: %d bytes em Base64 (%.1f por registro), razão sobre o lote completo %.2f%n",
+                tamanhoLote, tamanho, (double) tamanho / tamanhoLote, (double) semCompressao / tamanho);
+    }
+
+    @Benchmark
+    public int codificarLote() throws Exception {
+        return pipeline.codificarLote(registros, envelope, envelope.proximaSequencia());
+    }
+}
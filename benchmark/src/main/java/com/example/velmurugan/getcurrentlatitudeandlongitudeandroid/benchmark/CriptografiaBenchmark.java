@@ -0,0 +1,113 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.benchmark;
+
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.CriptografiaTelemetria;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.EnvelopeSessao;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+/**
+ * Custo por registro da criptografia do JSONEscritor e do JSONLeitor antes e depois da reutilização das instâncias
+ * de Cipher e KeyFactory. Os casos "semReuso" reproduzem o código anterior, que chamava Cipher.getInstance ou
+ * KeyFactory.getInstance a cada registro; os casos "comReuso" usam CriptografiaTelemetria.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CriptografiaBenchmark {
+    private static final String REGISTRO = "{\"velocidadeMediaParcial\":62.5,\"distanciaPercorrida\":12840.3,"
+            + "\"tempoParaDestinoFinal\":1860,\"numeroIdentificacao\":\"ST-0042\",\"dataHoraInicio\":\"2023-06-01 08:00\","
+            + "\"dataHoraFim\":\"2023-06-01 12:00\",\"descricaoCarga\":\"Eletrônicos\",\"nomeMotorista\":\"Maria Souza\","
+            + "\"respectivoIntervalo\":3,\"intervaloTempoLocalizacoes\":15}";
+
+    private byte[] dados;
+    private SecretKey chaveAES;
+    private byte[] dadosCriptografados;
+    private byte[] chavePrivadaCodificada;
+    private EnvelopeSessao envelope;
+    private long sequencia;
+    private byte[] registroSessao;
+
+    @Setup
+    public void setup() throws Exception {
+        dados = REGISTRO.getBytes(StandardCharsets.UTF_8);
+        chaveAES = KeyGenerator.getInstance("AES").generateKey();
+        dadosCriptografados = CriptografiaTelemetria.criptografiaComAES(dados, chaveAES);
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+        chavePrivadaCodificada = keyPair.getPrivate().getEncoded();
+
+        envelope = EnvelopeSessao.criar("ST-0042", keyPair.getPublic());
+        sequencia = envelope.proximaSequencia();
+        registroSessao = envelope.criptografar(sequencia, dados);
+    }
+
+    @Benchmark
+    public byte[] criptografarSemReuso() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, chaveAES);
+        return cipher.doFinal(dados);
+    }
+
+    @Benchmark
+    public byte[] criptografarComReuso() throws Exception {
+        return CriptografiaTelemetria.criptografiaComAES(dados, chaveAES);
+    }
+
+    @Benchmark
+    public byte[] descriptografarSemReuso() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.DECRYPT_MODE, chaveAES);
+        return cipher.doFinal(dadosCriptografados);
+    }
+
+    @Benchmark
+    public byte[] descriptografarComReuso() throws Exception {
+        return CriptografiaTelemetria.descriptografiaComAES(dadosCriptografados, chaveAES);
+    }
+
+    @Benchmark
+    public PrivateKey converterChaveSemReuso() throws Exception {
+        return KeyFactory.getInstance("RSA").generatePrivate(new PKCS8EncodedKeySpec(chavePrivadaCodificada));
+    }
+
+    @Benchmark
+    public PrivateKey converterChaveComReuso() throws Exception {
+        return CriptografiaTelemetria.converterParaPrivateKey(chavePrivadaCodificada);
+    }
+
+    @Benchmark
+    public byte[] criptografarSessao() throws Exception {
+        return envelope.criptografar(envelope.proximaSequencia(), dados);
+    }
+
+    @Benchmark
+    public byte[] descriptografarSessao() throws Exception {
+        return envelope.descriptografar(sequencia, registroSessao);
+    }
+}
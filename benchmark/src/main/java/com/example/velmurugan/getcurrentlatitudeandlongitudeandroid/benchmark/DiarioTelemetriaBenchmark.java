@@ -0,0 +1,144 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.benchmark;
+
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.DiarioTelemetria;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.TelemetryStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Diário de escrita antecipada da telemetria com um substituto local do Firebase que apenas conta as escritas
+ * recebidas. Vazão das escritas: sincronizando (fsync) cada escrita contra a sincronização em grupo a cada 200 ms.
+ * Recuperação: o tempo para abrir um diário com escritas não confirmadas (por exemplo, após reiniciarAplicativo()
+ * sem conexão), validar as entradas e enviá-las todas ao destino. Cada escrita é um lote compacto de ~400 caracteres,
+ * como os do TelemetriaEmLote.
+ */
+@Fork(1)
+public class DiarioTelemetriaBenchmark {
+    private static final String LOTE = new String(new char[400]).replace('\0', 'A');
+
+    @State(Scope.Thread)
+    public static class Escrita {
+        @Param({"0", "200"})
+        public long intervaloSincronizacao;
+
+        DiarioTelemetria diario;
+        ContadorEscritas destino;
+        File arquivo;
+        long sequencia;
+
+        @Setup
+        public void setup() throws IOException {
+            arquivo = File.createTempFile("diario", ".log");
+            arquivo.delete();
+            destino = new ContadorEscritas();
+            diario = new DiarioTelemetria(arquivo, destino, intervaloSincronizacao,
+                    DiarioTelemetria.ENTRADAS_POR_ENVIO_PADRAO, Long.MAX_VALUE);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            boolean esvaziado = diario.esvaziar(60000);
+            System.out.println("\nEscritas: " + sequencia + ", enviadas: " + destino.caminhos + " em " + destino.envios
+                    + " envios, esvaziado: " + esvaziado + ", arquivo: " + arquivo.length() + " bytes");
+            diario.close();
+            arquivo.delete();
+            new File(arquivo.getPath() + ".confirmado").delete();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Recuperacao {
+        @Param({"10000", "100000"})
+        public int entradas;
+
+        File modelo;
+        File arquivo;
+
+        @Setup(Level.Trial)
+        public void gravarModelo() throws IOException {
+            modelo = File.createTempFile("diario-modelo", ".log");
+            modelo.delete();
+            DiarioTelemetria diario = new DiarioTelemetria(modelo, new TelemetryStore() {
+                @Override
+                public void atualizar(Map<String, Object> atualizacoes) {
+                    throw new IllegalStateException("Sem conexão.");
+                }
+            }, DiarioTelemetria.INTERVALO_SINCRONIZACAO_PADRAO, DiarioTelemetria.ENTRADAS_POR_ENVIO_PADRAO, Long.MAX_VALUE);
+            for (int i = 0; i < entradas; ++i) {
+                diario.atualizar(Collections.<String, Object>singletonMap("sessoesCriptografadas/sessao/lotes/" + i, LOTE));
+            }
+            diario.close();
+            arquivo = new File(modelo.getPath() + ".copia");
+        }
+
+        @Setup(Level.Invocation)
+        public void copiarModelo() throws IOException {
+            Files.copy(modelo.toPath(), arquivo.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.copy(new File(modelo.getPath() + ".confirmado").toPath(), new File(arquivo.getPath() + ".confirmado").toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            for (File removido : new File[]{modelo, arquivo}) {
+                removido.delete();
+                new File(removido.getPath() + ".confirmado").delete();
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public void escrita(Escrita estado) {
+        estado.diario.atualizar(Collections.<String, Object>singletonMap("sessoesCriptografadas/sessao/lotes/" + estado.sequencia++, LOTE));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public long recuperacao(Recuperacao estado) throws IOException {
+        ContadorEscritas destino = new ContadorEscritas();
+        DiarioTelemetria diario = new DiarioTelemetria(estado.arquivo, destino);
+        if (!diario.esvaziar(60000) || destino.caminhos != estado.entradas) {
+            throw new IllegalStateException("Recuperação incompleta: " + destino.caminhos + " de " + estado.entradas);
+        }
+        diario.close();
+        return destino.envios;
+    }
+
+    private static final class ContadorEscritas implements TelemetryStore {
+        volatile long caminhos;
+        volatile long envios;
+
+        @Override
+        public void atualizar(Map<String, Object> atualizacoes) {
+            caminhos += atualizacoes.size();
+            ++envios;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.benchmark;
+
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.FaixasTempo;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.GerenciadorChaves;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.MemoryTelemetryStore;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.RegistroTelemetria;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.TelemetriaEmLote;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.TelemetrySource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consulta de uma hora do histórico de um serviço de transporte gravado por faixas de tempo de um minuto em um
+ * substituto local do Firebase (MemoryTelemetryStore) com milhões de registros: a leitura por intervalo de chaves
+ * (TelemetrySource.lerIntervalo()), que lê apenas as faixas da janela, contra a leitura de todo o serviço seguida
+ * do filtro das faixas, que é o que resta sem consultas por intervalo. Os registros fora da hora consultada são
+ * valores de preenchimento, distribuídos em 30 dias; a hora consultada tem 600 registros reais.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class FaixasTempoBenchmark {
+    private static final long DURACAO_FAIXA = 60000;
+    private static final long INICIO = 1685577600000L; // 2023-06-01 00:00 UTC
+    private static final int FAIXAS = 30 * 24 * 60;
+
+    @Param({"1000000", "2000000"})
+    public int registros;
+
+    private MemoryTelemetryStore armazenamento;
+    private String caminhoServico;
+    private String faixaInicial;
+    private String faixaFinal;
+
+    @Setup
+    public void setup() throws Exception {
+        armazenamento = new MemoryTelemetryStore();
+        caminhoServico = FaixasTempo.caminhoServico("ST-0042");
+        Map<String, Object> preenchimento = new HashMap<>();
+        for (int i = 0; i < registros; ++i) {
+            String faixa = FaixasTempo.chaveFaixa(INICIO + (i % FAIXAS) * DURACAO_FAIXA, DURACAO_FAIXA);
+            preenchimento.put(caminhoServico + "/" + faixa + "/sessao-anterior/" + i, "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA");
+            if (preenchimento.size() == 100000) {
+                armazenamento.atualizar(preenchimento);
+                preenchimento.clear();
+            }
+        }
+        armazenamento.atualizar(preenchimento);
+
+        // Uma hora de registros reais no décimo quinto dia, dez por minuto
+        final long[] instante = {INICIO + 14 * 24 * 3600000L};
+        GerenciadorChaves gerenciadorChaves = new GerenciadorChaves();
+        TelemetriaEmLote telemetria = new TelemetriaEmLote(armazenamento, gerenciadorChaves, 50, 0, false, DURACAO_FAIXA) {
+            @Override
+            protected long agora() {
+                return instante[0];
+            }
+        };
+        faixaInicial = FaixasTempo.chaveFaixa(instante[0], DURACAO_FAIXA);
+        for (int i = 0; i < 600; ++i) {
+            telemetria.enviar(new RegistroTelemetria(55 + 8 * Math.sin(i / 5.0), 12840.3 + 230.4 * i, 1860 - 15 * i,
+                    "ST-0042", "2023-06-01 08:00", "2023-06-01 12:00", "Eletrônicos", "Maria Souza", i, 15));
+            instante[0] += 6000;
+        }
+        telemetria.descarregar();
+        faixaFinal = FaixasTempo.chaveFaixa(instante[0] - 1, DURACAO_FAIXA);
+        gerenciadorChaves.encerrar();
+        System.out.println("\nValores armazenados: " + armazenamento.getTamanho());
+    }
+
+    @Benchmark
+    public SortedMap<String, Object> intervalo() {
+        final Object[] resultado = new Object[1];
+        armazenamento.lerIntervalo(caminhoServico, faixaInicial, faixaFinal, new Coletor(resultado));
+        return verificar(resultado);
+    }
+
+    @Benchmark
+    public SortedMap<String, Object> varreduraServico() {
+        final Object[] resultado = new Object[1];
+        armazenamento.ler(caminhoServico, new Coletor(resultado));
+        SortedMap<String, Object> janela = new TreeMap<>();
+        for (Map.Entry<String, Object> valor : verificar(resultado).entrySet()) {
+            String faixa = valor.getKey().substring(0, valor.getKey().indexOf('/'));
+            if (faixa.compareTo(faixaInicial) >= 0 && faixa.compareTo(faixaFinal) <= 0) {
+                janela.put(valor.getKey(), valor.getValue());
+            }
+        }
+        return janela;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SortedMap<String, Object> verificar(Object[] resultado) {
+        if (resultado[0] instanceof Exception) {
+            throw new IllegalStateException((Exception) resultado[0]);
+        }
+        return (SortedMap<String, Object>) resultado[0];
+    }
+
+    private static final class Coletor implements TelemetrySource.Callback {
+        private final Object[] resultado;
+
+        Coletor(Object[] resultado) {
+            this.resultado = resultado;
+        }
+
+        @Override
+        public void onResult(SortedMap<String, Object> valores) {
+            resultado[0] = valores;
+        }
+
+        @Override
+        public void onError(Exception e) {
+            resultado[0] = e;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.benchmark;
+
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.FloatReconciliation;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.Reconciliation;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.ReconciliationWorkspace;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara a reconciliação em precisão dupla com a variante em precisão simples. O caso precisaoDuplaSemInversa
+ * usa o mesmo algoritmo da variante em precisão simples (Cholesky sobre A·V·Aᵀ), isolando o efeito da precisão.
+ * Execute com "-prof gc" para comparar a memória alocada por operação (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FloatReconciliationBenchmark {
+    @Param({"6", "50", "200"})
+    public int medicoes;
+
+    @Param({"1", "5"})
+    public int restricoes;
+
+    private double[] y;
+    private double[] v;
+    private double[][] a;
+    private float[] yf;
+    private float[] vf;
+    private float[][] af;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        y = new double[medicoes];
+        v = new double[medicoes];
+        a = new double[restricoes][medicoes];
+        yf = new float[medicoes];
+        vf = new float[medicoes];
+        af = new float[restricoes][medicoes];
+        for (int i = 0; i < medicoes; ++i) {
+            y[i] = 20 + random.nextGaussian();
+            v[i] = 1.0;
+            // Cada restrição soma um bloco contíguo de segmentos
+            a[i * restricoes / medicoes][i] = i % (medicoes / restricoes) == 0 ? 1.0 : -1.0;
+        }
+        for (int i = 0; i < medicoes; ++i) {
+            yf[i] = (float) y[i];
+            vf[i] = (float) v[i];
+            for (int k = 0; k < restricoes; ++k) {
+                af[k][i] = (float) a[k][i];
+            }
+        }
+    }
+
+    @Benchmark
+    public double[] precisaoDupla() {
+        return new Reconciliation(y, v, a).getReconciledFlow();
+    }
+
+    @Benchmark
+    public double[] precisaoDuplaSemInversa() {
+        double[] fluxo = new double[medicoes];
+        new ReconciliationWorkspace(restricoes, medicoes).reconcile(y, v, a, fluxo);
+        return fluxo;
+    }
+
+    @Benchmark
+    public float[] precisaoSimples() {
+        return new FloatReconciliation(yf, vf, af).getReconciledFlow();
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.benchmark;
+
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.EnvelopeSessao;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.GerenciadorChaves;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.HistoricoSessao;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.LeitorHistorico;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.MemoryTelemetryStore;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.PipelineRegistro;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.RegistroBinario;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.RegistroTelemetria;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.TelemetriaEmLote;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.TelemetrySource;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leitura do histórico de uma sessão já lida de um substituto local do Firebase (MemoryTelemetryStore): o caminho
+ * anterior, em série, com um JSONObject por registro (como em JSONLeitor.lerDadosSessao()), contra o
+ * LeitorHistorico, que decodifica para colunas primitivas, com um único thread e com o pool comum de fork/join.
+ * A sessão é gravada com registros avulsos ou com lotes compactos.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HistoricoBenchmark {
+    @Param({"1000", "10000"})
+    public int registros;
+
+    @Param({"false", "true"})
+    public boolean compacto;
+
+    private SortedMap<String, Object> sessao;
+    private EnvelopeSessao envelope;
+    private PipelineRegistro pipeline;
+    private ForkJoinPool umThread;
+
+    @Setup
+    public void setup() throws Exception {
+        GerenciadorChaves gerenciadorChaves = new GerenciadorChaves();
+        MemoryTelemetryStore armazenamento = new MemoryTelemetryStore();
+        TelemetriaEmLote telemetria = new TelemetriaEmLote(armazenamento, gerenciadorChaves, 50, 0, compacto);
+        for (int i = 0; i < registros; ++i) {
+            telemetria.enviar(new RegistroTelemetria(55 + 8 * Math.sin(i / 5.0), 12840.3 + 230.4 * i, 1860 - 15 * i,
+                    "ST-0042", "2023-06-01 08:00", "2023-06-01 12:00", "Eletrônicos", "Maria Souza", i, 15));
+        }
+        telemetria.descarregar();
+
+        String idSessao = gerenciadorChaves.obterEnvelopeSessao("ST-0042").getIdSessao();
+        armazenamento.ler(TelemetriaEmLote.CAMINHO_SESSOES + "/" + idSessao, new TelemetrySource.Callback() {
+            @Override
+            public void onResult(SortedMap<String, Object> valores) {
+                sessao = valores;
+            }
+
+            @Override
+            public void onError(Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        envelope = EnvelopeSessao.abrir(idSessao, Base64.getDecoder().decode((String) sessao.get("chaveAES")),
+                gerenciadorChaves.obterParDeChaves("ST-0042").getPrivate());
+        pipeline = new PipelineRegistro();
+        pipeline.decodificarCabecalho((String) sessao.get("cabecalhos/0"), envelope, 0);
+        umThread = new ForkJoinPool(1);
+        gerenciadorChaves.encerrar();
+        System.out.println("\nNúcleos disponíveis: " + Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown
+    public void tearDown() {
+        umThread.shutdown();
+    }
+
+    @Benchmark
+    public void anteriorJSON(Blackhole blackhole) throws Exception {
+        List<Map.Entry<String, Object>> entradas = new ArrayList<>();
+        entradas.addAll(sessao.subMap("lotes/", "lotes0").entrySet());
+        entradas.addAll(sessao.subMap("registros/", "registros0").entrySet());
+        entradas.sort((r1, r2) -> Long.compare(sequencia(r1.getKey()), sequencia(r2.getKey())));
+        for (Map.Entry<String, Object> entrada : entradas) {
+            long sequencia = sequencia(entrada.getKey());
+            if (entrada.getKey().startsWith("lotes/")) {
+                RegistroBinario lote = pipeline.decodificarLote((String) entrada.getValue(), envelope, sequencia);
+                while (lote.proximo(envelope.getCabecalhos()) != null) {
+                    blackhole.consume(paraJSON(lote));
+                }
+            } else {
+                blackhole.consume(paraJSON(pipeline.decodificarRegistro((String) entrada.getValue(), envelope, sequencia)));
+            }
+        }
+    }
+
+    @Benchmark
+    public HistoricoSessao colunasUmThread() throws Exception {
+        return LeitorHistorico.decodificar(sessao, envelope, 0, Long.MAX_VALUE, umThread);
+    }
+
+    @Benchmark
+    public HistoricoSessao colunasParalelo() throws Exception {
+        return LeitorHistorico.decodificar(sessao, envelope, 0, Long.MAX_VALUE);
+    }
+
+    private static JSONObject paraJSON(RegistroBinario registro) throws Exception {
+        JSONObject result = new JSONObject();
+        result.put("velocidadeMediaParcial", registro.getVelocidadeMediaParcial());
+        result.put("distanciaPercorrida", registro.getDistanciaPercorrida());
+        result.put("tempoParaDestinoFinal", registro.getTempoParaDestinoFinal());
+        result.put("numeroIdentificacao", registro.getNumeroIdentificacao());
+        result.put("dataHoraInicio", registro.getDataHoraInicio());
+        result.put("dataHoraFim", registro.getDataHoraFim());
+        result.put("descricaoCarga", registro.getDescricaoCarga());
+        result.put("nomeMotorista", registro.getNomeMotorista());
+        result.put("respectivoIntervalo", registro.getRespectivoIntervalo());
+        result.put("intervaloTempoLocalizacoes", registro.getIntervaloTempoLocalizacoes());
+        return result;
+    }
+
+    private static long sequencia(String caminho) {
+        return Long.parseLong(caminho.substring(caminho.lastIndexOf('/') + 1));
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.benchmark;
+
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.EnvelopeSessao;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.GerenciadorChaves;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.PipelineRegistro;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.RegistroTelemetria;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara o caminho anterior de cada registro (JSONObject → String → byte[] → byte[] criptografado → String Base64)
+ * com o PipelineRegistro no formato JSON, que reutiliza os mesmos buffers. Execute com "-prof gc" (padrão da tarefa
+ * jmh) e compare gc.alloc.rate.norm: nos casos pipelineCodificar e pipelineDecodificar resta apenas o estado que o provedor AES-GCM
+ * do JDK cria a cada Cipher.init (cerca de 1 KB), o mesmo custo mínimo presente em qualquer caminho com AES-GCM.
+ * Cada codificação usa uma nova sequência, pois o AES-GCM não permite reutilizar o nonce.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PipelineRegistroBenchmark {
+    private RegistroTelemetria registro;
+    private EnvelopeSessao envelope;
+    private PipelineRegistro pipeline;
+    private long sequencia;
+    private String registroBase64;
+
+    @Setup
+    public void setup() throws Exception {
+        registro = new RegistroTelemetria(62.5, 12840.3, 1860, "ST-0042", "2023-06-01 08:00", "2023-06-01 12:00",
+                "Eletrônicos", "Maria Souza", 3, 15);
+        envelope = EnvelopeSessao.criar("ST-0042", GerenciadorChaves.gerarParDeChavesRSA().getPublic());
+        pipeline = new PipelineRegistro(1024, PipelineRegistro.Formato.JSON);
+        sequencia = envelope.proximaSequencia();
+        registroBase64 = pipeline.codificarParaTexto(registro, envelope, sequencia);
+    }
+
+    @Benchmark
+    public String anteriorCodificar() throws Exception {
+        JSONObject dados = new JSONObject();
+        dados.put("velocidadeMediaParcial", registro.getVelocidadeMediaParcial());
+        dados.put("distanciaPercorrida", registro.getDistanciaPercorrida());
+        dados.put("tempoParaDestinoFinal", registro.getTempoParaDestinoFinal());
+        dados.put("numeroIdentificacao", registro.getNumeroIdentificacao());
+        dados.put("dataHoraInicio", registro.getDataHoraInicio());
+        dados.put("dataHoraFim", registro.getDataHoraFim());
+        dados.put("descricaoCarga", registro.getDescricaoCarga());
+        dados.put("nomeMotorista", registro.getNomeMotorista());
+        dados.put("respectivoIntervalo", registro.getRespectivoIntervalo());
+        dados.put("intervaloTempoLocalizacoes", registro.getIntervaloTempoLocalizacoes());
+        byte[] dadosCriptografados = envelope.criptografar(envelope.proximaSequencia(), dados.toString().getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(dadosCriptografados);
+    }
+
+    @Benchmark
+    public int pipelineCodificar() throws Exception {
+        return pipeline.codificar(registro, envelope, envelope.proximaSequencia());
+    }
+
+    @Benchmark
+    public String pipelineCodificarParaTexto() throws Exception {
+        return pipeline.codificarParaTexto(registro, envelope, envelope.proximaSequencia());
+    }
+
+    @Benchmark
+    public String anteriorDecodificar() throws Exception {
+        byte[] dadosCriptografados = Base64.getDecoder().decode(registroBase64);
+        return new String(envelope.descriptografar(sequencia, dadosCriptografados), StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ByteBuffer pipelineDecodificar() throws Exception {
+        return pipeline.decodificar(registroBase64, envelope, sequencia);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.benchmark;
+
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.Reconciliation;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.ReconciliationBatch;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vazão, em viagens por segundo, da reconciliação em lote comparada a um objeto Reconciliation por viagem.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(ReconciliationBatchBenchmark.VIAGENS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReconciliationBatchBenchmark {
+    static final int VIAGENS = 10000;
+
+    @Param({"6", "50"})
+    public int medicoesPorViagem;
+
+    private int[] inicioViagens;
+    private double[] medicoes;
+    private double[] variancias;
+    private double[] incidencia;
+    private double[] reconciliado;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        int total = VIAGENS * medicoesPorViagem;
+        inicioViagens = new int[VIAGENS + 1];
+        medicoes = new double[total];
+        variancias = new double[total];
+        incidencia = new double[total];
+        reconciliado = new double[total];
+        for (int t = 0; t <= VIAGENS; ++t) {
+            inicioViagens[t] = t * medicoesPorViagem;
+        }
+        for (int t = 0; t < VIAGENS; ++t) {
+            int inicio = inicioViagens[t];
+            medicoes[inicio] = 100;
+            incidencia[inicio] = 1.0;
+            for (int i = inicio + 1; i < inicio + medicoesPorViagem; ++i) {
+                medicoes[i] = 100.0 / (medicoesPorViagem - 1) + random.nextGaussian();
+                // O primeiro segmento fica sempre estimado para que a restrição tenha o que ajustar
+                variancias[i] = i == inicio + 1 || random.nextBoolean() ? 1.0 : 0.0;
+                incidencia[i] = -1.0;
+            }
+        }
+    }
+
+    @Benchmark
+    public double[] lote() {
+        ReconciliationBatch.reconcile(inicioViagens, medicoes, variancias, incidencia, reconciliado, ForkJoinPool.commonPool());
+        return reconciliado;
+    }
+
+    @Benchmark
+    public double[] construtorPorViagem() {
+        for (int t = 0; t < VIAGENS; ++t) {
+            int inicio = inicioViagens[t];
+            int fim = inicioViagens[t + 1];
+            double[][] a = new double[][]{Arrays.copyOfRange(incidencia, inicio, fim)};
+            double[] fluxo = new Reconciliation(Arrays.copyOfRange(medicoes, inicio, fim),
+                    Arrays.copyOfRange(variancias, inicio, fim), a).getReconciledFlow();
+            System.arraycopy(fluxo, 0, reconciliado, inicio, fluxo.length);
+        }
+        return reconciliado;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.benchmark;
+
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.Reconciliation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks dos dois construtores da classe Reconciliation: a forma com matriz de incidência e a forma
+ * ponderada com matriz diagonal aumentada, para rotas de 6 a 1000 medições.
+ * A forma fechada de Reconciliation.reconcile é incluída como referência para a restrição única.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ReconciliationBenchmark {
+    @Param({"6", "50", "200", "1000"})
+    public int medicoes;
+
+    private double[] medicoesBrutas;
+    private double[] variancias;
+    private double[] desvios;
+    private double[][] matrizIncidencia;
+    private double[] vetorIncidencia;
+    private double[] fluxoReconciliado;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        medicoesBrutas = new double[medicoes];
+        variancias = new double[medicoes];
+        desvios = new double[medicoes];
+        matrizIncidencia = new double[1][medicoes];
+        vetorIncidencia = new double[medicoes];
+        fluxoReconciliado = new double[medicoes];
+
+        // Tempo para o destino final seguido dos tempos dos segmentos, metade deles já medidos
+        medicoesBrutas[0] = 100;
+        desvios[0] = 0.01;
+        matrizIncidencia[0][0] = 1.0;
+        for (int i = 1; i < medicoes; ++i) {
+            medicoesBrutas[i] = 100.0 / (medicoes - 1) * (1 + 0.1 * random.nextGaussian());
+            variancias[i] = i % 2 == 1 ? 1.0 : 0.0;
+            desvios[i] = 0.1;
+            matrizIncidencia[0][i] = -1.0;
+        }
+        System.arraycopy(matrizIncidencia[0], 0, vetorIncidencia, 0, medicoes);
+    }
+
+    @Benchmark
+    public double[] matrizDeIncidencia() {
+        return new Reconciliation(medicoesBrutas, variancias, matrizIncidencia).getReconciledFlow();
+    }
+
+    @Benchmark
+    public double[] diagonalPonderada() {
+        return new Reconciliation(medicoesBrutas, desvios, vetorIncidencia).getReconciledFlow();
+    }
+
+    @Benchmark
+    public double[] formaFechada() {
+        Reconciliation.reconcile(medicoesBrutas, variancias, matrizIncidencia, fluxoReconciliado);
+        return fluxoReconciliado;
+    }
+}
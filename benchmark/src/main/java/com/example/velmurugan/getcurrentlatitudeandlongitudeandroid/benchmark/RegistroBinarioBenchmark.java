@@ -0,0 +1,139 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.benchmark;
+
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.EnvelopeSessao;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.GerenciadorChaves;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.PipelineRegistro;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.RegistroBinario;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.RegistroTelemetria;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara o formato binário (RegistroBinario) com o JSON na serialização e na leitura de um registro, sem
+ * criptografia, e nos pipelines completos (serialização → AES-GCM → Base64), incluindo os registros que apenas
+ * referenciam o cabeçalho da sessão (esquema 2). Os tamanhos de cada formato, em claro e em Base64 depois
+ * da criptografia, são impressos na preparação.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RegistroBinarioBenchmark {
+    private RegistroTelemetria registro;
+    private EnvelopeSessao envelope;
+    private EnvelopeSessao envelopeComCabecalho;
+    private PipelineRegistro pipelineJSON;
+    private PipelineRegistro pipelineBinario;
+    private ByteBuffer buffer;
+    private String json;
+    private ByteBuffer binario;
+    private RegistroBinario leitor;
+
+    @Setup
+    public void setup() throws Exception {
+        registro = new RegistroTelemetria(62.5, 12840.3, 1860, "ST-0042", "2023-06-01 08:00", "2023-06-01 12:00",
+                "Eletrônicos", "Maria Souza", 3, 15);
+        envelope = EnvelopeSessao.criar("ST-0042", GerenciadorChaves.gerarParDeChavesRSA().getPublic());
+        pipelineJSON = new PipelineRegistro(1024, PipelineRegistro.Formato.JSON);
+        pipelineBinario = new PipelineRegistro(1024, PipelineRegistro.Formato.BINARIO);
+        buffer = ByteBuffer.allocateDirect(1024);
+        leitor = new RegistroBinario();
+
+        json = anteriorSerializar();
+        binario = ByteBuffer.allocateDirect(1024);
+        RegistroBinario.escrever(registro, binario);
+        binario.flip();
+
+        int tamanhoJSON = json.getBytes(StandardCharsets.UTF_8).length;
+        int base64JSON = pipelineJSON.codificar(registro, envelope, envelope.proximaSequencia());
+        int base64Binario = pipelineBinario.codificar(registro, envelope, envelope.proximaSequencia());
+        envelopeComCabecalho = EnvelopeSessao.criar("ST-0042", GerenciadorChaves.gerarParDeChavesRSA().getPublic());
+        envelopeComCabecalho.atualizarCabecalho(registro);
+        int base64Cabecalho = pipelineBinario.codificar(registro, envelopeComCabecalho, envelopeComCabecalho.proximaSequencia());
+        System.out.println("\nTamanho do registro: JSON " + tamanhoJSON + " bytes (" + base64JSON + " em Base64 criptografado), "
+                + "binário " + binario.remaining() + " bytes (" + base64Binario + " em Base64 criptografado), "
+                + "referenciando o cabeçalho " + base64Cabecalho + " em Base64 criptografado");
+    }
+
+    @Benchmark
+    public String anteriorSerializar() throws Exception {
+        JSONObject dados = new JSONObject();
+        dados.put("velocidadeMediaParcial", registro.getVelocidadeMediaParcial());
+        dados.put("distanciaPercorrida", registro.getDistanciaPercorrida());
+        dados.put("tempoParaDestinoFinal", registro.getTempoParaDestinoFinal());
+        dados.put("numeroIdentificacao", registro.getNumeroIdentificacao());
+        dados.put("dataHoraInicio", registro.getDataHoraInicio());
+        dados.put("dataHoraFim", registro.getDataHoraFim());
+        dados.put("descricaoCarga", registro.getDescricaoCarga());
+        dados.put("nomeMotorista", registro.getNomeMotorista());
+        dados.put("respectivoIntervalo", registro.getRespectivoIntervalo());
+        dados.put("intervaloTempoLocalizacoes", registro.getIntervaloTempoLocalizacoes());
+        return dados.toString();
+    }
+
+    @Benchmark
+    public ByteBuffer jsonSerializar() {
+        return pipelineJSON.serializar(registro);
+    }
+
+    @Benchmark
+    public ByteBuffer binarioSerializar() {
+        buffer.clear();
+        RegistroBinario.escrever(registro, buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public void anteriorLer(Blackhole blackhole) throws Exception {
+        JSONObject dados = new JSONObject(json);
+        blackhole.consume(dados.getDouble("velocidadeMediaParcial"));
+        blackhole.consume(dados.getDouble("distanciaPercorrida"));
+        blackhole.consume(dados.getLong("tempoParaDestinoFinal"));
+        blackhole.consume(dados.getInt("respectivoIntervalo"));
+        blackhole.consume(dados.getInt("intervaloTempoLocalizacoes"));
+        blackhole.consume(dados.getString("numeroIdentificacao"));
+    }
+
+    @Benchmark
+    public void binarioLer(Blackhole blackhole) {
+        RegistroBinario dados = leitor.envolver(binario);
+        blackhole.consume(dados.getVelocidadeMediaParcial());
+        blackhole.consume(dados.getDistanciaPercorrida());
+        blackhole.consume(dados.getTempoParaDestinoFinal());
+        blackhole.consume(dados.getRespectivoIntervalo());
+        blackhole.consume(dados.getIntervaloTempoLocalizacoes());
+        blackhole.consume(dados.getNumeroIdentificacao());
+    }
+
+    @Benchmark
+    public int jsonCodificar() throws Exception {
+        return pipelineJSON.codificar(registro, envelope, envelope.proximaSequencia());
+    }
+
+    @Benchmark
+    public int binarioCodificar() throws Exception {
+        return pipelineBinario.codificar(registro, envelope, envelope.proximaSequencia());
+    }
+
+    @Benchmark
+    public int binarioComCabecalhoCodificar() throws Exception {
+        return pipelineBinario.codificar(registro, envelopeComCabecalho, envelopeComCabecalho.proximaSequencia());
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.benchmark;
+
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.ReconciliacaoRota;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.Reconciliation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede a latência por atualização da reconciliação de uma rota à medida que os segmentos são concluídos,
+ * comparando a atualização incremental com a solução completa pela classe Reconciliation.
+ * A rota e o sistema completo são reconstruídos fora da medição, depois do último segmento.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RotaReconciliacaoBenchmark {
+    private static final double TEMPO_PARA_DESTINO_FINAL = 100;
+
+    @Param({"5", "50", "500"})
+    public int numeroSegmentos;
+
+    private ReconciliacaoRota rota;
+    private int segmento;
+
+    private double[] medicoes;
+    private double[] variancias;
+    private double[][] incidencia;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        rota = new ReconciliacaoRota(numeroSegmentos, TEMPO_PARA_DESTINO_FINAL);
+        segmento = 0;
+
+        medicoes = new double[numeroSegmentos + 1];
+        variancias = new double[numeroSegmentos + 1];
+        incidencia = new double[1][numeroSegmentos + 1];
+        medicoes[0] = TEMPO_PARA_DESTINO_FINAL;
+        incidencia[0][0] = 1.0;
+        for (int i = 1; i <= numeroSegmentos; ++i) {
+            medicoes[i] = TEMPO_PARA_DESTINO_FINAL / numeroSegmentos;
+            variancias[i] = 1.0;
+            incidencia[0][i] = -1.0;
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void recomecarRota() {
+        if (segmento == numeroSegmentos) {
+            setup();
+        }
+    }
+
+    private int proximoSegmento() {
+        segmento = segmento % numeroSegmentos + 1;
+        return segmento;
+    }
+
+    private double tempoMedido(int segmento) {
+        return TEMPO_PARA_DESTINO_FINAL / numeroSegmentos + (segmento % 3) - 1;
+    }
+
+    @Benchmark
+    public double atualizacaoIncremental() {
+        int s = proximoSegmento();
+        rota.registrarSegmento(s, tempoMedido(s));
+        return s < numeroSegmentos ? rota.getTempoReconciliado(s + 1) : 0;
+    }
+
+    @Benchmark
+    public double solucaoCompleta() {
+        int s = proximoSegmento();
+        medicoes[s] = tempoMedido(s);
+        variancias[s] = 0.0;
+        variancias[0] = s == numeroSegmentos ? 1.0 : 0.0;
+        double[] reconciliado = new Reconciliation(medicoes, variancias, incidencia).getReconciledFlow();
+        return s < numeroSegmentos ? reconciliado[s + 1] : 0;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.benchmark;
+
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.ReconciliationWorkspace;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.SparseReconciliation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rede de rotas com um ponto de controle a cada dez segmentos: cada restrição iguala o tempo medido da janela
+ * do ponto de controle à soma dos tempos dos seus segmentos. Compara a SparseReconciliation com a área de
+ * trabalho densa (ReconciliationWorkspace), ambas reaproveitadas entre as soluções; com -prof gc (padrão da
+ * tarefa jmh) também mostra a alocação por solução.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SparseReconciliationBenchmark {
+    private static final int SEGMENTOS_POR_JANELA = 10;
+
+    @Param({"300", "3000"})
+    public int segmentos;
+
+    private double[] medicoesBrutas;
+    private double[] variancias;
+    private double[] fluxoReconciliado;
+    private SparseReconciliation esparsa;
+    private ReconciliationWorkspace densa;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        int restricoes = segmentos / SEGMENTOS_POR_JANELA;
+        int medicoes = segmentos + restricoes;
+        medicoesBrutas = new double[medicoes];
+        variancias = new double[medicoes];
+        fluxoReconciliado = new double[medicoes];
+
+        // Os segmentos vêm primeiro, seguidos do tempo medido em cada janela
+        int naoNulos = segmentos + restricoes;
+        int[] linha = new int[naoNulos];
+        int[] coluna = new int[naoNulos];
+        double[] coeficiente = new double[naoNulos];
+        double[][] incidencia = new double[restricoes][medicoes];
+        int k = 0;
+        for (int i = 0; i < segmentos; ++i) {
+            medicoesBrutas[i] = 10 * (1 + 0.1 * random.nextGaussian());
+            variancias[i] = 1.0;
+            linha[k] = i / SEGMENTOS_POR_JANELA;
+            coluna[k] = i;
+            coeficiente[k++] = -1.0;
+            incidencia[i / SEGMENTOS_POR_JANELA][i] = -1.0;
+        }
+        for (int j = 0; j < restricoes; ++j) {
+            medicoesBrutas[segmentos + j] = 10 * SEGMENTOS_POR_JANELA;
+            variancias[segmentos + j] = 0.5;
+            linha[k] = j;
+            coluna[k] = segmentos + j;
+            coeficiente[k++] = 1.0;
+            incidencia[j][segmentos + j] = 1.0;
+        }
+
+        esparsa = new SparseReconciliation(restricoes, medicoes, linha, coluna, coeficiente);
+        densa = new ReconciliationWorkspace(restricoes, medicoes);
+        if (!densa.setIncidenceMatrix(incidencia)) {
+            throw new IllegalStateException("Matriz de incidência inválida.");
+        }
+    }
+
+    @Benchmark
+    public double[] esparsa() {
+        if (!esparsa.reconcile(medicoesBrutas, variancias, fluxoReconciliado)) {
+            throw new IllegalStateException("Reconciliação esparsa falhou.");
+        }
+        return fluxoReconciliado;
+    }
+
+    @Benchmark
+    public double[] densa() {
+        if (!densa.reconcile(medicoesBrutas, variancias, fluxoReconciliado)) {
+            throw new IllegalStateException("Reconciliação densa falhou.");
+        }
+        return fluxoReconciliado;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.benchmark;
+
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.ArquivoTelemetryStore;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.GerenciadorChaves;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.MemoryTelemetryStore;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.RegistroTelemetria;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.TelemetriaEmLote;
+import com.example.velmurugan.getcurrentlatitudeandlongitudeandroid.TelemetryStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vazão de ponta a ponta (registros por segundo) do envio de telemetria sem rede: criptografia no envelope
+ * de sessão, agrupamento em lotes multi-caminho pelo TelemetriaEmLote e escrita em um substituto local do
+ * Firebase (em memória ou em arquivo). Cada operação envia um registro do próximo veículo simulado, em rodízio,
+ * de modo que todos os veículos tenham a sua própria sessão e publiquem a sua chave no primeiro lote.
+ *
+ * Todos os veículos compartilham um único par de chaves RSA, registrado no GerenciadorChaves, para que a geração
+ * das chaves não domine a preparação; o armazenamento e as sessões são recriados a cada iteração.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TelemetriaArmazenamentoBenchmark {
+    private static final int TAMANHO_LOTE = 50;
+
+    @Param({"100", "1000", "5000"})
+    public int veiculos;
+
+    @Param({"memoria", "arquivo"})
+    public String armazenamento;
+
+    private KeyPair parDeChaves;
+    private RegistroTelemetria[] registros;
+    private GerenciadorChaves gerenciadorChaves;
+    private TelemetryStore store;
+    private TelemetriaEmLote telemetriaEmLote;
+    private File arquivo;
+    private int proximo;
+
+    @Setup
+    public void setup() throws Exception {
+        parDeChaves = GerenciadorChaves.gerarParDeChavesRSA();
+        registros = new RegistroTelemetria[veiculos];
+        for (int i = 0; i < veiculos; ++i) {
+            registros[i] = new RegistroTelemetria(40 + i % 50, 100.0 * i, 1800, "ST-" + i, "2023-06-01 08:00",
+                    "2023-06-01 12:00", "Eletrônicos", "Motorista " + i, 3, 15);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void prepararIteracao() throws Exception {
+        gerenciadorChaves = new GerenciadorChaves();
+        for (int i = 0; i < veiculos; ++i) {
+            gerenciadorChaves.registrarParDeChaves(registros[i].getNumeroIdentificacao(), parDeChaves);
+            // A chave AES de cada sessão é criada aqui, fora da medição; a publicação segue no primeiro lote
+            gerenciadorChaves.obterEnvelopeSessao(registros[i].getNumeroIdentificacao());
+        }
+        if ("arquivo".equals(armazenamento)) {
+            arquivo = File.createTempFile("telemetria", ".log");
+            arquivo.delete();
+            store = new ArquivoTelemetryStore(arquivo);
+        } else {
+            store = new MemoryTelemetryStore();
+        }
+        telemetriaEmLote = new TelemetriaEmLote(store, gerenciadorChaves, TAMANHO_LOTE, 0);
+        proximo = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void encerrarIteracao() throws Exception {
+        telemetriaEmLote.encerrar();
+        gerenciadorChaves.encerrar();
+        if (store instanceof ArquivoTelemetryStore) {
+            ((ArquivoTelemetryStore) store).close();
+            arquivo.delete();
+        }
+    }
+
+    @Benchmark
+    public void enviarRegistro() {
+        telemetriaEmLote.enviar(registros[proximo]);
+        if (++proximo == veiculos) {
+            proximo = 0;
+        }
+    }
+}
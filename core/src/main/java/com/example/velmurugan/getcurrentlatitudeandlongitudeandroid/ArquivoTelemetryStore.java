@@ -0,0 +1,233 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Implementação de TelemetryStore e TelemetrySource sobre um arquivo local em que as escritas são apenas acrescentadas.
+ * Cada escrita multi-caminho é gravada como uma entrada do arquivo; ao abrir um arquivo existente, as entradas
+ * são reaplicadas em ordem para reconstruir o estado usado nas leituras. Serve como substituto do Firebase
+ * em testes de carga e benchmarks que precisam do custo real de escrita em disco.
+ *
+ * Formato de cada entrada: o número de caminhos (int) seguido, para cada caminho, do caminho (UTF modificado),
+ * de um byte com o tipo do valor e do valor. Os textos são gravados em UTF-8, precedidos do tamanho (int), sem o
+ * limite de 64 KB do UTF modificado; o tipo TIPO_TEXTO, em UTF modificado, é apenas lido, de arquivos anteriores.
+ */
+public class ArquivoTelemetryStore implements TelemetryStore, TelemetrySource, Closeable {
+    private static final byte TIPO_NULO = 0;
+    private static final byte TIPO_TEXTO = 1;
+    private static final byte TIPO_LONG = 2;
+    private static final byte TIPO_DOUBLE = 3;
+    private static final byte TIPO_BOOLEANO = 4;
+    private static final byte TIPO_TEXTO_UTF8 = 5;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final File arquivo;
+    private final TreeMap<String, Object> valores = new TreeMap<>();
+    private final AssinaturasLocais assinaturas = new AssinaturasLocais(this);
+    private final DataOutputStream saida;
+    private long entradas;
+
+    /**
+     * Construtor da classe ArquivoTelemetryStore. Se o arquivo já existir, as entradas gravadas são reaplicadas.
+     *
+     * @param arquivo o arquivo em que as escritas são acrescentadas.
+     * @throws IOException se o arquivo não puder ser lido ou aberto para escrita.
+     */
+    public ArquivoTelemetryStore(File arquivo) throws IOException {
+        this.arquivo = arquivo;
+        if (arquivo.exists()) {
+            reaplicar();
+        }
+        this.saida = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(arquivo, true), 1 << 16));
+    }
+
+    /**
+     * Acrescenta a escrita multi-caminho ao arquivo e a aplica ao estado em memória.
+     *
+     * @throws UncheckedIOException se ocorrer algum erro de escrita no arquivo.
+     */
+    @Override
+    public synchronized void atualizar(Map<String, Object> atualizacoes) {
+        try {
+            saida.writeInt(atualizacoes.size());
+            for (Map.Entry<String, Object> atualizacao : atualizacoes.entrySet()) {
+                saida.writeUTF(atualizacao.getKey());
+                escreverValor(saida, atualizacao.getValue());
+            }
+            saida.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ++entradas;
+        MemoryTelemetryStore.aplicar(valores, atualizacoes);
+        assinaturas.notificar(atualizacoes);
+    }
+
+    /**
+     * Lê os valores abaixo do caminho, chamando o callback na própria thread.
+     */
+    @Override
+    public void ler(String caminho, Callback callback) {
+        SortedMap<String, Object> resultado;
+        synchronized (this) {
+            resultado = MemoryTelemetryStore.abaixoDe(valores, caminho);
+        }
+        callback.onResult(resultado);
+    }
+
+    /**
+     * Lê os valores abaixo dos filhos do caminho com chaves no intervalo, chamando o callback na própria thread.
+     */
+    @Override
+    public void lerIntervalo(String caminho, String chaveInicial, String chaveFinal, Callback callback) {
+        SortedMap<String, Object> resultado;
+        synchronized (this) {
+            resultado = MemoryTelemetryStore.entre(valores, caminho, chaveInicial, chaveFinal);
+        }
+        callback.onResult(resultado);
+    }
+
+    /**
+     * Assina os filhos do caminho. O ouvinte é chamado na thread de cada escrita e não deve escrever
+     * neste armazenamento.
+     */
+    @Override
+    public synchronized Assinatura assinar(String caminho, OuvinteFilhos ouvinte) {
+        return assinaturas.assinar(valores, caminho, ouvinte);
+    }
+
+    /**
+     * Obtém o número de entradas (escritas multi-caminho) no arquivo.
+     */
+    public synchronized long getEntradas() {
+        return entradas;
+    }
+
+    /**
+     * Obtém o arquivo em que as escritas são acrescentadas.
+     */
+    public File getArquivo() {
+        return arquivo;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        saida.close();
+    }
+
+    /**
+     * Escreve um valor precedido do byte com o seu tipo. Também usado nas entradas do DiarioTelemetria.
+     */
+    static void escreverValor(DataOutputStream saida, Object valor) throws IOException {
+        if (valor == null) {
+            saida.writeByte(TIPO_NULO);
+        } else if (valor instanceof String) {
+            byte[] texto = ((String) valor).getBytes(UTF8);
+            saida.writeByte(TIPO_TEXTO_UTF8);
+            saida.writeInt(texto.length);
+            saida.write(texto);
+        } else if (valor instanceof Long || valor instanceof Integer) {
+            saida.writeByte(TIPO_LONG);
+            saida.writeLong(((Number) valor).longValue());
+        } else if (valor instanceof Number) {
+            saida.writeByte(TIPO_DOUBLE);
+            saida.writeDouble(((Number) valor).doubleValue());
+        } else if (valor instanceof Boolean) {
+            saida.writeByte(TIPO_BOOLEANO);
+            saida.writeBoolean((Boolean) valor);
+        } else {
+            throw new IllegalArgumentException("Tipo de valor não suportado: " + valor.getClass().getName());
+        }
+    }
+
+    private void reaplicar() throws IOException {
+        final long[] lidos = new long[1];
+        long posicaoValida = 0;
+        try (DataInputStream entrada = new DataInputStream(new FilterInputStream(
+                new BufferedInputStream(new FileInputStream(arquivo), 1 << 16)) {
+            @Override
+            public int read() throws IOException {
+                int lido = super.read();
+                if (lido >= 0) {
+                    ++lidos[0];
+                }
+                return lido;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int lido = super.read(b, off, len);
+                if (lido > 0) {
+                    lidos[0] += lido;
+                }
+                return lido;
+            }
+        })) {
+            while (true) {
+                Map<String, Object> atualizacoes = new LinkedHashMap<>();
+                try {
+                    int quantidade = entrada.readInt();
+                    for (int i = 0; i < quantidade; ++i) {
+                        String caminho = entrada.readUTF();
+                        atualizacoes.put(caminho, lerValor(entrada));
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                posicaoValida = lidos[0];
+                ++entradas;
+                MemoryTelemetryStore.aplicar(valores, atualizacoes);
+            }
+        }
+
+        // Uma entrada incompleta no final do arquivo (escrita interrompida) é descartada antes de novas escritas
+        if (posicaoValida < arquivo.length()) {
+            System.out.println("Entrada incompleta descartada no final de " + arquivo);
+            try (RandomAccessFile acesso = new RandomAccessFile(arquivo, "rw")) {
+                acesso.setLength(posicaoValida);
+            }
+        }
+    }
+
+    /**
+     * Lê um valor escrito com escreverValor().
+     */
+    static Object lerValor(DataInputStream entrada) throws IOException {
+        byte tipo = entrada.readByte();
+        switch (tipo) {
+            case TIPO_NULO:
+                return null;
+            case TIPO_TEXTO:
+                return entrada.readUTF();
+            case TIPO_LONG:
+                return entrada.readLong();
+            case TIPO_DOUBLE:
+                return entrada.readDouble();
+            case TIPO_BOOLEANO:
+                return entrada.readBoolean();
+            case TIPO_TEXTO_UTF8:
+                byte[] texto = new byte[entrada.readInt()];
+                entrada.readFully(texto);
+                return new String(texto, UTF8);
+            default:
+                throw new IOException("Tipo de valor desconhecido: " + tipo);
+        }
+    }
+}
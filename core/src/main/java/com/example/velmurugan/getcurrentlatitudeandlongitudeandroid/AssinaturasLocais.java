@@ -0,0 +1,81 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Assinaturas de leitura contínua dos armazenamentos locais (MemoryTelemetryStore e ArquivoTelemetryStore).
+ * Os métodos devem ser chamados com o bloqueio do armazenamento, de modo que um ouvinte nunca perde nem recebe
+ * em duplicidade uma escrita feita durante a assinatura. Os ouvintes são chamados na thread da escrita e não
+ * devem escrever no armazenamento.
+ */
+class AssinaturasLocais {
+    private final Object bloqueio;
+    private final List<Assinatura> assinaturas = new ArrayList<>();
+
+    /**
+     * Construtor da classe AssinaturasLocais.
+     *
+     * @param bloqueio o objeto usado pelo armazenamento para sincronizar as escritas.
+     */
+    AssinaturasLocais(Object bloqueio) {
+        this.bloqueio = bloqueio;
+    }
+
+    /**
+     * Entrega ao ouvinte os filhos existentes do caminho e o registra para receber as próximas escritas.
+     */
+    TelemetrySource.Assinatura assinar(TreeMap<String, Object> valores, String caminho, TelemetrySource.OuvinteFilhos ouvinte) {
+        String prefixo = caminho.isEmpty() ? "" : caminho + "/";
+        for (Map.Entry<String, Object> valor : valores.subMap(prefixo, prefixo + Character.MAX_VALUE).entrySet()) {
+            String chave = valor.getKey().substring(prefixo.length());
+            if (chave.indexOf('/') < 0) {
+                ouvinte.onFilho(chave, valor.getValue());
+            }
+        }
+        Assinatura assinatura = new Assinatura(prefixo, ouvinte);
+        assinaturas.add(assinatura);
+        return assinatura;
+    }
+
+    /**
+     * Entrega aos ouvintes os valores escritos nos filhos dos caminhos assinados.
+     */
+    void notificar(Map<String, Object> atualizacoes) {
+        if (assinaturas.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, Object> atualizacao : atualizacoes.entrySet()) {
+            if (atualizacao.getValue() == null) {
+                continue;
+            }
+            String caminho = atualizacao.getKey();
+            String prefixo = caminho.substring(0, caminho.lastIndexOf('/') + 1);
+            for (int i = 0; i < assinaturas.size(); ++i) {
+                Assinatura assinatura = assinaturas.get(i);
+                if (assinatura.prefixo.equals(prefixo)) {
+                    assinatura.ouvinte.onFilho(caminho.substring(prefixo.length()), atualizacao.getValue());
+                }
+            }
+        }
+    }
+
+    private class Assinatura implements TelemetrySource.Assinatura {
+        private final String prefixo;
+        private final TelemetrySource.OuvinteFilhos ouvinte;
+
+        Assinatura(String prefixo, TelemetrySource.OuvinteFilhos ouvinte) {
+            this.prefixo = prefixo;
+            this.ouvinte = ouvinte;
+        }
+
+        @Override
+        public void cancelar() {
+            synchronized (bloqueio) {
+                assinaturas.remove(this);
+            }
+        }
+    }
+}
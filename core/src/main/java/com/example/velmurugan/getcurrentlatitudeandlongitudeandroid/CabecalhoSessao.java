@@ -0,0 +1,69 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+/**
+ * Cabeçalho de uma sessão de telemetria: os dados do serviço de transporte que não mudam durante o percurso
+ * (numeroIdentificacao, dataHoraInicio, dataHoraFim, descricaoCarga e nomeMotorista). O cabeçalho é enviado
+ * uma única vez por sessão, e os registros seguintes o referenciam pelo seu número de sequência na sessão.
+ */
+public class CabecalhoSessao {
+    private final String numeroIdentificacao;
+    private final String dataHoraInicio;
+    private final String dataHoraFim;
+    private final String descricaoCarga;
+    private final String nomeMotorista;
+
+    /**
+     * Construtor da classe CabecalhoSessao.
+     */
+    public CabecalhoSessao(String numeroIdentificacao, String dataHoraInicio, String dataHoraFim,
+                           String descricaoCarga, String nomeMotorista) {
+        this.numeroIdentificacao = numeroIdentificacao;
+        this.dataHoraInicio = dataHoraInicio;
+        this.dataHoraFim = dataHoraFim;
+        this.descricaoCarga = descricaoCarga;
+        this.nomeMotorista = nomeMotorista;
+    }
+
+    /**
+     * Cria o cabeçalho com os dados do serviço de transporte presentes no registro.
+     */
+    public static CabecalhoSessao de(RegistroTelemetria registro) {
+        return new CabecalhoSessao(registro.getNumeroIdentificacao(), registro.getDataHoraInicio(),
+                registro.getDataHoraFim(), registro.getDescricaoCarga(), registro.getNomeMotorista());
+    }
+
+    /**
+     * Verifica se o registro tem os mesmos dados do serviço de transporte que este cabeçalho.
+     */
+    public boolean corresponde(RegistroTelemetria registro) {
+        return igual(numeroIdentificacao, registro.getNumeroIdentificacao())
+                && igual(dataHoraInicio, registro.getDataHoraInicio())
+                && igual(dataHoraFim, registro.getDataHoraFim())
+                && igual(descricaoCarga, registro.getDescricaoCarga())
+                && igual(nomeMotorista, registro.getNomeMotorista());
+    }
+
+    public String getNumeroIdentificacao() {
+        return numeroIdentificacao;
+    }
+
+    public String getDataHoraInicio() {
+        return dataHoraInicio;
+    }
+
+    public String getDataHoraFim() {
+        return dataHoraFim;
+    }
+
+    public String getDescricaoCarga() {
+        return descricaoCarga;
+    }
+
+    public String getNomeMotorista() {
+        return nomeMotorista;
+    }
+
+    private static boolean igual(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compressão dos registros de telemetria antes da criptografia, já que os dados criptografados não são compressíveis.
+ * Usa o Deflate sem o cabeçalho zlib e com um dicionário predefinido com os trechos que se repetem nos registros
+ * (nomes dos campos do JSON, datas e os bytes iniciais dos registros binários), o que permite comprimir mesmo
+ * registros pequenos. O ganho maior aparece nos lotes (veja PipelineRegistro.codificarLote()), em que os registros
+ * do mesmo percurso se repetem entre si.
+ *
+ * Os dados comprimidos começam com o byte ESQUEMA_COMPRIMIDO e o tamanho original (varint), para que o leitor saiba
+ * quando descomprimir. O dicionário faz parte do formato: alterá-lo exige um novo valor de ESQUEMA_COMPRIMIDO.
+ *
+ * Uma instância reutiliza o mesmo Deflater e o mesmo Inflater e não é thread-safe.
+ */
+public class CompressorTelemetria {
+    public static final byte ESQUEMA_COMPRIMIDO = 5;
+
+    private static final byte[] DICIONARIO = dicionario();
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final Inflater inflater = new Inflater(true);
+
+    /**
+     * Verifica se os dados a partir da posição do buffer estão comprimidos.
+     */
+    public static boolean ehComprimido(ByteBuffer dados) {
+        return dados.hasRemaining() && dados.get(dados.position()) == ESQUEMA_COMPRIMIDO;
+    }
+
+    /**
+     * Comprime os dados, escrevendo no destino o byte ESQUEMA_COMPRIMIDO, o tamanho original e os dados comprimidos.
+     *
+     * @param origem  os dados a comprimir.
+     * @param tamanho o número de bytes de origem.
+     * @param destino o array de destino; a compressão só é usada se o resultado couber nele.
+     * @return o número de bytes escritos, ou -1 se a compressão não reduzir o tamanho dos dados.
+     */
+    public int comprimir(byte[] origem, int tamanho, byte[] destino) {
+        int limite = Math.min(tamanho, destino.length);
+        int cabecalho = escreverVarint(destino, 1, tamanho);
+        destino[0] = ESQUEMA_COMPRIMIDO;
+        if (cabecalho >= limite) {
+            return -1;
+        }
+
+        deflater.reset();
+        deflater.setDictionary(DICIONARIO);
+        deflater.setInput(origem, 0, tamanho);
+        deflater.finish();
+        int escritos = cabecalho;
+        while (!deflater.finished() && escritos < limite) {
+            escritos += deflater.deflate(destino, escritos, limite - escritos);
+        }
+        return deflater.finished() && escritos < tamanho ? escritos : -1;
+    }
+
+    /**
+     * Obtém o tamanho original de dados comprimidos com comprimir().
+     */
+    public static int tamanhoOriginal(byte[] origem, int tamanho) {
+        int valor = 0;
+        for (int i = 1, deslocamento = 0; i < tamanho && deslocamento < 32; ++i, deslocamento += 7) {
+            valor |= (origem[i] & 0x7F) << deslocamento;
+            if (origem[i] >= 0) {
+                return valor;
+            }
+        }
+        throw new IllegalArgumentException("Tamanho inválido nos dados comprimidos.");
+    }
+
+    /**
+     * Descomprime dados comprimidos com comprimir().
+     *
+     * @param origem  os dados comprimidos, começando pelo byte ESQUEMA_COMPRIMIDO.
+     * @param tamanho o número de bytes de origem.
+     * @param destino o array de destino, com pelo menos tamanhoOriginal() bytes.
+     * @return o número de bytes descomprimidos.
+     * @throws IllegalArgumentException se os dados comprimidos forem inválidos.
+     */
+    public int descomprimir(byte[] origem, int tamanho, byte[] destino) {
+        int tamanhoOriginal = tamanhoOriginal(origem, tamanho);
+        int cabecalho = 1;
+        while (origem[cabecalho] < 0) {
+            ++cabecalho;
+        }
+        ++cabecalho;
+
+        inflater.reset();
+        inflater.setDictionary(DICIONARIO);
+        inflater.setInput(origem, cabecalho, tamanho - cabecalho);
+        try {
+            int lidos = 0;
+            while (lidos < tamanhoOriginal && !inflater.finished()) {
+                int n = inflater.inflate(destino, lidos, tamanhoOriginal - lidos);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                lidos += n;
+            }
+            if (lidos != tamanhoOriginal) {
+                throw new IllegalArgumentException("Dados comprimidos incompletos.");
+            }
+            return lidos;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Dados comprimidos inválidos.", e);
+        }
+    }
+
+    private static int escreverVarint(byte[] destino, int posicao, int valor) {
+        while ((valor & ~0x7F) != 0 && posicao < destino.length) {
+            destino[posicao++] = (byte) ((valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        if (posicao < destino.length) {
+            destino[posicao++] = (byte) valor;
+        }
+        return posicao;
+    }
+
+    /**
+     * Monta o dicionário predefinido. O Deflate procura as repetições de trás para frente, então os trechos mais
+     * frequentes ficam no final.
+     */
+    private static byte[] dicionario() {
+        String json = "{\"velocidadeMediaParcial\":0.0,\"distanciaPercorrida\":0.0,\"tempoParaDestinoFinal\":0,"
+                + "\"numeroIdentificacao\":\"\",\"dataHoraInicio\":\"2023-01-01 00:00\",\"dataHoraFim\":\"2024-01-01 00:00\","
+                + "\"descricaoCarga\":\"\",\"nomeMotorista\":\"\",\"respectivoIntervalo\":0,\"intervaloTempoLocalizacoes\":0}";
+        byte[] texto = json.getBytes(StandardCharsets.UTF_8);
+
+        // Registro binário típico do esquema 2 (velocidade e distância em double, varints, cabeçalho 0)
+        ByteBuffer binario = ByteBuffer.allocate(3 * 22);
+        for (int i = 0; i < 3; ++i) {
+            binario.put(RegistroBinario.ESQUEMA_V2).putDouble(40.0 + 10 * i).putDouble(1000.0 * (i + 1))
+                    .put((byte) 0x90).put((byte) 0x1C).put((byte) (2 * i)).put((byte) 30).put((byte) 0);
+        }
+
+        byte[] dicionario = new byte[texto.length + binario.position()];
+        System.arraycopy(texto, 0, dicionario, 0, texto.length);
+        System.arraycopy(binario.array(), 0, dicionario, texto.length, binario.position());
+        return dicionario;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+
+/**
+ * Operações criptográficas usadas pelo JSONEscritor e pelo JSONLeitor.
+ * As instâncias de Cipher e KeyFactory são confinadas à thread e reutilizadas entre registros, evitando a busca
+ * do provedor e a construção dos objetos a cada chamada; cada operação apenas reinicializa o Cipher com a sua chave.
+ */
+public final class CriptografiaTelemetria {
+    private static final ThreadLocal<Cipher> AES = new ThreadLocal<Cipher>() {
+        @Override
+        protected Cipher initialValue() {
+            return novoCipher("AES");
+        }
+    };
+    private static final ThreadLocal<Cipher> AES_GCM = new ThreadLocal<Cipher>() {
+        @Override
+        protected Cipher initialValue() {
+            return novoCipher("AES/GCM/NoPadding");
+        }
+    };
+    private static final ThreadLocal<Cipher> RSA = new ThreadLocal<Cipher>() {
+        @Override
+        protected Cipher initialValue() {
+            return novoCipher("RSA");
+        }
+    };
+    private static final ThreadLocal<KeyFactory> FABRICA_RSA = new ThreadLocal<KeyFactory>() {
+        @Override
+        protected KeyFactory initialValue() {
+            try {
+                return KeyFactory.getInstance("RSA");
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    private CriptografiaTelemetria() {
+    }
+
+    /**
+     * Realiza criptografia simétrica dos dados fornecidos usando a chave AES.
+     *
+     * @param data       Dados a serem criptografados.
+     * @param secretKey  Chave secreta AES usada para criptografar os dados.
+     * @return Os dados criptografados em formato de array de bytes.
+     * @throws GeneralSecurityException Se ocorrer algum erro durante a criptografia.
+     */
+    public static byte[] criptografiaComAES(byte[] data, SecretKey secretKey) throws GeneralSecurityException {
+        Cipher cipher = AES.get();
+        cipher.init(Cipher.ENCRYPT_MODE, secretKey);
+        return cipher.doFinal(data);
+    }
+
+    /**
+     * Realiza a descriptografia dos dados usando AES.
+     *
+     * @param dadosCriptografados Os dados criptografados a serem descriptografados.
+     * @param secretKey     A chave AES usada para descriptografia.
+     * @return Os dados descriptografados.
+     * @throws GeneralSecurityException Se ocorrer algum erro durante a descriptografia.
+     */
+    public static byte[] descriptografiaComAES(byte[] dadosCriptografados, SecretKey secretKey) throws GeneralSecurityException {
+        Cipher cipher = AES.get();
+        cipher.init(Cipher.DECRYPT_MODE, secretKey);
+        return cipher.doFinal(dadosCriptografados);
+    }
+
+    /**
+     * Realiza a criptografia assimétrica dos dados usando RSA (Rivest-Shamir-Adleman).
+     *
+     * @param data       Chave AES que será criptografada.
+     * @param publicKey  A chave pública RSA usada para criptografia.
+     * @return A chave AES criptografada em formato de array de bytes.
+     * @throws GeneralSecurityException Se ocorrer algum erro durante a criptografia.
+     */
+    public static byte[] criptografiaComRSA(byte[] data, PublicKey publicKey) throws GeneralSecurityException {
+        Cipher cipher = RSA.get();
+        cipher.init(Cipher.ENCRYPT_MODE, publicKey);
+        return cipher.doFinal(data);
+    }
+
+    /**
+     * Realiza a descriptografia da chave AES usando RSA.
+     *
+     * @param chaveAesCriptografada A chave AES que será descriptografados.
+     * @param privateKey    A chave privada RSA usada para descriptografia.
+     * @return A chave AES descriptografada.
+     * @throws GeneralSecurityException Se ocorrer algum erro durante a descriptografia.
+     */
+    public static byte[] descriptografiaComRSA(byte[] chaveAesCriptografada, PrivateKey privateKey) throws GeneralSecurityException {
+        Cipher cipher = RSA.get();
+        cipher.init(Cipher.DECRYPT_MODE, privateKey);
+        return cipher.doFinal(chaveAesCriptografada);
+    }
+
+    /**
+     * Converte um array de bytes em formato PKCS#8 para uma chave privada RSA.
+     *
+     * @param chaveRsa O array de bytes representando a chave privada RSA em formato PKCS#8.
+     * @return A chave privada RSA no formato PrivateKey.
+     * @throws GeneralSecurityException Caso ocorra algum erro durante a conversão.
+     */
+    public static PrivateKey converterParaPrivateKey(byte[] chaveRsa) throws GeneralSecurityException {
+        return FABRICA_RSA.get().generatePrivate(new PKCS8EncodedKeySpec(chaveRsa));
+    }
+
+    /**
+     * Obtém o Cipher AES-GCM da thread atual, usado pelo EnvelopeSessao. Deve ser inicializado antes de cada uso.
+     */
+    static Cipher aesGcm() {
+        return AES_GCM.get();
+    }
+
+    private static Cipher novoCipher(String transformacao) {
+        try {
+            return Cipher.getInstance(transformacao);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
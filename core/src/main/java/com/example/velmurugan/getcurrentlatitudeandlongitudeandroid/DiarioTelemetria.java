@@ -0,0 +1,721 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Diário de escrita antecipada (write-ahead log) da telemetria: as escritas multi-caminho são primeiro acrescentadas
+ * a um arquivo local e só depois enviadas ao destino (o Firebase) por uma thread de envio. Sem conexão, as escritas
+ * se acumulam no arquivo, com tamanho limitado e visível (getBytesPendentes()), em vez de na fila interna do SDK;
+ * quando a conexão volta, são enviadas em ordem, agrupadas em poucas escritas multi-caminho grandes. Com o diário
+ * cheio, quem escreve espera pelo envio das escritas anteriores (e, depois de ESPERA_MAXIMA_ESPACO, recebe uma
+ * exceção), em vez de a escrita ser perdida sem aviso.
+ *
+ * Quem escreve não espera pelo disco nem pela rede: o arquivo é sincronizado (fsync) em grupo, no máximo a cada
+ * intervaloSincronizacao, e apenas as escritas já sincronizadas são enviadas. Sem escritas novas nem envios a
+ * repetir, a thread de envio fica parada até a próxima escrita, sem acordar nem sincronizar periodicamente. Depois de cada envio aceito pelo
+ * destino, a posição confirmada é gravada em "{arquivo}.confirmado"; ao abrir o diário (por exemplo, após
+ * reiniciarAplicativo() ou o fim do processo), as escritas depois dessa posição são reenviadas. O envio é pelo menos
+ * uma vez: uma escrita enviada pouco antes de uma falha pode ser repetida, o que não altera o resultado, já que cada
+ * caminho recebe sempre o mesmo valor: os lotes do TelemetriaEmLote ficam sob o número de sequência da sessão
+ * ("servicos/{numeroIdentificacao}/{faixa}/{idSessao}/{seq}", ou "sessoesCriptografadas/{id}/lotes/{seq}" sem
+ * faixas de tempo), e a chave e os cabeçalhos da sessão ("sessoesCriptografadas/{id}/chaveAES",
+ * ".../cabecalhos/{seq}") não mudam depois de escritos. A recuperação é feita na thread
+ * de envio, e não no construtor, para não ocupar a thread principal do Android; as escritas recebidas enquanto isso
+ * ficam em memória e são acrescentadas ao arquivo, depois das recuperadas, assim que ele é aberto.
+ *
+ * As posições são contadas desde a criação do diário e não voltam ao início. O arquivo começa com a posição da sua
+ * primeira entrada (long); quando as escritas confirmadas passam do limite de compactação, as não confirmadas são
+ * copiadas para um novo arquivo, que substitui o anterior. Como a posição confirmada não depende do arquivo, uma
+ * falha em qualquer ponto da compactação deixa um arquivo válido. Formato de cada entrada: o tamanho (int) e o
+ * CRC-32 (int) do conteúdo, seguidos do conteúdo no formato das entradas do ArquivoTelemetryStore. Uma entrada
+ * incompleta ou corrompida no final do arquivo é descartada.
+ */
+public class DiarioTelemetria implements TelemetryStore, Closeable {
+    public static final long INTERVALO_SINCRONIZACAO_PADRAO = 200; // Milissegundos entre as sincronizações em grupo
+    public static final int ENTRADAS_POR_ENVIO_PADRAO = 500;
+    public static final long CAPACIDADE_PADRAO = 64L << 20; // Bytes aguardando envio
+    private static final long LIMITE_SINCRONIZACAO_ANTECIPADA = 256 << 10; // Bytes não sincronizados que antecipam a sincronização
+    private static final long LIMITE_COMPACTACAO = 1 << 20; // Bytes confirmados a partir dos quais o arquivo é compactado
+    private static final long ESPERA_MAXIMA_NOVA_TENTATIVA = 60000;
+    private static final long ESPERA_MAXIMA_ESPACO = 10000; // Espera de quem escreve com o diário cheio, em milissegundos
+    private static final int TAMANHO_CABECALHO_ARQUIVO = 8;
+    private static final int TAMANHO_CABECALHO_ENTRADA = 8;
+
+    private final File arquivo;
+    private final TelemetryStore destino;
+    private final long intervaloSincronizacao;
+    private final long ciclo; // Espera entre a primeira escrita nova e a sincronização e o envio em grupo
+    private final int entradasPorEnvio;
+    private final long capacidade;
+    private final List<byte[]> aguardandoAbertura = new ArrayList<>(); // Entradas escritas antes de o arquivo ser aberto
+    private final ByteArrayOutputStream bufferEntrada = new ByteArrayOutputStream(1024);
+    private final CRC32 crc = new CRC32();
+    private final DataOutputStream conteudo = new DataOutputStream(new CheckedOutputStream(bufferEntrada, crc));
+    private final Thread envio;
+    private RandomAccessFile controle;
+    private FileOutputStream arquivoSaida;
+    private DataOutputStream saida;
+    private RandomAccessFile leitura;
+    private long base; // Posição da primeira entrada do arquivo
+    private long fimEscrito;
+    private long fimSincronizado;
+    private long confirmado;
+    private long geracao; // Incrementada a cada compactação, que troca o arquivo
+    private long entradasPendentes;
+    private long bytesAguardandoAbertura;
+    private long prazoEnvio; // Instante em que as escritas novas devem ser sincronizadas e enviadas; 0 sem escritas novas
+    private boolean sincronizacaoSolicitada;
+    private boolean aberto;
+    private boolean falhaAbertura;
+    private boolean encerrado;
+
+    /**
+     * Construtor da classe DiarioTelemetria com o intervalo de sincronização, o agrupamento e a capacidade padrão.
+     *
+     * @param arquivo o arquivo do diário; as escritas não confirmadas de uma execução anterior são reenviadas.
+     * @param destino o armazenamento que recebe as escritas (por exemplo, FirebaseTelemetryStore).
+     */
+    public DiarioTelemetria(File arquivo, TelemetryStore destino) {
+        this(arquivo, destino, INTERVALO_SINCRONIZACAO_PADRAO, ENTRADAS_POR_ENVIO_PADRAO, CAPACIDADE_PADRAO);
+    }
+
+    /**
+     * Construtor da classe DiarioTelemetria. Inicia a thread de envio, que recupera as escritas não confirmadas antes
+     * de enviá-las; o construtor não acessa o disco e pode ser chamado na thread principal. Se o arquivo não puder ser
+     * lido ou aberto para escrita, o erro é registrado e o diário é encerrado.
+     *
+     * @param arquivo                o arquivo do diário; as escritas não confirmadas de uma execução anterior são reenviadas.
+     * @param destino                o armazenamento que recebe as escritas (por exemplo, FirebaseTelemetryStore).
+     *                               Uma escrita é confirmada quando atualizar() retorna sem exceção.
+     * @param intervaloSincronizacao o tempo máximo, em milissegundos, entre uma escrita e a sua sincronização no disco;
+     *                               0 sincroniza cada escrita antes de retornar.
+     * @param entradasPorEnvio       o número máximo de escritas agrupadas em cada envio ao destino.
+     * @param capacidade             o número máximo de bytes aguardando envio; as escritas além dele esperam pelo envio.
+     */
+    public DiarioTelemetria(File arquivo, TelemetryStore destino, long intervaloSincronizacao, int entradasPorEnvio,
+                            long capacidade) {
+        if (intervaloSincronizacao < 0) {
+            throw new IllegalArgumentException("O intervalo de sincronização não pode ser negativo.");
+        }
+        if (entradasPorEnvio < 1) {
+            throw new IllegalArgumentException("O número de escritas por envio deve ser positivo.");
+        }
+        if (capacidade < 1) {
+            throw new IllegalArgumentException("A capacidade do diário deve ser positiva.");
+        }
+        this.arquivo = arquivo;
+        this.destino = destino;
+        this.intervaloSincronizacao = intervaloSincronizacao;
+        this.ciclo = intervaloSincronizacao > 0 ? intervaloSincronizacao : INTERVALO_SINCRONIZACAO_PADRAO;
+        this.entradasPorEnvio = entradasPorEnvio;
+        this.capacidade = capacidade;
+        this.envio = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                if (abrirDiario()) {
+                    enviar();
+                }
+            }
+        }, "DiarioTelemetria");
+        this.envio.setDaemon(true);
+        this.envio.start();
+    }
+
+    /**
+     * Acrescenta a escrita multi-caminho ao diário, sem esperar pelo disco (exceto com intervalo de sincronização 0)
+     * nem pelo envio. Antes de o arquivo ser aberto, a escrita fica em memória; com intervalo de sincronização 0,
+     * espera pela abertura. Com o diário cheio, espera até que o envio das escritas anteriores libere espaço.
+     *
+     * @throws IllegalStateException se o diário estiver encerrado, continuar cheio depois de ESPERA_MAXIMA_ESPACO
+     *                               ou a espera for interrompida; a escrita não é gravada.
+     * @throws UncheckedIOException  se ocorrer algum erro de escrita no arquivo.
+     */
+    @Override
+    public synchronized void atualizar(Map<String, Object> atualizacoes) {
+        try {
+            // Com sincronização a cada escrita, a escrita só retorna depois de gravada no arquivo
+            while (!encerrado && !aberto && intervaloSincronizacao == 0) {
+                wait();
+            }
+            if (encerrado) {
+                throw new IllegalStateException("O diário de telemetria foi encerrado.");
+            }
+            bufferEntrada.reset();
+            crc.reset();
+            conteudo.writeInt(atualizacoes.size());
+            for (Map.Entry<String, Object> atualizacao : atualizacoes.entrySet()) {
+                conteudo.writeUTF(atualizacao.getKey());
+                ArquivoTelemetryStore.escreverValor(conteudo, atualizacao.getValue());
+            }
+            int tamanho = bufferEntrada.size();
+            int crcEntrada = (int) crc.getValue();
+
+            // Com o diário cheio, espera pelo envio das escritas anteriores; uma escrita maior que a capacidade é
+            // aceita com o diário vazio
+            byte[] copia = null;
+            long limite = System.currentTimeMillis() + ESPERA_MAXIMA_ESPACO;
+            while (!encerrado && getBytesPendentes() > 0 && getBytesPendentes() + TAMANHO_CABECALHO_ENTRADA + tamanho > capacidade) {
+                long espera = limite - System.currentTimeMillis();
+                if (espera <= 0) {
+                    throw new IllegalStateException("O diário de telemetria continua cheio: " + getBytesPendentes() + " bytes aguardando envio.");
+                }
+                if (copia == null) {
+                    copia = bufferEntrada.toByteArray(); // Outras escritas reutilizam o buffer durante a espera
+                }
+                wait(espera);
+            }
+            if (encerrado) {
+                throw new IllegalStateException("O diário de telemetria foi encerrado.");
+            }
+
+            if (!aberto) {
+                ByteArrayOutputStream entrada = new ByteArrayOutputStream(TAMANHO_CABECALHO_ENTRADA + tamanho);
+                DataOutputStream cabecalho = new DataOutputStream(entrada);
+                cabecalho.writeInt(tamanho);
+                cabecalho.writeInt(crcEntrada);
+                escreverConteudo(cabecalho, copia);
+                aguardandoAbertura.add(entrada.toByteArray());
+                bytesAguardandoAbertura += entrada.size();
+                ++entradasPendentes;
+                return;
+            }
+            saida.writeInt(tamanho);
+            saida.writeInt(crcEntrada);
+            escreverConteudo(saida, copia);
+            fimEscrito += TAMANHO_CABECALHO_ENTRADA + tamanho;
+            ++entradasPendentes;
+
+            if (intervaloSincronizacao == 0) {
+                saida.flush();
+                arquivoSaida.getFD().sync();
+                fimSincronizado = fimEscrito;
+            } else if (fimEscrito - fimSincronizado >= LIMITE_SINCRONIZACAO_ANTECIPADA && !sincronizacaoSolicitada) {
+                sincronizacaoSolicitada = true;
+                notifyAll();
+            }
+            // A primeira escrita nova acorda a thread de envio, que espera um ciclo para agrupar as seguintes
+            if (prazoEnvio == 0) {
+                prazoEnvio = System.currentTimeMillis() + ciclo;
+                notifyAll();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Escrita no diário de telemetria interrompida.", e);
+        }
+    }
+
+    /**
+     * Escreve o conteúdo da entrada codificada em bufferEntrada, ou a sua cópia, se quem escreve esperou por espaço.
+     */
+    private void escreverConteudo(DataOutputStream destino, byte[] copia) throws IOException {
+        if (copia != null) {
+            destino.write(copia);
+        } else {
+            bufferEntrada.writeTo(destino);
+        }
+    }
+
+    /**
+     * Sincroniza no disco as escritas acrescentadas até agora, esperando pelo fsync. Pode ser chamado antes de o
+     * aplicativo ser encerrado ou reiniciado, para não perder as escritas do último intervalo de sincronização.
+     * Sem escritas novas desde a última sincronização, retorna sem fsync.
+     *
+     * @throws IOException se ocorrer algum erro de escrita no arquivo.
+     */
+    public void sincronizar() throws IOException {
+        long fim;
+        long geracaoSincronizada;
+        FileOutputStream sincronizado;
+        synchronized (this) {
+            if (!aberto || fimEscrito == fimSincronizado) {
+                return;
+            }
+            saida.flush();
+            fim = fimEscrito;
+            geracaoSincronizada = geracao;
+            sincronizado = arquivoSaida;
+        }
+        // O fsync é feito fora do bloqueio, para que as escritas continuem enquanto o disco grava
+        try {
+            sincronizado.getFD().sync();
+        } catch (IOException e) {
+            synchronized (this) {
+                // Uma compactação fechou o arquivo, depois de sincronizar as escritas no novo arquivo
+                if (geracao != geracaoSincronizada) {
+                    return;
+                }
+            }
+            throw e;
+        }
+        synchronized (this) {
+            if (geracao == geracaoSincronizada && fim > fimSincronizado) {
+                fimSincronizado = fim;
+            }
+        }
+    }
+
+    /**
+     * Aguarda até que o arquivo tenha sido recuperado e aberto para escrita.
+     *
+     * @param tempoMaximo o tempo máximo de espera, em milissegundos.
+     * @return true se o arquivo foi aberto dentro do tempo; false também se ele não pôde ser aberto.
+     */
+    public synchronized boolean aguardarAbertura(long tempoMaximo) {
+        long limite = System.currentTimeMillis() + tempoMaximo;
+        while (!aberto) {
+            long espera = limite - System.currentTimeMillis();
+            if (espera <= 0 || falhaAbertura) {
+                return false;
+            }
+            try {
+                wait(espera);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Aguarda até que todas as escritas acrescentadas tenham sido confirmadas pelo destino.
+     *
+     * @param tempoMaximo o tempo máximo de espera, em milissegundos.
+     * @return true se todas as escritas foram confirmadas dentro do tempo.
+     */
+    public synchronized boolean esvaziar(long tempoMaximo) {
+        long limite = System.currentTimeMillis() + tempoMaximo;
+        sincronizacaoSolicitada = true;
+        notifyAll();
+        while (!aberto || confirmado < fimEscrito) {
+            long espera = limite - System.currentTimeMillis();
+            if (espera <= 0 || encerrado) {
+                return false;
+            }
+            try {
+                wait(espera);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Obtém o número de escritas aguardando a confirmação do destino.
+     */
+    public synchronized long getEntradasPendentes() {
+        return entradasPendentes;
+    }
+
+    /**
+     * Obtém o número de bytes do diário aguardando a confirmação do destino.
+     */
+    public synchronized long getBytesPendentes() {
+        return (aberto ? fimEscrito - confirmado : 0) + bytesAguardandoAbertura;
+    }
+
+    /**
+     * Obtém o arquivo do diário.
+     */
+    public File getArquivo() {
+        return arquivo;
+    }
+
+    /**
+     * Encerra o diário: sincroniza as escritas no disco e termina a thread de envio, aguardando o envio em andamento.
+     * As escritas não confirmadas permanecem no arquivo e são reenviadas quando o diário for aberto novamente.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (encerrado) {
+                return;
+            }
+            encerrado = true;
+            notifyAll();
+        }
+        try {
+            envio.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            // Sem esses arquivos, a abertura falhou
+            if (saida != null) {
+                saida.close();
+            }
+            if (leitura != null) {
+                leitura.close();
+            }
+            if (controle != null) {
+                controle.close();
+            }
+        }
+    }
+
+    /**
+     * Recupera as escritas não confirmadas e abre o arquivo, na thread de envio, acrescentando ao arquivo as escritas
+     * recebidas enquanto isso.
+     *
+     * @return false se o arquivo não pôde ser aberto; o diário é então encerrado.
+     */
+    private boolean abrirDiario() {
+        long recuperadas;
+        try {
+            // Até a abertura, apenas esta thread acessa os arquivos e as posições
+            controle = new RandomAccessFile(new File(arquivo.getPath() + ".confirmado"), "rw");
+            recuperadas = recuperar();
+            abrir();
+        } catch (IOException e) {
+            e.printStackTrace();
+            synchronized (this) {
+                System.out.println("Diário de telemetria não pôde ser aberto, " + aguardandoAbertura.size() + " escritas descartadas.");
+                aguardandoAbertura.clear();
+                bytesAguardandoAbertura = 0;
+                entradasPendentes = 0;
+                falhaAbertura = true;
+                encerrado = true;
+                notifyAll();
+            }
+            return false;
+        }
+        synchronized (this) {
+            try {
+                for (byte[] entrada : aguardandoAbertura) {
+                    saida.write(entrada);
+                    fimEscrito += entrada.length;
+                }
+            } catch (IOException e) {
+                // As entradas não gravadas inteiras são descartadas na próxima recuperação
+                e.printStackTrace();
+            }
+            aguardandoAbertura.clear();
+            bytesAguardandoAbertura = 0;
+            entradasPendentes += recuperadas;
+            aberto = true;
+            if (fimEscrito > fimSincronizado) {
+                prazoEnvio = System.currentTimeMillis() + ciclo;
+            }
+            notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * Laço da thread de envio: um ciclo depois da primeira escrita nova, sincroniza o arquivo e envia as escritas
+     * sincronizadas. Se o destino recusar um envio (por exemplo, sem conexão), espera cada vez mais, até um minuto,
+     * antes de tentar de novo. Sem escritas novas nem envio a repetir, espera pela próxima escrita.
+     */
+    private void enviar() {
+        long espera = ciclo;
+        long proximaTentativa = 0;
+        byte[] bloco = new byte[1 << 16];
+        while (true) {
+            boolean encerrando;
+            synchronized (this) {
+                while (!encerrado && !sincronizacaoSolicitada) {
+                    long acordar = prazoEnvio != 0 ? prazoEnvio : Long.MAX_VALUE;
+                    if (confirmado < fimSincronizado) {
+                        acordar = Math.min(acordar, proximaTentativa);
+                    }
+                    long agora = System.currentTimeMillis();
+                    if (acordar <= agora) {
+                        break;
+                    }
+                    try {
+                        wait(acordar == Long.MAX_VALUE ? 0 : acordar - agora);
+                    } catch (InterruptedException e) {
+                        encerrado = true;
+                    }
+                }
+                prazoEnvio = 0;
+                sincronizacaoSolicitada = false;
+                encerrando = encerrado;
+            }
+
+            try {
+                sincronizar();
+                if (encerrando) {
+                    return;
+                }
+                if (System.currentTimeMillis() >= proximaTentativa) {
+                    if (enviarSincronizadas(bloco)) {
+                        espera = ciclo;
+                        proximaTentativa = 0;
+                    } else {
+                        espera = Math.min(2 * espera, ESPERA_MAXIMA_NOVA_TENTATIVA);
+                        proximaTentativa = System.currentTimeMillis() + espera;
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                // Tenta sincronizar e enviar de novo depois da espera, em vez de repetir o erro sem parar
+                espera = Math.min(2 * espera, ESPERA_MAXIMA_NOVA_TENTATIVA);
+                proximaTentativa = System.currentTimeMillis() + espera;
+                synchronized (this) {
+                    prazoEnvio = proximaTentativa;
+                }
+            }
+        }
+    }
+
+    /**
+     * Envia ao destino, em ordem e em grupos de até entradasPorEnvio, as escritas sincronizadas ainda não confirmadas,
+     * compactando o arquivo depois de cada envio confirmado.
+     *
+     * @return false se o destino recusou um envio.
+     */
+    private boolean enviarSincronizadas(byte[] bloco) throws IOException {
+        while (true) {
+            long inicio;
+            long fim;
+            synchronized (this) {
+                inicio = confirmado;
+                fim = fimSincronizado;
+            }
+            if (inicio >= fim) {
+                return true;
+            }
+
+            // Lê o trecho seguinte do arquivo; uma entrada maior que o trecho faz o trecho crescer
+            int disponivel = (int) Math.min(fim - inicio, bloco.length);
+            leitura.seek(inicio - base + TAMANHO_CABECALHO_ARQUIVO);
+            leitura.readFully(bloco, 0, disponivel);
+            int primeira = TAMANHO_CABECALHO_ENTRADA + lerInt(bloco, 0);
+            if (primeira > disponivel) {
+                bloco = new byte[Integer.highestOneBit(primeira) << 1];
+                continue;
+            }
+
+            // Junta as escritas em uma única escrita multi-caminho, até encontrar um caminho que contenha ou esteja
+            // contido em outro já incluído, que o Firebase não aceita na mesma escrita
+            TreeMap<String, Object> lote = new TreeMap<>();
+            Map<String, Object> entrada = new LinkedHashMap<>();
+            int posicao = 0;
+            int entradas = 0;
+            while (entradas < entradasPorEnvio && posicao + TAMANHO_CABECALHO_ENTRADA <= disponivel) {
+                int tamanho = lerInt(bloco, posicao);
+                if (posicao + TAMANHO_CABECALHO_ENTRADA + tamanho > disponivel) {
+                    break;
+                }
+                entrada.clear();
+                DataInputStream dados = new DataInputStream(new ByteArrayInputStream(bloco, posicao + TAMANHO_CABECALHO_ENTRADA, tamanho));
+                int quantidade = dados.readInt();
+                for (int i = 0; i < quantidade; ++i) {
+                    String caminho = dados.readUTF();
+                    entrada.put(caminho, ArquivoTelemetryStore.lerValor(dados));
+                }
+                if (entradas > 0 && conflita(lote, entrada)) {
+                    break;
+                }
+                lote.putAll(entrada);
+                posicao += TAMANHO_CABECALHO_ENTRADA + tamanho;
+                ++entradas;
+            }
+
+            try {
+                destino.atualizar(lote);
+            } catch (RuntimeException e) {
+                System.out.println("Envio do diário de telemetria recusado: " + e.getMessage());
+                return false;
+            }
+            gravarConfirmado(inicio + posicao);
+            synchronized (this) {
+                confirmado = inicio + posicao;
+                entradasPendentes -= entradas;
+                notifyAll();
+            }
+            compactar();
+        }
+    }
+
+    /**
+     * Verifica se algum caminho da escrita é igual, ancestral ou descendente de um caminho do lote. Caminhos iguais
+     * também encerram o lote, para que a escrita mais recente não seja enviada antes de uma anterior.
+     */
+    private static boolean conflita(TreeMap<String, Object> lote, Map<String, Object> entrada) {
+        for (String caminho : entrada.keySet()) {
+            if (lote.containsKey(caminho)) {
+                return true;
+            }
+            String descendente = lote.ceilingKey(caminho + "/");
+            if (descendente != null && descendente.startsWith(caminho + "/")) {
+                return true;
+            }
+            for (int barra = caminho.indexOf('/'); barra > 0; barra = caminho.indexOf('/', barra + 1)) {
+                if (lote.containsKey(caminho.substring(0, barra))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copia as escritas não confirmadas para um novo arquivo, que substitui o anterior, quando as escritas confirmadas
+     * passam do limite de compactação e são ao menos quatro vezes maiores que as não confirmadas; assim, mesmo com o
+     * envio sempre atrasado, o arquivo não cresce sem limite e cada byte é copiado poucas vezes. Quem escreve espera
+     * apenas pela cópia.
+     */
+    private synchronized void compactar() throws IOException {
+        long pendentes = fimEscrito - confirmado;
+        if (confirmado - base < LIMITE_COMPACTACAO || pendentes > (confirmado - base) / 4) {
+            return;
+        }
+        saida.flush();
+        File novo = new File(arquivo.getPath() + ".novo");
+        try (FileOutputStream novaSaida = new FileOutputStream(novo)) {
+            DataOutputStream dados = new DataOutputStream(novaSaida);
+            dados.writeLong(confirmado);
+            byte[] copia = new byte[(int) Math.min(Math.max(pendentes, 1), 1 << 16)];
+            leitura.seek(confirmado - base + TAMANHO_CABECALHO_ARQUIVO);
+            for (long restantes = pendentes; restantes > 0; ) {
+                int lidos = leitura.read(copia, 0, (int) Math.min(restantes, copia.length));
+                if (lidos < 0) {
+                    throw new EOFException("Fim inesperado do diário de telemetria.");
+                }
+                dados.write(copia, 0, lidos);
+                restantes -= lidos;
+            }
+            dados.flush();
+            novaSaida.getFD().sync();
+        }
+
+        saida.close();
+        leitura.close();
+        if (!novo.renameTo(arquivo)) {
+            abrir();
+            throw new IOException("Não foi possível substituir " + arquivo);
+        }
+        ++geracao;
+        base = confirmado;
+        fimSincronizado = fimEscrito;
+        abrir();
+    }
+
+    /**
+     * Abre o arquivo para acrescentar e para ler as entradas.
+     */
+    private void abrir() throws IOException {
+        arquivoSaida = new FileOutputStream(arquivo, true);
+        saida = new DataOutputStream(new BufferedOutputStream(arquivoSaida, 1 << 16));
+        leitura = new RandomAccessFile(arquivo, "r");
+    }
+
+    /**
+     * Grava a posição confirmada no arquivo de controle, seguida do seu complemento para detectar gravações
+     * interrompidas. Uma posição inválida é lida como 0, o que apenas reenvia escritas já confirmadas.
+     */
+    private void gravarConfirmado(long posicao) throws IOException {
+        controle.seek(0);
+        controle.writeLong(posicao);
+        controle.writeLong(~posicao);
+        controle.getFD().sync();
+    }
+
+    /**
+     * Lê a posição confirmada e valida as entradas seguintes, descartando uma entrada incompleta ou corrompida no
+     * final do arquivo.
+     *
+     * @return o número de escritas não confirmadas.
+     */
+    private long recuperar() throws IOException {
+        long recuperadas = 0;
+        long posicao = -1;
+        if (controle.length() >= 16) {
+            controle.seek(0);
+            posicao = controle.readLong();
+            if (controle.readLong() != ~posicao) {
+                posicao = -1;
+            }
+        }
+
+        // Um arquivo novo começa na posição confirmada, para que as posições nunca voltem
+        if (arquivo.length() < TAMANHO_CABECALHO_ARQUIVO) {
+            try (DataOutputStream cabecalho = new DataOutputStream(new FileOutputStream(arquivo))) {
+                cabecalho.writeLong(Math.max(posicao, 0));
+            }
+        }
+        try (DataInputStream cabecalho = new DataInputStream(new FileInputStream(arquivo))) {
+            base = cabecalho.readLong();
+        }
+        long tamanhoArquivo = arquivo.length();
+        long fimArquivo = base + tamanhoArquivo - TAMANHO_CABECALHO_ARQUIVO;
+
+        // Uma posição inválida reenvia todo o arquivo
+        confirmado = posicao >= base && posicao <= fimArquivo ? posicao : base;
+
+        long posicaoValida = confirmado;
+        if (fimArquivo > confirmado) {
+            try (FileInputStream arquivoEntrada = new FileInputStream(arquivo)) {
+                arquivoEntrada.getChannel().position(confirmado - base + TAMANHO_CABECALHO_ARQUIVO);
+                DataInputStream entrada = new DataInputStream(new BufferedInputStream(arquivoEntrada, 1 << 16));
+                CRC32 verificacao = new CRC32();
+                byte[] dados = new byte[1024];
+                while (true) {
+                    int tamanho;
+                    int crcGravado;
+                    try {
+                        tamanho = entrada.readInt();
+                        crcGravado = entrada.readInt();
+                        if (tamanho < 4 || tamanho > fimArquivo - posicaoValida - TAMANHO_CABECALHO_ENTRADA) {
+                            break;
+                        }
+                        if (tamanho > dados.length) {
+                            dados = new byte[tamanho];
+                        }
+                        entrada.readFully(dados, 0, tamanho);
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    verificacao.reset();
+                    verificacao.update(dados, 0, tamanho);
+                    if ((int) verificacao.getValue() != crcGravado) {
+                        break;
+                    }
+                    posicaoValida += TAMANHO_CABECALHO_ENTRADA + tamanho;
+                    ++recuperadas;
+                }
+            }
+        }
+
+        if (posicaoValida < fimArquivo) {
+            System.out.println("Entrada incompleta descartada no final de " + arquivo);
+            try (RandomAccessFile acesso = new RandomAccessFile(arquivo, "rw")) {
+                acesso.setLength(posicaoValida - base + TAMANHO_CABECALHO_ARQUIVO);
+            }
+        }
+        fimEscrito = posicaoValida;
+        fimSincronizado = posicaoValida;
+        return recuperadas;
+    }
+
+    private static int lerInt(byte[] bloco, int posicao) {
+        return (bloco[posicao] & 0xFF) << 24 | (bloco[posicao + 1] & 0xFF) << 16
+                | (bloco[posicao + 2] & 0xFF) << 8 | (bloco[posicao + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,311 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Envelope criptográfico de uma sessão de telemetria. A chave AES da sessão é criptografada com RSA uma única vez
+ * e enviada junto com a sessão; cada registro é então criptografado com AES-GCM usando um nonce próprio e um número
+ * de sequência, de modo que escrever ou ler um registro custa apenas uma operação simétrica.
+ *
+ * O nonce de 12 bytes é formado por um prefixo aleatório de 4 bytes da sessão seguido dos 8 bytes da sequência,
+ * o que garante que ele nunca se repete para a mesma chave. A sequência também é autenticada como dado adicional,
+ * impedindo que um registro seja reapresentado em outra posição.
+ *
+ * O envelope também guarda os cabeçalhos da sessão (CabecalhoSessao), indexados pelo número de sequência com que
+ * foram enviados: no escritor, para saber quando um novo cabeçalho precisa ser enviado; no leitor, para resolver
+ * os registros que referenciam um cabeçalho já lido.
+ */
+public class EnvelopeSessao {
+    public static final int TAMANHO_NONCE = 12; // Tamanho do nonce do AES-GCM em bytes
+    public static final int TAMANHO_TAG = 128; // Tamanho da tag de autenticação do AES-GCM em bits
+    private static final int TAMANHO_CHAVE_AES = 128; // Tamanho da chave AES da sessão em bits
+    private static final SecureRandom ALEATORIO = new SecureRandom();
+
+    private final String idSessao;
+    private final SecretKey chaveSessao;
+    private final byte[] chaveCriptografada;
+    private final byte[] prefixoNonce;
+    private final KeyPair parDeChaves;
+    private final AtomicLong sequencia = new AtomicLong();
+    private final AtomicBoolean publicada = new AtomicBoolean();
+    private final Map<Long, CabecalhoSessao> cabecalhos = new ConcurrentHashMap<>();
+    private CabecalhoSessao cabecalhoAtual;
+    private long sequenciaCabecalhoAtual = -1;
+
+    private EnvelopeSessao(String idSessao, SecretKey chaveSessao, byte[] chaveCriptografada, byte[] prefixoNonce,
+                           KeyPair parDeChaves) {
+        this.idSessao = idSessao;
+        this.chaveSessao = chaveSessao;
+        this.chaveCriptografada = chaveCriptografada;
+        this.prefixoNonce = prefixoNonce;
+        this.parDeChaves = parDeChaves;
+    }
+
+    /**
+     * Cria uma nova sessão para o escritor: gera a chave AES da sessão e a criptografa uma única vez com a chave
+     * pública RSA.
+     *
+     * @param numeroIdentificacao o número de identificação do serviço de transporte.
+     * @param publicKey           a chave pública RSA usada para criptografar a chave da sessão.
+     * @return o envelope da nova sessão.
+     * @throws GeneralSecurityException se ocorrer algum erro durante a geração ou a criptografia da chave.
+     */
+    public static EnvelopeSessao criar(String numeroIdentificacao, PublicKey publicKey) throws GeneralSecurityException {
+        return criar(numeroIdentificacao, publicKey, null);
+    }
+
+    /**
+     * Cria uma nova sessão para o escritor com a chave AES criptografada pela chave pública do par de chaves,
+     * que fica guardado no envelope. Assim a chave privada enviada com a sessão é sempre a do par que criptografou
+     * a chave da sessão, mesmo que o par de chaves do serviço de transporte seja trocado na rotação.
+     *
+     * @param numeroIdentificacao o número de identificação do serviço de transporte.
+     * @param parDeChaves         o par de chaves RSA da sessão.
+     * @return o envelope da nova sessão.
+     * @throws GeneralSecurityException se ocorrer algum erro durante a geração ou a criptografia da chave.
+     */
+    public static EnvelopeSessao criar(String numeroIdentificacao, KeyPair parDeChaves) throws GeneralSecurityException {
+        return criar(numeroIdentificacao, parDeChaves.getPublic(), parDeChaves);
+    }
+
+    private static EnvelopeSessao criar(String numeroIdentificacao, PublicKey publicKey, KeyPair parDeChaves) throws GeneralSecurityException {
+        KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+        keyGenerator.init(TAMANHO_CHAVE_AES);
+        SecretKey chaveSessao = keyGenerator.generateKey();
+
+        byte[] chaveCriptografada = CriptografiaTelemetria.criptografiaComRSA(chaveSessao.getEncoded(), publicKey);
+
+        byte[] prefixoNonce = new byte[TAMANHO_NONCE - 8];
+        ALEATORIO.nextBytes(prefixoNonce);
+        String idSessao = FaixasTempo.escaparChave(numeroIdentificacao) + "_" + Long.toHexString(ALEATORIO.nextLong() >>> 1);
+        return new EnvelopeSessao(idSessao, chaveSessao, chaveCriptografada, prefixoNonce, parDeChaves);
+    }
+
+    /**
+     * Abre uma sessão existente para o leitor, descriptografando a chave AES da sessão com a chave privada RSA.
+     * Deve ser feito uma única vez por sessão; o envelope resultante pode ser mantido em cache.
+     *
+     * @param idSessao           o identificador da sessão.
+     * @param chaveCriptografada a chave AES da sessão criptografada com RSA.
+     * @param privateKey         a chave privada RSA.
+     * @return o envelope da sessão, capaz de descriptografar os registros.
+     * @throws GeneralSecurityException se ocorrer algum erro durante a descriptografia da chave.
+     */
+    public static EnvelopeSessao abrir(String idSessao, byte[] chaveCriptografada, PrivateKey privateKey) throws GeneralSecurityException {
+        byte[] chaveSessao = CriptografiaTelemetria.descriptografiaComRSA(chaveCriptografada, privateKey);
+        return new EnvelopeSessao(idSessao, new SecretKeySpec(chaveSessao, "AES"), chaveCriptografada, null, null);
+    }
+
+    /**
+     * Obtém o identificador da sessão, usado como chave do nó da sessão no banco de dados.
+     */
+    public String getIdSessao() {
+        return idSessao;
+    }
+
+    /**
+     * Obtém a chave AES da sessão criptografada com RSA, para ser enviada uma única vez.
+     */
+    public byte[] getChaveCriptografada() {
+        return chaveCriptografada.clone();
+    }
+
+    /**
+     * Obtém o par de chaves RSA cuja chave pública criptografou a chave da sessão.
+     *
+     * @return o par de chaves, ou null se o envelope foi criado apenas com a chave pública ou aberto para leitura.
+     */
+    public KeyPair getParDeChaves() {
+        return parDeChaves;
+    }
+
+    /**
+     * Marca a chave da sessão como enviada.
+     *
+     * @return true apenas na primeira chamada, indicando que a chave ainda precisa ser enviada.
+     */
+    public boolean marcarPublicada() {
+        return publicada.compareAndSet(false, true);
+    }
+
+    /**
+     * Desfaz marcarPublicada() quando a escrita com a chave da sessão falhou, para que a chave siga na próxima escrita.
+     */
+    public void marcarNaoPublicada() {
+        publicada.set(false);
+    }
+
+    /**
+     * Reserva o próximo número de sequência da sessão.
+     */
+    public long proximaSequencia() {
+        return sequencia.getAndIncrement();
+    }
+
+    /**
+     * Verifica se o registro pode referenciar o cabeçalho atual da sessão; caso contrário (primeiro registro
+     * ou dados do serviço de transporte alterados), reserva uma sequência para um novo cabeçalho, que passa a ser
+     * o atual e deve ser enviado antes ou junto com o registro.
+     *
+     * @param registro o registro com as métricas do veículo e os dados do serviço de transporte.
+     * @return true se um novo cabeçalho precisa ser enviado; a sua sequência é obtida com getSequenciaCabecalho().
+     */
+    public synchronized boolean atualizarCabecalho(RegistroTelemetria registro) {
+        if (cabecalhoAtual != null && cabecalhoAtual.corresponde(registro)) {
+            return false;
+        }
+        cabecalhoAtual = CabecalhoSessao.de(registro);
+        sequenciaCabecalhoAtual = proximaSequencia();
+        cabecalhos.put(sequenciaCabecalhoAtual, cabecalhoAtual);
+        return true;
+    }
+
+    /**
+     * Obtém a sequência do cabeçalho atual da sessão, se ele corresponder aos dados do serviço de transporte
+     * do registro.
+     *
+     * @param registro o registro com as métricas do veículo e os dados do serviço de transporte.
+     * @return a sequência do cabeçalho, ou -1 se não houver um cabeçalho correspondente.
+     */
+    public synchronized long getSequenciaCabecalho(RegistroTelemetria registro) {
+        return cabecalhoAtual != null && cabecalhoAtual.corresponde(registro) ? sequenciaCabecalhoAtual : -1;
+    }
+
+    /**
+     * Descarta o cabeçalho atual quando a escrita que o levava falhou, para que o próximo registro envie um novo
+     * cabeçalho em vez de referenciar um que não chegou ao destino.
+     *
+     * @param sequenciaCabecalho a sequência do cabeçalho enviado na escrita que falhou.
+     */
+    public synchronized void descartarCabecalho(long sequenciaCabecalho) {
+        if (sequenciaCabecalhoAtual == sequenciaCabecalho) {
+            cabecalhoAtual = null;
+        }
+    }
+
+    /**
+     * Registra um cabeçalho lido da sessão, para resolver os registros que o referenciam.
+     *
+     * @param sequencia o número de sequência do cabeçalho.
+     * @param cabecalho o cabeçalho.
+     */
+    public void registrarCabecalho(long sequencia, CabecalhoSessao cabecalho) {
+        cabecalhos.put(sequencia, cabecalho);
+    }
+
+    /**
+     * Obtém os cabeçalhos conhecidos da sessão, indexados pelo número de sequência.
+     */
+    public Map<Long, CabecalhoSessao> getCabecalhos() {
+        return cabecalhos;
+    }
+
+    /**
+     * Criptografa um registro da sessão com AES-GCM.
+     *
+     * @param sequencia o número de sequência do registro, obtido com proximaSequencia().
+     * @param dados     os dados do registro.
+     * @return o nonce seguido dos dados criptografados e da tag de autenticação.
+     * @throws GeneralSecurityException se ocorrer algum erro durante a criptografia.
+     */
+    public byte[] criptografar(long sequencia, byte[] dados) throws GeneralSecurityException {
+        if (prefixoNonce == null) {
+            throw new IllegalStateException("Sessão aberta apenas para leitura.");
+        }
+        byte[] nonce = ByteBuffer.allocate(TAMANHO_NONCE).put(prefixoNonce).putLong(sequencia).array();
+
+        Cipher cipher = CriptografiaTelemetria.aesGcm();
+        cipher.init(Cipher.ENCRYPT_MODE, chaveSessao, new GCMParameterSpec(TAMANHO_TAG, nonce));
+        cipher.updateAAD(dadosAdicionais(sequencia));
+
+        byte[] resultado = new byte[TAMANHO_NONCE + cipher.getOutputSize(dados.length)];
+        System.arraycopy(nonce, 0, resultado, 0, TAMANHO_NONCE);
+        cipher.doFinal(dados, 0, dados.length, resultado, TAMANHO_NONCE);
+        return resultado;
+    }
+
+    /**
+     * Descriptografa um registro da sessão, verificando a tag de autenticação e o número de sequência.
+     *
+     * @param sequencia           o número de sequência do registro.
+     * @param dadosCriptografados o nonce seguido dos dados criptografados e da tag de autenticação.
+     * @return os dados do registro.
+     * @throws GeneralSecurityException se os dados forem inválidos ou não corresponderem à sequência.
+     */
+    public byte[] descriptografar(long sequencia, byte[] dadosCriptografados) throws GeneralSecurityException {
+        Cipher cipher = CriptografiaTelemetria.aesGcm();
+        cipher.init(Cipher.DECRYPT_MODE, chaveSessao, new GCMParameterSpec(TAMANHO_TAG, dadosCriptografados, 0, TAMANHO_NONCE));
+        cipher.updateAAD(dadosAdicionais(sequencia));
+        return cipher.doFinal(dadosCriptografados, TAMANHO_NONCE, dadosCriptografados.length - TAMANHO_NONCE);
+    }
+
+    /**
+     * Criptografa um registro da sessão com AES-GCM diretamente entre buffers, sem criar arrays intermediários.
+     * O nonce é escrito no início do destino e os seus 8 bytes finais (a sequência) são reaproveitados como dado
+     * adicional autenticado.
+     *
+     * @param sequencia o número de sequência do registro, obtido com proximaSequencia().
+     * @param dados     os dados do registro, entre a posição e o limite do buffer.
+     * @param destino   o buffer que recebe o nonce, os dados criptografados e a tag; deve ser um buffer em heap.
+     * @return o número de bytes escritos no destino.
+     * @throws GeneralSecurityException se ocorrer algum erro durante a criptografia.
+     */
+    public int criptografar(long sequencia, ByteBuffer dados, ByteBuffer destino) throws GeneralSecurityException {
+        if (prefixoNonce == null) {
+            throw new IllegalStateException("Sessão aberta apenas para leitura.");
+        }
+        int inicio = destino.position();
+        destino.put(prefixoNonce).putLong(sequencia);
+        byte[] nonce = destino.array();
+        int offsetNonce = destino.arrayOffset() + inicio;
+
+        Cipher cipher = CriptografiaTelemetria.aesGcm();
+        cipher.init(Cipher.ENCRYPT_MODE, chaveSessao, new GCMParameterSpec(TAMANHO_TAG, nonce, offsetNonce, TAMANHO_NONCE));
+        cipher.updateAAD(nonce, offsetNonce + prefixoNonce.length, 8);
+        return TAMANHO_NONCE + cipher.doFinal(dados, destino);
+    }
+
+    /**
+     * Descriptografa um registro da sessão diretamente entre buffers, verificando a tag de autenticação
+     * e o número de sequência.
+     *
+     * @param sequencia           o número de sequência do registro.
+     * @param dadosCriptografados o nonce seguido dos dados criptografados e da tag, em um buffer em heap.
+     * @param destino             o buffer que recebe os dados do registro.
+     * @return o número de bytes escritos no destino.
+     * @throws GeneralSecurityException se os dados forem inválidos ou não corresponderem à sequência.
+     */
+    public int descriptografar(long sequencia, ByteBuffer dadosCriptografados, ByteBuffer destino) throws GeneralSecurityException {
+        byte[] nonce = dadosCriptografados.array();
+        int offsetNonce = dadosCriptografados.arrayOffset() + dadosCriptografados.position();
+        if (dadosCriptografados.getLong(dadosCriptografados.position() + TAMANHO_NONCE - 8) != sequencia) {
+            throw new AEADBadTagException("Número de sequência não corresponde ao registro.");
+        }
+
+        Cipher cipher = CriptografiaTelemetria.aesGcm();
+        cipher.init(Cipher.DECRYPT_MODE, chaveSessao, new GCMParameterSpec(TAMANHO_TAG, nonce, offsetNonce, TAMANHO_NONCE));
+        cipher.updateAAD(nonce, offsetNonce + TAMANHO_NONCE - 8, 8);
+        dadosCriptografados.position(dadosCriptografados.position() + TAMANHO_NONCE);
+        return cipher.doFinal(dadosCriptografados, destino);
+    }
+
+    private static byte[] dadosAdicionais(long sequencia) {
+        return ByteBuffer.allocate(8).putLong(sequencia).array();
+    }
+}
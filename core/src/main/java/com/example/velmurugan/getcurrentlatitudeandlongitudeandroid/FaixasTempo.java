@@ -0,0 +1,95 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Organização dos registros de telemetria por serviço de transporte e faixa de tempo:
+ * "servicos/{numeroIdentificacao}/{faixa}/{idSessao}/{seq}". Cada faixa é identificada pela data e hora UTC do seu
+ * início, no formato "yyyy-MM-dd'T'HH:mm", de largura fixa, para que a ordem das chaves seja a ordem cronológica;
+ * como as chaves não são números, o Firebase também as ordena como texto. Uma consulta por janela de tempo lê apenas
+ * as faixas da janela, com uma única leitura por intervalo de chaves (TelemetrySource.lerIntervalo()).
+ *
+ * O número de sequência é o da sessão em que o registro ou lote foi criptografado, que fica no caminho para que
+ * sessões diferentes (por exemplo, após a rotação das chaves) não se sobreponham na mesma faixa. A chave e os
+ * cabeçalhos da sessão continuam em "sessoesCriptografadas/{idSessao}".
+ */
+public final class FaixasTempo {
+    public static final String CAMINHO_SERVICOS = "servicos";
+
+    private static final ThreadLocal<SimpleDateFormat> FORMATO = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            SimpleDateFormat formato = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm", Locale.US);
+            formato.setTimeZone(TimeZone.getTimeZone("UTC"));
+            return formato;
+        }
+    };
+
+    private FaixasTempo() {
+    }
+
+    /**
+     * Obtém a chave da faixa de tempo que contém o instante.
+     *
+     * @param instante     o instante, em milissegundos desde a época.
+     * @param duracaoFaixa a duração das faixas, em milissegundos (múltiplo de um minuto).
+     * @return a data e hora UTC do início da faixa.
+     */
+    public static String chaveFaixa(long instante, long duracaoFaixa) {
+        if (duracaoFaixa < 60000 || duracaoFaixa % 60000 != 0) {
+            throw new IllegalArgumentException("A duração das faixas deve ser um múltiplo positivo de um minuto.");
+        }
+        long inicio = instante - ((instante % duracaoFaixa) + duracaoFaixa) % duracaoFaixa;
+        return FORMATO.get().format(new Date(inicio));
+    }
+
+    /**
+     * Obtém o caminho com as faixas de tempo do serviço de transporte.
+     *
+     * @param numeroIdentificacao o número de identificação do serviço de transporte.
+     * @return o caminho relativo à raiz.
+     */
+    public static String caminhoServico(String numeroIdentificacao) {
+        return CAMINHO_SERVICOS + "/" + escaparChave(numeroIdentificacao);
+    }
+
+    /**
+     * Escapa um texto para uso como chave do Firebase, que não aceita ".", "#", "$", "[", "]", "/" nem caracteres
+     * de controle. Esses caracteres e o próprio "%" são trocados por "%" seguido do código em hexadecimal, como na
+     * codificação de URLs, então textos diferentes nunca resultam na mesma chave.
+     *
+     * @param texto o texto, por exemplo o número de identificação do serviço de transporte.
+     * @return a chave escapada, ou o próprio texto se nenhum caractere precisar ser escapado.
+     */
+    public static String escaparChave(String texto) {
+        StringBuilder chave = null;
+        for (int i = 0; i < texto.length(); ++i) {
+            char c = texto.charAt(i);
+            if (c < 0x20 || c == 0x7f || ".#$[]/%".indexOf(c) >= 0) {
+                if (chave == null) {
+                    chave = new StringBuilder(texto.length() + 8).append(texto, 0, i);
+                }
+                chave.append(String.format(Locale.US, "%%%02X", (int) c));
+            } else if (chave != null) {
+                chave.append(c);
+            }
+        }
+        return chave == null ? texto : chave.toString();
+    }
+
+    /**
+     * Obtém o caminho de um registro ou lote.
+     *
+     * @param numeroIdentificacao o número de identificação do serviço de transporte.
+     * @param chaveFaixa          a chave da faixa de tempo (veja chaveFaixa()).
+     * @param idSessao            o identificador da sessão em que o registro foi criptografado.
+     * @param sequencia           o número de sequência do registro ou lote na sessão.
+     * @return o caminho relativo à raiz.
+     */
+    public static String caminhoRegistro(String numeroIdentificacao, String chaveFaixa, String idSessao, long sequencia) {
+        return caminhoServico(numeroIdentificacao) + "/" + chaveFaixa + "/" + idSessao + "/" + sequencia;
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementação assíncrona de TelemetrySink: os registros são colocados em uma fila limitada e enviados ao destino
+ * por uma única thread escritora de longa duração. Quem produz os registros (o Veiculo, chamado a partir da thread
+ * de interface) apenas enfileira o registro, sem criar threads nem esperar pela rede ou pela criptografia.
+ *
+ * Quando a fila está cheia, o comportamento é definido pela PoliticaExcesso escolhida.
+ */
+public class FilaTelemetria implements TelemetrySink {
+
+    /**
+     * Política aplicada quando um registro chega com a fila cheia.
+     */
+    public enum PoliticaExcesso {
+        /** Bloqueia quem produz até haver espaço na fila; nenhum registro é perdido. */
+        BLOQUEAR,
+        /** Descarta o registro mais antigo da fila para dar lugar ao novo. */
+        DESCARTAR_MAIS_ANTIGO,
+        /** Substitui o último registro enfileirado pelo novo, mantendo sempre o estado mais recente. */
+        MANTER_MAIS_RECENTE
+    }
+
+    private final TelemetrySink destino;
+    private final int capacidade;
+    private final PoliticaExcesso politica;
+    private final ArrayDeque<RegistroTelemetria> fila;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition naoVazia = lock.newCondition();
+    private final Condition naoCheia = lock.newCondition();
+    private final Thread escritor;
+    private boolean encerrada;
+    private long descartados;
+
+    /**
+     * Construtor da classe FilaTelemetria. Inicia a thread escritora.
+     *
+     * @param destino    o TelemetrySink que efetivamente envia os registros (por exemplo, TelemetriaEmLote).
+     * @param capacidade o número máximo de registros aguardando envio.
+     * @param politica   a política aplicada quando a fila está cheia.
+     */
+    public FilaTelemetria(TelemetrySink destino, int capacidade, PoliticaExcesso politica) {
+        if (capacidade < 1) {
+            throw new IllegalArgumentException("A capacidade da fila deve ser positiva.");
+        }
+        this.destino = destino;
+        this.capacidade = capacidade;
+        this.politica = politica;
+        this.fila = new ArrayDeque<>(capacidade);
+        this.escritor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                escrever();
+            }
+        }, "FilaTelemetria");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    /**
+     * Enfileira o registro para envio pela thread escritora.
+     *
+     * @param registro o registro com as métricas do veículo e os dados do serviço de transporte.
+     */
+    @Override
+    public void enviar(RegistroTelemetria registro) {
+        lock.lock();
+        try {
+            if (encerrada) {
+                System.out.println("Fila de telemetria encerrada, registro descartado.");
+                ++descartados;
+                return;
+            }
+            if (fila.size() == capacidade) {
+                switch (politica) {
+                    case BLOQUEAR:
+                        while (fila.size() == capacidade && !encerrada) {
+                            naoCheia.awaitUninterruptibly();
+                        }
+                        if (encerrada) {
+                            ++descartados;
+                            return;
+                        }
+                        break;
+                    case DESCARTAR_MAIS_ANTIGO:
+                        fila.pollFirst();
+                        ++descartados;
+                        break;
+                    case MANTER_MAIS_RECENTE:
+                        fila.pollLast();
+                        ++descartados;
+                        break;
+                }
+            }
+            fila.addLast(registro);
+            naoVazia.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Obtém o número de registros aguardando envio.
+     */
+    public int getPendentes() {
+        lock.lock();
+        try {
+            return fila.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Obtém o número de registros descartados pela política de excesso ou após o encerramento da fila.
+     */
+    public long getDescartados() {
+        lock.lock();
+        try {
+            return descartados;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Encerra a fila: novos registros são descartados e a thread escritora termina após enviar os pendentes.
+     *
+     * @param tempoMaximo o tempo máximo de espera pelo envio dos registros pendentes, em milissegundos.
+     * @return true se todos os registros pendentes foram enviados dentro do tempo.
+     */
+    public boolean encerrar(long tempoMaximo) {
+        lock.lock();
+        try {
+            encerrada = true;
+            naoVazia.signalAll();
+            naoCheia.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            TimeUnit.MILLISECONDS.timedJoin(escritor, tempoMaximo);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !escritor.isAlive();
+    }
+
+    private void escrever() {
+        while (true) {
+            RegistroTelemetria registro;
+            lock.lock();
+            try {
+                while (fila.isEmpty() && !encerrada) {
+                    naoVazia.awaitUninterruptibly();
+                }
+                if (fila.isEmpty()) {
+                    return;
+                }
+                registro = fila.pollFirst();
+                naoCheia.signal();
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                destino.enviar(registro);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import org.ejml.data.FMatrixRMaj;
+import org.ejml.dense.row.CommonOps_FDRM;
+import org.ejml.dense.row.factory.LinearSolverFactory_FDRM;
+import org.ejml.interfaces.linsol.LinearSolverDense;
+
+/**
+ * Variante em precisão simples da classe Reconciliation, baseada no ejml-fdense.
+ * Oferece os mesmos construtores e usa metade da memória por elemento; é suficiente para as recomendações
+ * de velocidade em rotas curtas. Os sistemas são resolvidos por decomposição (Cholesky ou LU) em vez da inversa explícita.
+ */
+public class FloatReconciliation {
+    // Em precisão simples os pivôs de um sistema singular param perto de 1e-7 em vez de zero
+    private static final double SINGULAR_TOLERANCE = 1e-6;
+
+    private float[] reconciledFlow;
+
+    /**
+     * Reconcilia as medições sujeitas às restrições lineares A·y = 0.
+     *
+     * @param _rawMeasurement as medições brutas.
+     * @param _standardDeviation as variâncias de cada medição.
+     * @param _incidenceMatrix a matriz de incidência das restrições.
+     */
+    public FloatReconciliation(float[] _rawMeasurement, float[] _standardDeviation, float[][] _incidenceMatrix) {
+        if (_rawMeasurement != null && _standardDeviation != null && _incidenceMatrix != null) {
+            if (_rawMeasurement.length == _standardDeviation.length && _standardDeviation.length == _incidenceMatrix[0].length) {
+                int numConstraints = _incidenceMatrix.length;
+                int numMeasurements = _rawMeasurement.length;
+                FMatrixRMaj incidenceMatrix = new FMatrixRMaj(_incidenceMatrix);
+                FMatrixRMaj rawMeasurement = new FMatrixRMaj(numMeasurements, 1, true, _rawMeasurement);
+
+                // V·Aᵀ, aproveitando que V é diagonal
+                FMatrixRMaj weightedTranspose = new FMatrixRMaj(numMeasurements, numConstraints);
+                for (int i = 0; i < numMeasurements; ++i) {
+                    for (int k = 0; k < numConstraints; ++k) {
+                        weightedTranspose.unsafe_set(i, k, _standardDeviation[i] * _incidenceMatrix[k][i]);
+                    }
+                }
+
+                FMatrixRMaj system = CommonOps_FDRM.mult(incidenceMatrix, weightedTranspose, null);
+                FMatrixRMaj residual = CommonOps_FDRM.mult(incidenceMatrix, rawMeasurement, null);
+                FMatrixRMaj multipliers = new FMatrixRMaj(numConstraints, 1);
+
+                LinearSolverDense<FMatrixRMaj> solver = LinearSolverFactory_FDRM.chol(numConstraints);
+                if (!solver.setA(system.copy())) {
+                    solver = LinearSolverFactory_FDRM.lu(numConstraints);
+                    if (!solver.setA(system) || solver.quality() <= SINGULAR_TOLERANCE) {
+                        System.out.println("the system A·V·Aᵀ is singular.");
+                        return;
+                    }
+                }
+                solver.solve(residual, multipliers);
+
+                FMatrixRMaj adjustment = CommonOps_FDRM.mult(weightedTranspose, multipliers, null);
+                this.reconciledFlow = new float[numMeasurements];
+                for (int i = 0; i < numMeasurements; ++i) {
+                    this.reconciledFlow[i] = _rawMeasurement[i] - adjustment.data[i];
+                }
+            } else {
+                System.out.println("the rawMeasurement and/or standardDeviation and/or incidenceMatrix have inconsistent data/size.");
+            }
+        } else {
+            System.out.println("the rawMeasurement and/or standardDeviation and/or incidenceMatrix have null data.");
+        }
+    }
+
+    /**
+     * Reconcilia as medições ponderadas pelo desvio relativo, resolvendo o sistema aumentado
+     * com o multiplicador de Lagrange da restrição na última posição.
+     *
+     * @param _rawMeasurement as medições brutas.
+     * @param _standardDeviation o desvio relativo de cada medição.
+     * @param _incidenceMatrix os coeficientes da restrição de balanço.
+     */
+    public FloatReconciliation(float[] _rawMeasurement, float[] _standardDeviation, float[] _incidenceMatrix) {
+        if (_rawMeasurement != null && _standardDeviation != null && _incidenceMatrix != null) {
+            if (_rawMeasurement.length == _standardDeviation.length && _standardDeviation.length == _incidenceMatrix.length) {
+                int size = _rawMeasurement.length + 1;
+                FMatrixRMaj diagonalMatrix = new FMatrixRMaj(size, size);
+                FMatrixRMaj weightsArray = new FMatrixRMaj(size, 1);
+
+                for (int i = 0; i < _rawMeasurement.length; ++i) {
+                    float auxMP = _rawMeasurement[i] * _standardDeviation[i];
+                    auxMP *= auxMP;
+                    diagonalMatrix.unsafe_set(i, i, 2.0f / auxMP);
+                    diagonalMatrix.unsafe_set(i, size - 1, _incidenceMatrix[i]);
+                    diagonalMatrix.unsafe_set(size - 1, i, _incidenceMatrix[i]);
+                    weightsArray.data[i] = 2.0f * _rawMeasurement[i] / auxMP;
+                }
+
+                // O sistema aumentado não é definido positivo, então é resolvido por LU
+                LinearSolverDense<FMatrixRMaj> solver = LinearSolverFactory_FDRM.lu(size);
+                if (!solver.setA(diagonalMatrix)) {
+                    System.out.println("the diagonalMatrix is singular.");
+                    return;
+                }
+                FMatrixRMaj solution = new FMatrixRMaj(size, 1);
+                solver.solve(weightsArray, solution);
+                this.reconciledFlow = solution.data;
+            } else {
+                System.out.println("the rawMeasurement and/or standardDeviation and/or incidenceMatrix have inconsistent data/size.");
+            }
+        } else {
+            System.out.println("the rawMeasurement and/or standardDeviation and/or incidenceMatrix have null data.");
+        }
+    }
+
+    public float[] getReconciledFlow() {
+        return this.reconciledFlow;
+    }
+}
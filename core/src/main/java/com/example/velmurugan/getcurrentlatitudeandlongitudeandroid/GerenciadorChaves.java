@@ -0,0 +1,226 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Gerenciador dos pares de chaves RSA usados na criptografia da telemetria.
+ * Gera um único par de chaves por serviço de transporte (ou por período de rotação, se configurado),
+ * em uma thread de segundo plano e com antecedência, e entrega as chaves já prontas a cada registro.
+ * Assim a geração de 2048 bits, a operação mais cara da atualização, deixa de acontecer a cada localização.
+ * Também mantém o envelope de sessão (chave AES já criptografada com RSA) de cada par de chaves.
+ */
+public class GerenciadorChaves {
+    private static final int TAMANHO_CHAVE = 2048; // Tamanho da chave (2048 bits)
+
+    private final long periodoRotacao;
+    private final Map<Periodo, Future<KeyPair>> paresDeChaves = new ConcurrentHashMap<>();
+    private final Map<Periodo, EnvelopeSessao> envelopes = new ConcurrentHashMap<>();
+    private final ExecutorService geradorChaves;
+
+    /**
+     * Construtor da classe GerenciadorChaves com um par de chaves por serviço de transporte, sem rotação.
+     */
+    public GerenciadorChaves() {
+        this(0);
+    }
+
+    /**
+     * Construtor da classe GerenciadorChaves.
+     *
+     * @param periodoRotacao o período de rotação das chaves em milissegundos, ou 0 para manter
+     *                       um único par de chaves durante todo o serviço de transporte.
+     */
+    public GerenciadorChaves(long periodoRotacao) {
+        this.periodoRotacao = periodoRotacao;
+        this.geradorChaves = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "GerenciadorChaves");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Agenda em segundo plano a geração do par de chaves do serviço de transporte, sem bloquear quem chama.
+     *
+     * @param numeroIdentificacao o número de identificação do serviço de transporte.
+     */
+    public void prepararParDeChaves(String numeroIdentificacao) {
+        agendar(numeroIdentificacao, periodoAtual());
+    }
+
+    /**
+     * Registra um par de chaves já existente para o período atual do serviço de transporte, por exemplo um par
+     * carregado do armazenamento local ou compartilhado entre veículos simulados em testes de carga.
+     *
+     * @param numeroIdentificacao o número de identificação do serviço de transporte.
+     * @param parDeChaves         o par de chaves RSA (pública e privada).
+     */
+    public void registrarParDeChaves(String numeroIdentificacao, final KeyPair parDeChaves) {
+        FutureTask<KeyPair> pronto = new FutureTask<>(() -> parDeChaves);
+        pronto.run();
+        paresDeChaves.put(new Periodo(numeroIdentificacao, periodoAtual()), pronto);
+    }
+
+    /**
+     * Obtém o par de chaves do serviço de transporte para o período atual. Se ele ainda não estiver pronto,
+     * aguarda a geração; o par do período seguinte é agendado com antecedência.
+     *
+     * @param numeroIdentificacao o número de identificação do serviço de transporte.
+     * @return o par de chaves RSA (pública e privada) em cache.
+     * @throws NoSuchAlgorithmException se o algoritmo RSA não estiver disponível.
+     * @throws IllegalStateException se a thread for interrompida aguardando a geração; o estado de interrupção é mantido.
+     */
+    public KeyPair obterParDeChaves(String numeroIdentificacao) throws NoSuchAlgorithmException {
+        return obterParDeChaves(numeroIdentificacao, periodoAtual());
+    }
+
+    /**
+     * Obtém o envelope da sessão atual do serviço de transporte. A chave AES da sessão é gerada e criptografada
+     * com a chave pública RSA apenas na primeira chamada de cada par de chaves. O envelope guarda o par de chaves
+     * do mesmo período (veja EnvelopeSessao.getParDeChaves()), de modo que a chave privada enviada com a sessão
+     * corresponde sempre à que criptografou a sua chave AES, mesmo na virada de um período de rotação.
+     *
+     * @param numeroIdentificacao o número de identificação do serviço de transporte.
+     * @return o envelope da sessão em cache.
+     * @throws GeneralSecurityException se ocorrer algum erro durante a geração ou a criptografia da chave da sessão.
+     */
+    public EnvelopeSessao obterEnvelopeSessao(String numeroIdentificacao) throws GeneralSecurityException {
+        long periodo = periodoAtual();
+        KeyPair parDeChaves = obterParDeChaves(numeroIdentificacao, periodo);
+        Periodo chave = new Periodo(numeroIdentificacao, periodo);
+        synchronized (envelopes) {
+            EnvelopeSessao envelope = envelopes.get(chave);
+            if (envelope == null) {
+                envelope = EnvelopeSessao.criar(numeroIdentificacao, parDeChaves);
+                envelopes.put(chave, envelope);
+            }
+            return envelope;
+        }
+    }
+
+    /**
+     * Descarta as chaves do serviço de transporte, por exemplo ao final do percurso.
+     *
+     * @param numeroIdentificacao o número de identificação do serviço de transporte.
+     */
+    public void descartar(String numeroIdentificacao) {
+        descartar(paresDeChaves.keySet().iterator(), numeroIdentificacao, Long.MAX_VALUE);
+        descartar(envelopes.keySet().iterator(), numeroIdentificacao, Long.MAX_VALUE);
+    }
+
+    /**
+     * Encerra a thread de geração de chaves.
+     */
+    public void encerrar() {
+        geradorChaves.shutdownNow();
+    }
+
+    /**
+     * Método para gerar um par de chaves RSA.
+     *
+     * @return Um par de chaves RSA (pública e privada).
+     */
+    public static KeyPair gerarParDeChavesRSA() throws NoSuchAlgorithmException {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(TAMANHO_CHAVE);
+        return keyPairGenerator.generateKeyPair();
+    }
+
+    private KeyPair obterParDeChaves(String numeroIdentificacao, long periodo) throws NoSuchAlgorithmException {
+        Future<KeyPair> parDeChaves = agendar(numeroIdentificacao, periodo);
+        if (periodoRotacao > 0) {
+            agendar(numeroIdentificacao, periodo + 1);
+            descartarPeriodosAnteriores(numeroIdentificacao, periodo);
+        }
+
+        try {
+            return parDeChaves.get();
+        } catch (InterruptedException e) {
+            // O par continua sendo gerado na thread de geração e fica em cache para a próxima chamada
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido aguardando o par de chaves de " + numeroIdentificacao + ".", e);
+        } catch (ExecutionException e) {
+            paresDeChaves.remove(new Periodo(numeroIdentificacao, periodo), parDeChaves);
+            if (e.getCause() instanceof NoSuchAlgorithmException) {
+                throw (NoSuchAlgorithmException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private Future<KeyPair> agendar(String numeroIdentificacao, long periodo) {
+        Periodo chave = new Periodo(numeroIdentificacao, periodo);
+        Future<KeyPair> parDeChaves = paresDeChaves.get(chave);
+        if (parDeChaves == null) {
+            synchronized (paresDeChaves) {
+                parDeChaves = paresDeChaves.get(chave);
+                if (parDeChaves == null) {
+                    parDeChaves = geradorChaves.submit(GerenciadorChaves::gerarParDeChavesRSA);
+                    paresDeChaves.put(chave, parDeChaves);
+                }
+            }
+        }
+        return parDeChaves;
+    }
+
+    private void descartarPeriodosAnteriores(String numeroIdentificacao, long periodoAtual) {
+        descartar(paresDeChaves.keySet().iterator(), numeroIdentificacao, periodoAtual);
+        descartar(envelopes.keySet().iterator(), numeroIdentificacao, periodoAtual);
+    }
+
+    private static void descartar(Iterator<Periodo> chaves, String numeroIdentificacao, long anteriorA) {
+        while (chaves.hasNext()) {
+            Periodo chave = chaves.next();
+            if (chave.numeroIdentificacao.equals(numeroIdentificacao) && chave.periodo < anteriorA) {
+                chaves.remove();
+            }
+        }
+    }
+
+    private long periodoAtual() {
+        return periodoRotacao > 0 ? System.currentTimeMillis() / periodoRotacao : 0;
+    }
+
+    /**
+     * Chave dos mapas de pares de chaves e de envelopes: o serviço de transporte e o período de rotação.
+     * O número de identificação é comparado por inteiro, qualquer que seja o seu conteúdo.
+     */
+    private static final class Periodo {
+        final String numeroIdentificacao;
+        final long periodo;
+
+        Periodo(String numeroIdentificacao, long periodo) {
+            this.numeroIdentificacao = numeroIdentificacao;
+            this.periodo = periodo;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Periodo)) {
+                return false;
+            }
+            Periodo outro = (Periodo) o;
+            return periodo == outro.periodo && numeroIdentificacao.equals(outro.numeroIdentificacao);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * numeroIdentificacao.hashCode() + (int) (periodo ^ (periodo >>> 32));
+        }
+    }
+}
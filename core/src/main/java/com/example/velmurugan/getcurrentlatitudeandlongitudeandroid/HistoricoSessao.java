@@ -0,0 +1,120 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import java.util.Arrays;
+
+/**
+ * Histórico das métricas de uma sessão de telemetria em colunas de arrays primitivos, na ordem dos registros:
+ * a posição i de cada array corresponde ao i-ésimo registro lido. Os dados do serviço de transporte, que são
+ * os mesmos em toda a sessão, não fazem parte das colunas. Os registros não trazem a hora do relógio; a linha
+ * do tempo do percurso é dada por respectivoIntervalo e tempoParaDestinoFinal.
+ *
+ * Os arrays retornados pelos métodos get não são copiados e têm exatamente getTamanho() posições.
+ */
+public class HistoricoSessao {
+    private int tamanho;
+    private long[] sequencias;
+    private double[] velocidadesMediasParciais;
+    private double[] distanciasPercorridas;
+    private long[] temposParaDestinoFinal;
+    private int[] respectivosIntervalos;
+    private int[] intervalosTempoLocalizacoes;
+
+    /**
+     * Construtor da classe HistoricoSessao.
+     *
+     * @param capacidade o número de registros para o qual as colunas são alocadas. As colunas crescem se necessário.
+     */
+    HistoricoSessao(int capacidade) {
+        alocar(Math.max(capacidade, 1));
+    }
+
+    /**
+     * Acrescenta às colunas as métricas do registro envolvido pelo leitor.
+     *
+     * @param sequencia a sequência, na sessão, do registro ou do lote de onde ele foi lido.
+     * @param registro  o leitor do registro.
+     */
+    void adicionar(long sequencia, RegistroBinario registro) {
+        if (tamanho == sequencias.length) {
+            alocar(2 * tamanho);
+        }
+        sequencias[tamanho] = sequencia;
+        velocidadesMediasParciais[tamanho] = registro.getVelocidadeMediaParcial();
+        distanciasPercorridas[tamanho] = registro.getDistanciaPercorrida();
+        temposParaDestinoFinal[tamanho] = registro.getTempoParaDestinoFinal();
+        respectivosIntervalos[tamanho] = registro.getRespectivoIntervalo();
+        intervalosTempoLocalizacoes[tamanho] = registro.getIntervaloTempoLocalizacoes();
+        ++tamanho;
+    }
+
+    /**
+     * Junta os históricos parciais, na ordem em que aparecem, em um histórico com colunas do tamanho exato.
+     */
+    static HistoricoSessao concatenar(HistoricoSessao[] partes) {
+        int total = 0;
+        for (HistoricoSessao parte : partes) {
+            total += parte.tamanho;
+        }
+        HistoricoSessao historico = new HistoricoSessao(0);
+        historico.sequencias = new long[total];
+        historico.velocidadesMediasParciais = new double[total];
+        historico.distanciasPercorridas = new double[total];
+        historico.temposParaDestinoFinal = new long[total];
+        historico.respectivosIntervalos = new int[total];
+        historico.intervalosTempoLocalizacoes = new int[total];
+        for (HistoricoSessao parte : partes) {
+            int posicao = historico.tamanho;
+            System.arraycopy(parte.sequencias, 0, historico.sequencias, posicao, parte.tamanho);
+            System.arraycopy(parte.velocidadesMediasParciais, 0, historico.velocidadesMediasParciais, posicao, parte.tamanho);
+            System.arraycopy(parte.distanciasPercorridas, 0, historico.distanciasPercorridas, posicao, parte.tamanho);
+            System.arraycopy(parte.temposParaDestinoFinal, 0, historico.temposParaDestinoFinal, posicao, parte.tamanho);
+            System.arraycopy(parte.respectivosIntervalos, 0, historico.respectivosIntervalos, posicao, parte.tamanho);
+            System.arraycopy(parte.intervalosTempoLocalizacoes, 0, historico.intervalosTempoLocalizacoes, posicao, parte.tamanho);
+            historico.tamanho += parte.tamanho;
+        }
+        return historico;
+    }
+
+    /**
+     * Obtém o número de registros do histórico.
+     */
+    public int getTamanho() {
+        return tamanho;
+    }
+
+    /**
+     * Obtém a sequência, na sessão, do registro ou do lote de onde cada registro foi lido.
+     */
+    public long[] getSequencias() {
+        return sequencias;
+    }
+
+    public double[] getVelocidadesMediasParciais() {
+        return velocidadesMediasParciais;
+    }
+
+    public double[] getDistanciasPercorridas() {
+        return distanciasPercorridas;
+    }
+
+    public long[] getTemposParaDestinoFinal() {
+        return temposParaDestinoFinal;
+    }
+
+    public int[] getRespectivosIntervalos() {
+        return respectivosIntervalos;
+    }
+
+    public int[] getIntervalosTempoLocalizacoes() {
+        return intervalosTempoLocalizacoes;
+    }
+
+    private void alocar(int capacidade) {
+        sequencias = sequencias == null ? new long[capacidade] : Arrays.copyOf(sequencias, capacidade);
+        velocidadesMediasParciais = velocidadesMediasParciais == null ? new double[capacidade] : Arrays.copyOf(velocidadesMediasParciais, capacidade);
+        distanciasPercorridas = distanciasPercorridas == null ? new double[capacidade] : Arrays.copyOf(distanciasPercorridas, capacidade);
+        temposParaDestinoFinal = temposParaDestinoFinal == null ? new long[capacidade] : Arrays.copyOf(temposParaDestinoFinal, capacidade);
+        respectivosIntervalos = respectivosIntervalos == null ? new int[capacidade] : Arrays.copyOf(respectivosIntervalos, capacidade);
+        intervalosTempoLocalizacoes = intervalosTempoLocalizacoes == null ? new int[capacidade] : Arrays.copyOf(intervalosTempoLocalizacoes, capacidade);
+    }
+}
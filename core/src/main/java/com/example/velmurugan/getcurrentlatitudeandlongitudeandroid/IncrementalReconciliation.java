@@ -0,0 +1,194 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.factory.LinearSolverFactory_DDRM;
+import org.ejml.interfaces.linsol.LinearSolverDense;
+
+/**
+ * Reconciliação incremental: mantém (A·V·Aᵀ)⁻¹ e os multiplicadores de Lagrange entre atualizações,
+ * de modo que a troca de uma medição (por exemplo, de estimada com variância 1.0 para medida com variância 0.0)
+ * é aplicada por uma correção de posto um (Sherman-Morrison) em vez de uma nova solução completa.
+ * Cada atualização custa O(m²) e cada consulta a uma medição reconciliada custa O(m), em que m é o número
+ * de restrições, independentemente do número de medições. Uma instância não deve ser compartilhada entre threads.
+ */
+public class IncrementalReconciliation {
+    private static final double EPSILON = 1e-12;
+
+    private final int numConstraints;
+    private final int numMeasurements;
+    private final double[] incidenceMatrix;
+    private final double[] rawMeasurement;
+    private final double[] standardDeviation;
+    private final DMatrixRMaj systemInverse;
+    private final double[] residual;
+    private final double[] multipliers;
+    private final double[] column;
+    private boolean valid;
+
+    /**
+     * Construtor da classe IncrementalReconciliation. Resolve a reconciliação inicial por completo.
+     *
+     * @param _rawMeasurement as medições brutas iniciais.
+     * @param _standardDeviation as variâncias iniciais de cada medição.
+     * @param _incidenceMatrix a matriz de incidência das restrições.
+     */
+    public IncrementalReconciliation(double[] _rawMeasurement, double[] _standardDeviation, double[][] _incidenceMatrix) {
+        if (_rawMeasurement == null || _standardDeviation == null || _incidenceMatrix == null) {
+            throw new IllegalArgumentException("the rawMeasurement and/or standardDeviation and/or incidenceMatrix have null data.");
+        }
+        if (_rawMeasurement.length != _standardDeviation.length || _standardDeviation.length != _incidenceMatrix[0].length) {
+            throw new IllegalArgumentException("the rawMeasurement and/or standardDeviation and/or incidenceMatrix have inconsistent data/size.");
+        }
+
+        this.numConstraints = _incidenceMatrix.length;
+        this.numMeasurements = _rawMeasurement.length;
+        this.incidenceMatrix = new double[numConstraints * numMeasurements];
+        for (int j = 0; j < numConstraints; ++j) {
+            System.arraycopy(_incidenceMatrix[j], 0, incidenceMatrix, j * numMeasurements, numMeasurements);
+        }
+        this.rawMeasurement = _rawMeasurement.clone();
+        this.standardDeviation = _standardDeviation.clone();
+        this.systemInverse = new DMatrixRMaj(numConstraints, numConstraints);
+        this.residual = new double[numConstraints];
+        this.multipliers = new double[numConstraints];
+        this.column = new double[numConstraints];
+
+        for (int j = 0; j < numConstraints; ++j) {
+            double sum = 0.0;
+            for (int i = 0; i < numMeasurements; ++i) {
+                sum += incidenceMatrix[j * numMeasurements + i] * rawMeasurement[i];
+            }
+            residual[j] = sum;
+        }
+        rebuild();
+    }
+
+    /**
+     * Atualiza uma medição e a sua variância, corrigindo a solução por posto um.
+     *
+     * @param _index o índice da medição.
+     * @param _value o novo valor medido.
+     * @param _variance a nova variância (0.0 para uma medição exata).
+     * @return true se o sistema continua com solução, false se A·V·Aᵀ ficou singular.
+     */
+    public boolean updateMeasurement(int _index, double _value, double _variance) {
+        double deltaValue = _value - rawMeasurement[_index];
+        double deltaVariance = _variance - standardDeviation[_index];
+        if (deltaValue == 0.0 && deltaVariance == 0.0) {
+            return valid;
+        }
+
+        rawMeasurement[_index] = _value;
+        standardDeviation[_index] = _variance;
+        for (int j = 0; j < numConstraints; ++j) {
+            residual[j] += deltaValue * incidenceMatrix[j * numMeasurements + _index];
+        }
+
+        if (deltaVariance != 0.0) {
+            if (!valid) {
+                return rebuild();
+            }
+
+            // Sherman-Morrison: (S + δ·a·aᵀ)⁻¹ = S⁻¹ - δ·(S⁻¹a)(S⁻¹a)ᵀ / (1 + δ·aᵀS⁻¹a)
+            double[] inverse = systemInverse.data;
+            double denominator = 1.0;
+            for (int j = 0; j < numConstraints; ++j) {
+                double sum = 0.0;
+                for (int k = 0; k < numConstraints; ++k) {
+                    sum += inverse[j * numConstraints + k] * incidenceMatrix[k * numMeasurements + _index];
+                }
+                column[j] = sum;
+                denominator += deltaVariance * incidenceMatrix[j * numMeasurements + _index] * sum;
+            }
+            if (Math.abs(denominator) < EPSILON) {
+                return rebuild();
+            }
+
+            double factor = deltaVariance / denominator;
+            for (int j = 0; j < numConstraints; ++j) {
+                for (int k = 0; k < numConstraints; ++k) {
+                    inverse[j * numConstraints + k] -= factor * column[j] * column[k];
+                }
+            }
+        }
+
+        updateMultipliers();
+        return valid;
+    }
+
+    /**
+     * Obtém uma medição reconciliada em O(m).
+     *
+     * @param _index o índice da medição.
+     * @return a medição reconciliada, ou a medição bruta se o sistema for singular.
+     */
+    public double getReconciledFlow(int _index) {
+        if (!valid) {
+            return rawMeasurement[_index];
+        }
+        double sum = 0.0;
+        for (int j = 0; j < numConstraints; ++j) {
+            sum += incidenceMatrix[j * numMeasurements + _index] * multipliers[j];
+        }
+        return rawMeasurement[_index] - standardDeviation[_index] * sum;
+    }
+
+    /**
+     * Copia todas as medições reconciliadas para um array fornecido pelo chamador.
+     *
+     * @param _reconciledFlow o array que receberá as medições reconciliadas.
+     */
+    public void getReconciledFlow(double[] _reconciledFlow) {
+        for (int i = 0; i < numMeasurements; ++i) {
+            _reconciledFlow[i] = getReconciledFlow(i);
+        }
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public int getNumConstraints() {
+        return numConstraints;
+    }
+
+    public int getNumMeasurements() {
+        return numMeasurements;
+    }
+
+    /**
+     * Recalcula (A·V·Aᵀ)⁻¹ do zero, em O(m²·n + m³).
+     */
+    private boolean rebuild() {
+        DMatrixRMaj system = new DMatrixRMaj(numConstraints, numConstraints);
+        for (int j = 0; j < numConstraints; ++j) {
+            for (int k = j; k < numConstraints; ++k) {
+                double sum = 0.0;
+                for (int i = 0; i < numMeasurements; ++i) {
+                    sum += incidenceMatrix[j * numMeasurements + i] * standardDeviation[i] * incidenceMatrix[k * numMeasurements + i];
+                }
+                system.unsafe_set(j, k, sum);
+                system.unsafe_set(k, j, sum);
+            }
+        }
+
+        LinearSolverDense<DMatrixRMaj> solver = LinearSolverFactory_DDRM.lu(numConstraints);
+        valid = solver.setA(system) && solver.quality() > EPSILON;
+        if (valid) {
+            solver.invert(systemInverse);
+            updateMultipliers();
+        }
+        return valid;
+    }
+
+    private void updateMultipliers() {
+        double[] inverse = systemInverse.data;
+        for (int j = 0; j < numConstraints; ++j) {
+            double sum = 0.0;
+            for (int k = 0; k < numConstraints; ++k) {
+                sum += inverse[j * numConstraints + k] * residual[k];
+            }
+            multipliers[j] = sum;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Leitura em massa do histórico de uma sessão, para auditorias depois do percurso. Os registros e lotes da sessão
+ * são independentes entre si (cada um tem o seu nonce e os lotes começam com um quadro-chave), então são
+ * descriptografados e decodificados em paralelo com fork/join; cada bloco de registros gera um HistoricoSessao
+ * parcial, e os parciais são juntados na ordem de sequência. Os registros são lidos diretamente dos buffers
+ * descriptografados para as colunas, sem criar um objeto por registro.
+ *
+ * Apenas registros no formato binário (veja RegistroBinario) são aceitos. Para ler do armazenamento apenas os
+ * registros e lotes do intervalo, veja intervalosChaves().
+ */
+public final class LeitorHistorico {
+    // Quantidade de registros ou lotes abaixo da qual um bloco é decodificado sem nova divisão
+    private static final int LIMITE_SEQUENCIAL = 32;
+
+    private static final Comparator<Map.Entry<String, Object>> POR_SEQUENCIA = new Comparator<Map.Entry<String, Object>>() {
+        @Override
+        public int compare(Map.Entry<String, Object> e1, Map.Entry<String, Object> e2) {
+            // As chaves são texto, então "10" viria antes de "9"
+            return Long.compare(sequencia(e1.getKey()), sequencia(e2.getKey()));
+        }
+    };
+
+    private LeitorHistorico() {
+    }
+
+    /**
+     * Obtém os intervalos de chaves que cobrem as sequências de sequenciaInicial a sequenciaFinal, para ler os
+     * registros ou lotes com TelemetrySource.lerIntervalo(). As sequências são gravadas em decimal, sem zeros à
+     * esquerda, e a ordem das chaves como texto só coincide com a ordem numérica entre chaves com o mesmo número
+     * de dígitos, então há um intervalo para cada número de dígitos. Um intervalo como texto também pode incluir
+     * chaves com outro número de dígitos, que decodificar() descarta.
+     *
+     * @param sequenciaInicial a menor sequência incluída.
+     * @param sequenciaFinal   a maior sequência incluída.
+     * @return os pares {chaveInicial, chaveFinal}, vazio se o intervalo for vazio.
+     */
+    public static List<String[]> intervalosChaves(long sequenciaInicial, long sequenciaFinal) {
+        List<String[]> intervalos = new ArrayList<>();
+        long inicio = Math.max(sequenciaInicial, 0);
+        while (inicio <= sequenciaFinal) {
+            // A maior sequência com o mesmo número de dígitos do início; com 19 dígitos, é Long.MAX_VALUE
+            long limite = 10;
+            while (limite <= inicio && limite <= Long.MAX_VALUE / 10) {
+                limite *= 10;
+            }
+            long fim = limite > inicio ? Math.min(limite - 1, sequenciaFinal) : sequenciaFinal;
+            intervalos.add(new String[]{Long.toString(inicio), Long.toString(fim)});
+            if (fim == sequenciaFinal) {
+                break;
+            }
+            inicio = fim + 1;
+        }
+        return intervalos;
+    }
+
+    /**
+     * Decodifica os registros da sessão no pool comum de fork/join.
+     *
+     * @param valores          os valores do nó da sessão, como lidos com TelemetrySource.ler(), ou apenas a chave,
+     *                         os cabeçalhos e os registros e lotes lidos com intervalosChaves().
+     * @param envelope         o envelope da sessão.
+     * @param sequenciaInicial a menor sequência de registro ou lote incluída.
+     * @param sequenciaFinal   a maior sequência de registro ou lote incluída.
+     * @return o histórico em colunas, em ordem de sequência.
+     * @throws GeneralSecurityException se algum registro for inválido ou não corresponder à sua sequência.
+     */
+    public static HistoricoSessao decodificar(SortedMap<String, Object> valores, EnvelopeSessao envelope,
+                                              long sequenciaInicial, long sequenciaFinal) throws GeneralSecurityException {
+        return decodificar(valores, envelope, sequenciaInicial, sequenciaFinal, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Decodifica os registros da sessão no pool informado.
+     *
+     * @param valores          os valores do nó da sessão, como lidos com TelemetrySource.ler(), ou apenas a chave,
+     *                         os cabeçalhos e os registros e lotes lidos com intervalosChaves().
+     * @param envelope         o envelope da sessão.
+     * @param sequenciaInicial a menor sequência de registro ou lote incluída.
+     * @param sequenciaFinal   a maior sequência de registro ou lote incluída.
+     * @param pool             o pool de fork/join usado para dividir os registros.
+     * @return o histórico em colunas, em ordem de sequência.
+     * @throws GeneralSecurityException se algum registro for inválido ou não corresponder à sua sequência.
+     * @throws IllegalArgumentException se algum registro não estiver no formato binário.
+     */
+    public static HistoricoSessao decodificar(SortedMap<String, Object> valores, EnvelopeSessao envelope,
+                                              long sequenciaInicial, long sequenciaFinal, ForkJoinPool pool) throws GeneralSecurityException {
+        // Cada tarefa reutiliza um pipeline livre desta leitura; no máximo um por thread do pool é criado, e todos
+        // são descartados ao fim da leitura, em vez de ficarem presos às threads do pool
+        ConcurrentLinkedQueue<Decodificador> livres = new ConcurrentLinkedQueue<>();
+        Decodificador decodificador = new Decodificador();
+        livres.add(decodificador);
+
+        // Os cabeçalhos são poucos e precisam estar no envelope antes dos registros que os referenciam
+        for (Map.Entry<String, Object> cabecalho : valores.subMap("cabecalhos/", "cabecalhos0").entrySet()) {
+            long sequencia = sequencia(cabecalho.getKey());
+            if (!envelope.getCabecalhos().containsKey(sequencia)) {
+                decodificador.pipeline.decodificarCabecalho((String) cabecalho.getValue(), envelope, sequencia);
+            }
+        }
+
+        List<Map.Entry<String, Object>> entradas = new ArrayList<>();
+        adicionarIntervalo(valores.subMap("lotes/", "lotes0"), sequenciaInicial, sequenciaFinal, entradas);
+        adicionarIntervalo(valores.subMap("registros/", "registros0"), sequenciaInicial, sequenciaFinal, entradas);
+        Collections.sort(entradas, POR_SEQUENCIA);
+        int quantidade = entradas.size();
+        long[] sequencias = new long[quantidade];
+        String[] dados = new String[quantidade];
+        for (int i = 0; i < quantidade; ++i) {
+            sequencias[i] = sequencia(entradas.get(i).getKey());
+            dados[i] = (String) entradas.get(i).getValue();
+        }
+
+        HistoricoSessao[] partes = new HistoricoSessao[Math.max((quantidade + LIMITE_SEQUENCIAL - 1) / LIMITE_SEQUENCIAL, 1)];
+        try {
+            pool.invoke(new BlocoTask(sequencias, dados, envelope, partes, livres, 0, partes.length));
+        } catch (RuntimeException e) {
+            for (Throwable causa = e; causa != null; causa = causa.getCause()) {
+                if (causa instanceof GeneralSecurityException) {
+                    throw (GeneralSecurityException) causa;
+                }
+            }
+            throw e;
+        }
+        return HistoricoSessao.concatenar(partes);
+    }
+
+    /**
+     * Decodifica os registros e lotes [primeiro, fim) em um histórico parcial.
+     */
+    private static HistoricoSessao decodificarBloco(long[] sequencias, String[] dados, EnvelopeSessao envelope,
+                                                    PipelineRegistro pipeline, RegistroBinario leitor,
+                                                    int primeiro, int fim) throws GeneralSecurityException {
+        Map<Long, CabecalhoSessao> cabecalhos = envelope.getCabecalhos();
+        HistoricoSessao parcial = new HistoricoSessao(fim - primeiro);
+        for (int i = primeiro; i < fim; ++i) {
+            ByteBuffer registro = pipeline.decodificar(dados[i], envelope, sequencias[i]);
+            if (!RegistroBinario.ehBinario(registro)) {
+                throw new IllegalArgumentException("O registro " + sequencias[i] + " não está no formato binário.");
+            }
+            if (registro.get(registro.position()) == RegistroBinario.ESQUEMA_LOTE) {
+                leitor.envolverLote(registro);
+                while (leitor.proximo(cabecalhos) != null) {
+                    parcial.adicionar(sequencias[i], leitor);
+                }
+            } else {
+                parcial.adicionar(sequencias[i], leitor.envolver(registro, cabecalhos));
+            }
+        }
+        return parcial;
+    }
+
+    private static void adicionarIntervalo(SortedMap<String, Object> valores, long sequenciaInicial, long sequenciaFinal,
+                                           List<Map.Entry<String, Object>> entradas) {
+        for (Map.Entry<String, Object> valor : valores.entrySet()) {
+            long sequencia = sequencia(valor.getKey());
+            if (sequencia >= sequenciaInicial && sequencia <= sequenciaFinal) {
+                entradas.add(valor);
+            }
+        }
+    }
+
+    private static long sequencia(String caminho) {
+        return Long.parseLong(caminho.substring(caminho.lastIndexOf('/') + 1));
+    }
+
+    /**
+     * Pipeline e leitor com os buffers reutilizados por uma tarefa de cada vez.
+     */
+    private static final class Decodificador {
+        final PipelineRegistro pipeline = new PipelineRegistro();
+        final RegistroBinario leitor = new RegistroBinario();
+    }
+
+    /**
+     * Tarefa que divide um intervalo de blocos ao meio até que reste um único bloco de registros.
+     */
+    private static final class BlocoTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] sequencias;
+        private final String[] dados;
+        private final EnvelopeSessao envelope;
+        private final HistoricoSessao[] partes;
+        private final ConcurrentLinkedQueue<Decodificador> livres;
+        private final int primeiroBloco;
+        private final int fimBloco;
+
+        BlocoTask(long[] sequencias, String[] dados, EnvelopeSessao envelope, HistoricoSessao[] partes,
+                  ConcurrentLinkedQueue<Decodificador> livres, int primeiroBloco, int fimBloco) {
+            this.sequencias = sequencias;
+            this.dados = dados;
+            this.envelope = envelope;
+            this.partes = partes;
+            this.livres = livres;
+            this.primeiroBloco = primeiroBloco;
+            this.fimBloco = fimBloco;
+        }
+
+        @Override
+        protected void compute() {
+            if (fimBloco - primeiroBloco <= 1) {
+                int primeiro = primeiroBloco * LIMITE_SEQUENCIAL;
+                int fim = Math.min(primeiro + LIMITE_SEQUENCIAL, sequencias.length);
+                Decodificador decodificador = livres.poll();
+                if (decodificador == null) {
+                    decodificador = new Decodificador();
+                }
+                try {
+                    partes[primeiroBloco] = decodificarBloco(sequencias, dados, envelope, decodificador.pipeline,
+                            decodificador.leitor, primeiro, fim);
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException("Falha ao descriptografar o registro.", e);
+                } finally {
+                    livres.add(decodificador);
+                }
+                return;
+            }
+
+            int meio = (primeiroBloco + fimBloco) >>> 1;
+            invokeAll(new BlocoTask(sequencias, dados, envelope, partes, livres, primeiroBloco, meio),
+                    new BlocoTask(sequencias, dados, envelope, partes, livres, meio, fimBloco));
+        }
+    }
+}
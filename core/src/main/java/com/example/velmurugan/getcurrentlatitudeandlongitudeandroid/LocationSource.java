@@ -0,0 +1,17 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import java.util.List;
+
+/**
+ * Fonte das localizações do veículo. No aplicativo é implementada pelo GpsTracker; em servidores e benchmarks
+ * pode ser implementada por uma reprodução de viagens gravadas.
+ */
+public interface LocationSource {
+
+    /**
+     * Obtém a lista de dados de localização ordenados por timestamp, do mais antigo ao mais recente.
+     *
+     * @return A lista de LocationData ordenada.
+     */
+    List<LocationData> getSortedLocationData();
+}
@@ -0,0 +1,130 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Implementação de TelemetryStore e TelemetrySource em memória, usada como substituto local do Firebase
+ * Realtime Database. Os valores são mantidos por caminho completo e cada chamada de atualizar() conta como
+ * uma ida e volta.
+ */
+public class MemoryTelemetryStore implements TelemetryStore, TelemetrySource {
+    private final TreeMap<String, Object> valores = new TreeMap<>();
+    private final AssinaturasLocais assinaturas = new AssinaturasLocais(this);
+    private long idasEVoltas;
+
+    @Override
+    public synchronized void atualizar(Map<String, Object> atualizacoes) {
+        ++idasEVoltas;
+        aplicar(valores, atualizacoes);
+        assinaturas.notificar(atualizacoes);
+    }
+
+    /**
+     * Lê os valores abaixo do caminho, chamando o callback na própria thread.
+     */
+    @Override
+    public void ler(String caminho, Callback callback) {
+        SortedMap<String, Object> resultado;
+        synchronized (this) {
+            resultado = abaixoDe(valores, caminho);
+        }
+        callback.onResult(resultado);
+    }
+
+    /**
+     * Lê os valores abaixo dos filhos do caminho com chaves no intervalo, chamando o callback na própria thread.
+     */
+    @Override
+    public void lerIntervalo(String caminho, String chaveInicial, String chaveFinal, Callback callback) {
+        SortedMap<String, Object> resultado;
+        synchronized (this) {
+            resultado = entre(valores, caminho, chaveInicial, chaveFinal);
+        }
+        callback.onResult(resultado);
+    }
+
+    /**
+     * Assina os filhos do caminho. O ouvinte é chamado na thread de cada escrita e não deve escrever
+     * neste armazenamento.
+     */
+    @Override
+    public synchronized Assinatura assinar(String caminho, OuvinteFilhos ouvinte) {
+        return assinaturas.assinar(valores, caminho, ouvinte);
+    }
+
+    /**
+     * Obtém o valor escrito em um caminho.
+     *
+     * @param caminho o caminho relativo à raiz.
+     * @return o valor, ou null se não houver valor no caminho.
+     */
+    public synchronized Object ler(String caminho) {
+        return valores.get(caminho);
+    }
+
+    /**
+     * Obtém o número de idas e voltas (chamadas de atualizar()) feitas ao armazenamento.
+     */
+    public synchronized long getIdasEVoltas() {
+        return idasEVoltas;
+    }
+
+    /**
+     * Obtém o número de valores armazenados.
+     */
+    public synchronized int getTamanho() {
+        return valores.size();
+    }
+
+    /**
+     * Aplica uma escrita multi-caminho a um mapa de valores por caminho completo. Como no Realtime Database,
+     * escrever em um caminho substitui todo o conteúdo abaixo dele, e escrever null o remove.
+     */
+    static void aplicar(TreeMap<String, Object> valores, Map<String, Object> atualizacoes) {
+        for (Map.Entry<String, Object> atualizacao : atualizacoes.entrySet()) {
+            String caminho = atualizacao.getKey();
+            valores.subMap(caminho + "/", caminho + "0").clear();
+            if (atualizacao.getValue() == null) {
+                valores.remove(caminho);
+            } else {
+                valores.put(caminho, atualizacao.getValue());
+            }
+        }
+    }
+
+    /**
+     * Copia os valores abaixo de um caminho, indexados pelo caminho relativo a ele.
+     */
+    static SortedMap<String, Object> abaixoDe(TreeMap<String, Object> valores, String caminho) {
+        TreeMap<String, Object> resultado = new TreeMap<>();
+        Object proprio = valores.get(caminho);
+        if (proprio != null) {
+            resultado.put("", proprio);
+        }
+        String prefixo = caminho.isEmpty() ? "" : caminho + "/";
+        for (Map.Entry<String, Object> valor : valores.subMap(prefixo, prefixo + Character.MAX_VALUE).entrySet()) {
+            resultado.put(valor.getKey().substring(prefixo.length()), valor.getValue());
+        }
+        return resultado;
+    }
+
+    /**
+     * Copia os valores abaixo dos filhos de um caminho com chaves entre chaveInicial e chaveFinal, indexados pelo
+     * caminho relativo a ele. Só a parte do mapa dentro do intervalo é percorrida.
+     */
+    static SortedMap<String, Object> entre(TreeMap<String, Object> valores, String caminho, String chaveInicial, String chaveFinal) {
+        TreeMap<String, Object> resultado = new TreeMap<>();
+        String prefixo = caminho.isEmpty() ? "" : caminho + "/";
+        for (Map.Entry<String, Object> valor : valores.subMap(prefixo + chaveInicial, true, prefixo + chaveFinal + Character.MAX_VALUE, true).entrySet()) {
+            String relativo = valor.getKey().substring(prefixo.length());
+            int fimChave = relativo.indexOf('/');
+            String chave = fimChave < 0 ? relativo : relativo.substring(0, fimChave);
+            if (chave.compareTo(chaveInicial) >= 0 && chave.compareTo(chaveFinal) <= 0) {
+                resultado.put(relativo, valor.getValue());
+            }
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,566 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pipeline de serialização → criptografia → Base64 dos registros de telemetria que reutiliza os mesmos buffers
+ * a cada registro. O registro é serializado (no formato binário de RegistroBinario ou em JSON, conforme o Formato)
+ * diretamente em um ByteBuffer direto, criptografado com
+ * Cipher.doFinal(ByteBuffer, ByteBuffer) e codificado em Base64 em um array reutilizado; o caminho inverso
+ * (Base64 → descriptografia) usa os mesmos buffers. Em regime permanente, nenhum objeto intermediário é criado
+ * por registro. Opcionalmente, os dados são comprimidos com o CompressorTelemetria antes da criptografia; a leitura
+ * identifica os dados comprimidos e os descomprime.
+ *
+ * Uma instância não é thread-safe: cada thread escritora ou leitora deve usar a sua própria instância.
+ */
+public class PipelineRegistro {
+
+    /**
+     * Formato em que os registros são serializados antes da criptografia.
+     */
+    public enum Formato {
+        /** Formato binário versionado (RegistroBinario), sem os nomes dos campos. */
+        BINARIO,
+        /** JSON com os nomes dos campos, como no modo anterior. */
+        JSON
+    }
+
+    private static final int CAPACIDADE_PADRAO = 1024; // Capacidade inicial dos buffers em bytes
+    private static final int INTERVALO_QUADRO_CHAVE_PADRAO = 32; // Registros entre quadros-chave de um lote
+    private static final int TAMANHO_TAG_BYTES = EnvelopeSessao.TAMANHO_TAG / 8;
+    private static final byte[] DIGITOS_HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ALFABETO_BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final int[] VALORES_BASE64 = new int[128];
+
+    static {
+        Arrays.fill(VALORES_BASE64, -1);
+        for (int i = 0; i < ALFABETO_BASE64.length; ++i) {
+            VALORES_BASE64[ALFABETO_BASE64[i]] = i;
+        }
+    }
+
+    private final Formato formato;
+    private final StringBuilder numero = new StringBuilder(32);
+    private final RegistroBinario leitorBinario = new RegistroBinario();
+    private final boolean comprimir;
+    private final long[] serie = new long[5]; // Valores quantizados do registro anterior do lote
+    private int intervaloQuadroChave = INTERVALO_QUADRO_CHAVE_PADRAO;
+    private CompressorTelemetria compressor; // Criado na primeira compressão ou descompressão
+    private ByteBuffer texto;
+    private byte[] cifrado;
+    private ByteBuffer bufferCifrado;
+    private byte[] base64;
+    private int tamanhoBase64;
+    private byte[] claro;
+    private byte[] comprimido;
+    private ByteBuffer bufferComprimido;
+    private byte[] descomprimido = new byte[0];
+    private ByteBuffer bufferDescomprimido = ByteBuffer.wrap(descomprimido);
+
+    /**
+     * Construtor da classe PipelineRegistro no formato binário, com a capacidade inicial padrão.
+     */
+    public PipelineRegistro() {
+        this(CAPACIDADE_PADRAO, Formato.BINARIO);
+    }
+
+    /**
+     * Construtor da classe PipelineRegistro.
+     *
+     * @param capacidade a capacidade inicial, em bytes, de um registro serializado. Os buffers crescem se necessário.
+     * @param formato    o formato em que os registros são serializados. A leitura aceita os dois formatos.
+     */
+    public PipelineRegistro(int capacidade, Formato formato) {
+        this(capacidade, formato, false);
+    }
+
+    /**
+     * Construtor da classe PipelineRegistro.
+     *
+     * @param capacidade a capacidade inicial, em bytes, de um registro serializado. Os buffers crescem se necessário.
+     * @param formato    o formato em que os registros são serializados. A leitura aceita os dois formatos.
+     * @param comprimir  true para comprimir os dados antes da criptografia. A leitura aceita dados comprimidos ou não.
+     */
+    public PipelineRegistro(int capacidade, Formato formato, boolean comprimir) {
+        this.formato = formato;
+        this.comprimir = comprimir;
+        alocar(capacidade);
+    }
+
+    /**
+     * Define a cada quantos registros de um lote um quadro-chave (registro completo) é escrito; os registros
+     * intermediários trazem apenas as diferenças em relação ao anterior (veja RegistroBinario, esquema 6).
+     *
+     * @param intervaloQuadroChave o intervalo, em registros. 1 desativa as diferenças.
+     * @throws IllegalArgumentException se o intervalo for menor que 1.
+     */
+    public void setIntervaloQuadroChave(int intervaloQuadroChave) {
+        if (intervaloQuadroChave < 1) {
+            throw new IllegalArgumentException("O intervalo entre quadros-chave deve ser de pelo menos 1 registro.");
+        }
+        this.intervaloQuadroChave = intervaloQuadroChave;
+    }
+
+    /**
+     * Serializa o registro no formato da instância, no buffer de texto reutilizado.
+     *
+     * @param registro o registro com as métricas do veículo e os dados do serviço de transporte.
+     * @return o buffer de texto, entre a posição 0 e o tamanho do registro serializado. É válido até a próxima chamada.
+     */
+    public ByteBuffer serializar(RegistroTelemetria registro) {
+        return serializar(registro, formato, -1);
+    }
+
+    private ByteBuffer serializar(RegistroTelemetria registro, Formato formato, long sequenciaCabecalho) {
+        while (true) {
+            texto.clear();
+            try {
+                if (formato == Formato.BINARIO && sequenciaCabecalho >= 0) {
+                    RegistroBinario.escrever(registro, sequenciaCabecalho, texto);
+                } else if (formato == Formato.BINARIO) {
+                    RegistroBinario.escrever(registro, texto);
+                } else {
+                    escreverJSON(registro);
+                }
+                texto.flip();
+                return texto;
+            } catch (BufferOverflowException e) {
+                alocar(texto.capacity() * 2);
+            }
+        }
+    }
+
+    /**
+     * Serializa, criptografa com a chave da sessão e codifica o registro em Base64, sem criar objetos
+     * intermediários. O resultado fica no array retornado por getBase64(), com getTamanhoBase64() bytes.
+     * No formato binário, se o cabeçalho atual da sessão corresponder ao registro (veja
+     * EnvelopeSessao.atualizarCabecalho()), o registro apenas o referencia, sem repetir os textos.
+     *
+     * @param registro  o registro com as métricas do veículo e os dados do serviço de transporte.
+     * @param envelope  o envelope da sessão.
+     * @param sequencia o número de sequência do registro na sessão.
+     * @return o número de bytes em Base64.
+     * @throws GeneralSecurityException se ocorrer algum erro durante a criptografia.
+     */
+    public int codificar(RegistroTelemetria registro, EnvelopeSessao envelope, long sequencia) throws GeneralSecurityException {
+        long sequenciaCabecalho = formato == Formato.BINARIO ? envelope.getSequenciaCabecalho(registro) : -1;
+        return cifrar(serializar(registro, formato, sequenciaCabecalho), envelope, sequencia);
+    }
+
+    /**
+     * Serializa, criptografa e codifica em Base64 o cabeçalho da sessão reservado com
+     * EnvelopeSessao.atualizarCabecalho(). O resultado fica no array retornado por getBase64().
+     *
+     * @param envelope           o envelope da sessão.
+     * @param sequenciaCabecalho a sequência do cabeçalho, obtida com EnvelopeSessao.getSequenciaCabecalho().
+     * @return o número de bytes em Base64.
+     * @throws GeneralSecurityException se ocorrer algum erro durante a criptografia.
+     */
+    public int codificarCabecalho(EnvelopeSessao envelope, long sequenciaCabecalho) throws GeneralSecurityException {
+        CabecalhoSessao cabecalho = envelope.getCabecalhos().get(sequenciaCabecalho);
+        if (cabecalho == null) {
+            throw new IllegalArgumentException("Cabeçalho " + sequenciaCabecalho + " não reservado na sessão.");
+        }
+        while (true) {
+            texto.clear();
+            try {
+                RegistroBinario.escreverCabecalho(cabecalho, texto);
+                texto.flip();
+                return cifrar(texto, envelope, sequenciaCabecalho);
+            } catch (BufferOverflowException e) {
+                alocar(texto.capacity() * 2);
+            }
+        }
+    }
+
+    /**
+     * Codifica o cabeçalho da sessão e o retorna como o texto em Base64 que será enviado ao banco de dados.
+     *
+     * @param envelope           o envelope da sessão.
+     * @param sequenciaCabecalho a sequência do cabeçalho, obtida com EnvelopeSessao.getSequenciaCabecalho().
+     * @return o cabeçalho criptografado em Base64.
+     * @throws GeneralSecurityException se ocorrer algum erro durante a criptografia.
+     */
+    public String codificarCabecalhoParaTexto(EnvelopeSessao envelope, long sequenciaCabecalho) throws GeneralSecurityException {
+        int tamanho = codificarCabecalho(envelope, sequenciaCabecalho);
+        return new String(base64, 0, tamanho, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Serializa, criptografa e codifica o registro em Base64, retornando o texto que será enviado ao banco de dados.
+     * A String final é a única alocação por registro.
+     *
+     * @param registro  o registro com as métricas do veículo e os dados do serviço de transporte.
+     * @param envelope  o envelope da sessão.
+     * @param sequencia o número de sequência do registro na sessão.
+     * @return o registro criptografado em Base64.
+     * @throws GeneralSecurityException se ocorrer algum erro durante a criptografia.
+     */
+    public String codificarParaTexto(RegistroTelemetria registro, EnvelopeSessao envelope, long sequencia) throws GeneralSecurityException {
+        int tamanho = codificar(registro, envelope, sequencia);
+        return new String(base64, 0, tamanho, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Serializa os registros de uma sessão como um único lote no formato binário (veja RegistroBinario), que é
+     * criptografado, e comprimido se configurado, de uma só vez. Os registros cujo serviço de transporte corresponde
+     * ao cabeçalho atual da sessão apenas o referenciam. O lote começa com um quadro-chave, repetido a cada
+     * setIntervaloQuadroChave() registros; entre eles, os registros que referenciam o mesmo cabeçalho do anterior
+     * trazem apenas as diferenças quantizadas das métricas. O resultado fica no array retornado por getBase64().
+     *
+     * @param registros os registros da sessão, em ordem.
+     * @param envelope  o envelope da sessão.
+     * @param sequencia o número de sequência do lote na sessão.
+     * @return o número de bytes em Base64.
+     * @throws GeneralSecurityException se ocorrer algum erro durante a criptografia.
+     * @throws IllegalStateException    se a instância não usar o formato binário.
+     */
+    public int codificarLote(List<RegistroTelemetria> registros, EnvelopeSessao envelope, long sequencia) throws GeneralSecurityException {
+        if (formato != Formato.BINARIO) {
+            throw new IllegalStateException("Lotes exigem o formato binário.");
+        }
+        while (true) {
+            texto.clear();
+            try {
+                RegistroBinario.escreverInicioLote(registros.size(), texto);
+                long cabecalhoAnterior = -1;
+                int desdeQuadroChave = 0;
+                for (int i = 0; i < registros.size(); ++i) {
+                    RegistroTelemetria registro = registros.get(i);
+                    long sequenciaCabecalho = envelope.getSequenciaCabecalho(registro);
+                    if (i > 0 && desdeQuadroChave < intervaloQuadroChave && sequenciaCabecalho >= 0
+                            && sequenciaCabecalho == cabecalhoAnterior && RegistroBinario.quantizavel(registro)) {
+                        RegistroBinario.escreverDiferenca(registro, serie, texto);
+                    } else {
+                        if (sequenciaCabecalho >= 0) {
+                            RegistroBinario.escrever(registro, sequenciaCabecalho, texto);
+                        } else {
+                            RegistroBinario.escrever(registro, texto);
+                        }
+                        RegistroBinario.quantizar(registro, serie);
+                        desdeQuadroChave = 0;
+                    }
+                    cabecalhoAnterior = sequenciaCabecalho;
+                    ++desdeQuadroChave;
+                }
+                texto.flip();
+                return cifrar(texto, envelope, sequencia);
+            } catch (BufferOverflowException e) {
+                alocar(texto.capacity() * 2);
+            }
+        }
+    }
+
+    /**
+     * Codifica os registros de uma sessão como um lote e o retorna como o texto em Base64 que será enviado ao banco
+     * de dados.
+     *
+     * @param registros os registros da sessão, em ordem.
+     * @param envelope  o envelope da sessão.
+     * @param sequencia o número de sequência do lote na sessão.
+     * @return o lote criptografado em Base64.
+     * @throws GeneralSecurityException se ocorrer algum erro durante a criptografia.
+     */
+    public String codificarLoteParaTexto(List<RegistroTelemetria> registros, EnvelopeSessao envelope, long sequencia) throws GeneralSecurityException {
+        int tamanho = codificarLote(registros, envelope, sequencia);
+        return new String(base64, 0, tamanho, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Obtém o array reutilizado com o último registro codificado em Base64.
+     */
+    public byte[] getBase64() {
+        return base64;
+    }
+
+    /**
+     * Obtém o número de bytes válidos em getBase64().
+     */
+    public int getTamanhoBase64() {
+        return tamanhoBase64;
+    }
+
+    /**
+     * Caminho inverso: decodifica o Base64 e descriptografa o registro com a chave da sessão nos buffers
+     * reutilizados.
+     *
+     * @param registroBase64 o registro criptografado em Base64.
+     * @param envelope       o envelope da sessão.
+     * @param sequencia      o número de sequência do registro na sessão.
+     * @return o buffer de texto com o registro serializado (binário ou JSON, veja RegistroBinario.ehBinario()),
+     *         entre a posição 0 e o limite. É válido até a próxima chamada.
+     * @throws GeneralSecurityException se os dados forem inválidos ou não corresponderem à sequência.
+     */
+    public ByteBuffer decodificar(CharSequence registroBase64, EnvelopeSessao envelope, long sequencia) throws GeneralSecurityException {
+        int tamanho = registroBase64.length();
+        if (tamanho > base64.length || tamanho > texto.capacity()) {
+            alocar(tamanho);
+        }
+        int tamanhoCifrado = decodificarBase64(registroBase64, cifrado);
+
+        bufferCifrado.clear();
+        bufferCifrado.limit(tamanhoCifrado);
+        texto.clear();
+        envelope.descriptografar(sequencia, bufferCifrado, texto);
+        texto.flip();
+        return CompressorTelemetria.ehComprimido(texto) ? descomprimir(texto) : texto;
+    }
+
+    /**
+     * Decodifica e descriptografa um registro no formato binário, retornando um leitor que acessa os campos
+     * diretamente no buffer reutilizado, sem copiá-lo.
+     *
+     * @param registroBase64 o registro criptografado em Base64.
+     * @param envelope       o envelope da sessão.
+     * @param sequencia      o número de sequência do registro na sessão.
+     * @return o leitor do registro, válido até a próxima chamada.
+     * @throws GeneralSecurityException se os dados forem inválidos ou não corresponderem à sequência.
+     * @throws IllegalArgumentException se o registro não estiver no formato binário.
+     */
+    public RegistroBinario decodificarRegistro(CharSequence registroBase64, EnvelopeSessao envelope, long sequencia) throws GeneralSecurityException {
+        return leitorBinario.envolver(decodificar(registroBase64, envelope, sequencia), envelope.getCabecalhos());
+    }
+
+    /**
+     * Decodifica e descriptografa um lote de registros, retornando um leitor posicionado no início do lote;
+     * os registros são lidos em ordem com RegistroBinario.proximo(envelope.getCabecalhos()).
+     *
+     * @param loteBase64 o lote criptografado em Base64.
+     * @param envelope   o envelope da sessão.
+     * @param sequencia  o número de sequência do lote na sessão.
+     * @return o leitor do lote, válido até a próxima chamada.
+     * @throws GeneralSecurityException se os dados forem inválidos ou não corresponderem à sequência.
+     */
+    public RegistroBinario decodificarLote(CharSequence loteBase64, EnvelopeSessao envelope, long sequencia) throws GeneralSecurityException {
+        leitorBinario.envolverLote(decodificar(loteBase64, envelope, sequencia));
+        return leitorBinario;
+    }
+
+    /**
+     * Decodifica e descriptografa um cabeçalho da sessão e o registra no envelope, para resolver os registros
+     * que o referenciam.
+     *
+     * @param cabecalhoBase64 o cabeçalho criptografado em Base64.
+     * @param envelope        o envelope da sessão.
+     * @param sequencia       o número de sequência do cabeçalho na sessão.
+     * @return o cabeçalho.
+     * @throws GeneralSecurityException se os dados forem inválidos ou não corresponderem à sequência.
+     */
+    public CabecalhoSessao decodificarCabecalho(CharSequence cabecalhoBase64, EnvelopeSessao envelope, long sequencia) throws GeneralSecurityException {
+        CabecalhoSessao cabecalho = leitorBinario.lerCabecalho(decodificar(cabecalhoBase64, envelope, sequencia));
+        envelope.registrarCabecalho(sequencia, cabecalho);
+        return cabecalho;
+    }
+
+    /**
+     * Decodifica e descriptografa o registro e o retorna como texto JSON. Registros no formato binário são
+     * convertidos para o mesmo JSON do modo anterior.
+     *
+     * @param registroBase64 o registro criptografado em Base64.
+     * @param envelope       o envelope da sessão.
+     * @param sequencia      o número de sequência do registro na sessão.
+     * @return o JSON do registro.
+     * @throws GeneralSecurityException se os dados forem inválidos ou não corresponderem à sequência.
+     */
+    public String decodificarParaTexto(CharSequence registroBase64, EnvelopeSessao envelope, long sequencia) throws GeneralSecurityException {
+        ByteBuffer dados = decodificar(registroBase64, envelope, sequencia);
+        if (RegistroBinario.ehBinario(dados)) {
+            dados = serializar(leitorBinario.envolver(dados, envelope.getCabecalhos()).paraRegistro(), Formato.JSON, -1);
+        }
+        byte[] json = new byte[dados.remaining()];
+        dados.get(json);
+        return new String(json, StandardCharsets.UTF_8);
+    }
+
+    private int cifrar(ByteBuffer dados, EnvelopeSessao envelope, long sequencia) throws GeneralSecurityException {
+        if (comprimir) {
+            int tamanho = dados.remaining();
+            dados.get(claro, 0, tamanho);
+            int tamanhoComprimido = obterCompressor().comprimir(claro, tamanho, comprimido);
+            if (tamanhoComprimido > 0) {
+                bufferComprimido.clear();
+                bufferComprimido.limit(tamanhoComprimido);
+                dados = bufferComprimido;
+            } else {
+                // A compressão não reduziu os dados; eles seguem como estão
+                dados.position(dados.position() - tamanho);
+            }
+        }
+        bufferCifrado.clear();
+        int tamanhoCifrado = envelope.criptografar(sequencia, dados, bufferCifrado);
+        tamanhoBase64 = codificarBase64(cifrado, tamanhoCifrado, base64);
+        return tamanhoBase64;
+    }
+
+    private ByteBuffer descomprimir(ByteBuffer dados) {
+        int tamanho = dados.remaining();
+        dados.get(claro, 0, tamanho);
+        int tamanhoOriginal = CompressorTelemetria.tamanhoOriginal(claro, tamanho);
+        if (tamanhoOriginal > descomprimido.length) {
+            descomprimido = new byte[Math.max(tamanhoOriginal, 2 * descomprimido.length)];
+            bufferDescomprimido = ByteBuffer.wrap(descomprimido);
+        }
+        int tamanhoDescomprimido = obterCompressor().descomprimir(claro, tamanho, descomprimido);
+        bufferDescomprimido.clear();
+        bufferDescomprimido.limit(tamanhoDescomprimido);
+        return bufferDescomprimido;
+    }
+
+    private CompressorTelemetria obterCompressor() {
+        if (compressor == null) {
+            compressor = new CompressorTelemetria();
+        }
+        return compressor;
+    }
+
+    private void escreverJSON(RegistroTelemetria registro) {
+        texto.put((byte) '{');
+        escreverCampo("velocidadeMediaParcial", false);
+        escreverDouble(registro.getVelocidadeMediaParcial());
+        escreverCampo("distanciaPercorrida", true);
+        escreverDouble(registro.getDistanciaPercorrida());
+        escreverCampo("tempoParaDestinoFinal", true);
+        numero.setLength(0);
+        escreverNumero(numero.append(registro.getTempoParaDestinoFinal()));
+        escreverCampo("numeroIdentificacao", true);
+        escreverTexto(registro.getNumeroIdentificacao());
+        escreverCampo("dataHoraInicio", true);
+        escreverTexto(registro.getDataHoraInicio());
+        escreverCampo("dataHoraFim", true);
+        escreverTexto(registro.getDataHoraFim());
+        escreverCampo("descricaoCarga", true);
+        escreverTexto(registro.getDescricaoCarga());
+        escreverCampo("nomeMotorista", true);
+        escreverTexto(registro.getNomeMotorista());
+        escreverCampo("respectivoIntervalo", true);
+        numero.setLength(0);
+        escreverNumero(numero.append(registro.getRespectivoIntervalo()));
+        escreverCampo("intervaloTempoLocalizacoes", true);
+        numero.setLength(0);
+        escreverNumero(numero.append(registro.getIntervaloTempoLocalizacoes()));
+        texto.put((byte) '}');
+    }
+
+    private void escreverCampo(String nome, boolean separador) {
+        if (separador) {
+            texto.put((byte) ',');
+        }
+        texto.put((byte) '"');
+        for (int i = 0; i < nome.length(); ++i) {
+            texto.put((byte) nome.charAt(i));
+        }
+        texto.put((byte) '"').put((byte) ':');
+    }
+
+    private void escreverDouble(double valor) {
+        if (Double.isNaN(valor) || Double.isInfinite(valor)) {
+            throw new IllegalArgumentException("Valores não finitos não são permitidos em JSON.");
+        }
+        numero.setLength(0);
+        escreverNumero(numero.append(valor));
+    }
+
+    private void escreverNumero(CharSequence valor) {
+        for (int i = 0; i < valor.length(); ++i) {
+            texto.put((byte) valor.charAt(i));
+        }
+    }
+
+    private void escreverTexto(String valor) {
+        if (valor == null) {
+            texto.put((byte) 'n').put((byte) 'u').put((byte) 'l').put((byte) 'l');
+            return;
+        }
+        texto.put((byte) '"');
+        for (int i = 0; i < valor.length(); ++i) {
+            char c = valor.charAt(i);
+            if (c == '"' || c == '\\') {
+                texto.put((byte) '\\').put((byte) c);
+            } else if (c < 0x20) {
+                texto.put((byte) '\\').put((byte) 'u').put((byte) '0').put((byte) '0')
+                        .put(DIGITOS_HEX[c >> 4]).put(DIGITOS_HEX[c & 0xF]);
+            } else if (c < 0x80) {
+                texto.put((byte) c);
+            } else if (c < 0x800) {
+                texto.put((byte) (0xC0 | (c >> 6))).put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < valor.length() && Character.isLowSurrogate(valor.charAt(i + 1))) {
+                int codigo = Character.toCodePoint(c, valor.charAt(++i));
+                texto.put((byte) (0xF0 | (codigo >> 18))).put((byte) (0x80 | ((codigo >> 12) & 0x3F)))
+                        .put((byte) (0x80 | ((codigo >> 6) & 0x3F))).put((byte) (0x80 | (codigo & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                texto.put((byte) '?');
+            } else {
+                texto.put((byte) (0xE0 | (c >> 12))).put((byte) (0x80 | ((c >> 6) & 0x3F))).put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        texto.put((byte) '"');
+    }
+
+    /**
+     * Codifica os primeiros tamanho bytes de origem em Base64 (RFC 4648, com preenchimento), como Base64.getEncoder(),
+     * mas sem exigir um array de origem do tamanho exato.
+     */
+    private static int codificarBase64(byte[] origem, int tamanho, byte[] destino) {
+        int j = 0;
+        int i = 0;
+        for (; i + 2 < tamanho; i += 3) {
+            int bits = (origem[i] & 0xFF) << 16 | (origem[i + 1] & 0xFF) << 8 | (origem[i + 2] & 0xFF);
+            destino[j++] = ALFABETO_BASE64[bits >>> 18];
+            destino[j++] = ALFABETO_BASE64[(bits >>> 12) & 0x3F];
+            destino[j++] = ALFABETO_BASE64[(bits >>> 6) & 0x3F];
+            destino[j++] = ALFABETO_BASE64[bits & 0x3F];
+        }
+        if (i < tamanho) {
+            int bits = (origem[i] & 0xFF) << 16 | (i + 1 < tamanho ? (origem[i + 1] & 0xFF) << 8 : 0);
+            destino[j++] = ALFABETO_BASE64[bits >>> 18];
+            destino[j++] = ALFABETO_BASE64[(bits >>> 12) & 0x3F];
+            destino[j++] = i + 1 < tamanho ? ALFABETO_BASE64[(bits >>> 6) & 0x3F] : (byte) '=';
+            destino[j++] = '=';
+        }
+        return j;
+    }
+
+    /**
+     * Decodifica um texto em Base64 (RFC 4648, com ou sem preenchimento) diretamente no array de destino.
+     */
+    private static int decodificarBase64(CharSequence origem, byte[] destino) {
+        int tamanho = origem.length();
+        while (tamanho > 0 && origem.charAt(tamanho - 1) == '=') {
+            --tamanho;
+        }
+        int j = 0;
+        int bits = 0;
+        int quantidade = 0;
+        for (int i = 0; i < tamanho; ++i) {
+            char c = origem.charAt(i);
+            int valor = c < 128 ? VALORES_BASE64[c] : -1;
+            if (valor < 0) {
+                throw new IllegalArgumentException("Caractere inválido em Base64: " + c);
+            }
+            bits = bits << 6 | valor;
+            quantidade += 6;
+            if (quantidade >= 8) {
+                quantidade -= 8;
+                destino[j++] = (byte) (bits >>> quantidade);
+            }
+        }
+        return j;
+    }
+
+    private void alocar(int capacidade) {
+        int capacidadeCifrado = EnvelopeSessao.TAMANHO_NONCE + capacidade + TAMANHO_TAG_BYTES;
+        texto = ByteBuffer.allocateDirect(capacidade);
+        cifrado = new byte[capacidadeCifrado];
+        bufferCifrado = ByteBuffer.wrap(cifrado);
+        base64 = new byte[4 * ((capacidadeCifrado + 2) / 3)];
+        claro = new byte[capacidade];
+        comprimido = new byte[capacidade];
+        bufferComprimido = ByteBuffer.wrap(comprimido);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+/**
+ * Estado de reconciliação de uma rota com um número arbitrário de segmentos.
+ * As medições são {tempo para o destino final, tempo do segmento 1, ..., tempo do segmento n}, sujeitas
+ * à restrição de que a soma dos tempos dos segmentos é igual ao tempo para o destino final.
+ * Os segmentos começam estimados (tempo total dividido igualmente, variância 1.0) e passam a medidos
+ * (variância 0.0) à medida que são concluídos, cada um com custo O(1).
+ */
+public class ReconciliacaoRota {
+    private final int numeroSegmentos;
+    private final double tempoParaDestinoFinal;
+    private final IncrementalReconciliation reconciliacao;
+
+    /**
+     * Construtor da classe ReconciliacaoRota.
+     *
+     * @param numeroSegmentos o número de segmentos da rota.
+     * @param tempoParaDestinoFinal o tempo previsto para percorrer a rota inteira.
+     */
+    public ReconciliacaoRota(int numeroSegmentos, double tempoParaDestinoFinal) {
+        if (numeroSegmentos < 1) {
+            throw new IllegalArgumentException("a rota deve ter pelo menos um segmento.");
+        }
+        this.numeroSegmentos = numeroSegmentos;
+        this.tempoParaDestinoFinal = tempoParaDestinoFinal;
+
+        double[] tempos = new double[numeroSegmentos + 1];
+        double[] variancias = new double[numeroSegmentos + 1];
+        double[][] incidencia = new double[1][numeroSegmentos + 1];
+        tempos[0] = tempoParaDestinoFinal;
+        variancias[0] = 0.0;
+        incidencia[0][0] = 1.0;
+        for (int i = 1; i <= numeroSegmentos; ++i) {
+            tempos[i] = getTempoEstimadoSegmento();
+            variancias[i] = 1.0;
+            incidencia[0][i] = -1.0;
+        }
+        this.reconciliacao = new IncrementalReconciliation(tempos, variancias, incidencia);
+    }
+
+    /**
+     * Registra o tempo medido de um segmento concluído.
+     *
+     * @param segmento o segmento concluído, de 1 a {@link #getNumeroSegmentos()}.
+     * @param tempoMedido o tempo medido no segmento.
+     */
+    public void registrarSegmento(int segmento, double tempoMedido) {
+        if (segmento == numeroSegmentos) {
+            // No último segmento o tempo para o destino final passa a absorver o ajuste
+            reconciliacao.updateMeasurement(0, tempoParaDestinoFinal, 1.0);
+        }
+        reconciliacao.updateMeasurement(segmento, tempoMedido, 0.0);
+    }
+
+    /**
+     * Obtém o tempo reconciliado de um segmento.
+     *
+     * @param segmento o segmento, de 1 a {@link #getNumeroSegmentos()}.
+     * @return o tempo reconciliado do segmento.
+     */
+    public double getTempoReconciliado(int segmento) {
+        return reconciliacao.getReconciledFlow(segmento);
+    }
+
+    /**
+     * Obtém o tempo estimado de cada segmento antes de qualquer medição.
+     *
+     * @return o tempo para o destino final dividido igualmente entre os segmentos.
+     */
+    public double getTempoEstimadoSegmento() {
+        return tempoParaDestinoFinal / numeroSegmentos;
+    }
+
+    public int getNumeroSegmentos() {
+        return numeroSegmentos;
+    }
+}
@@ -80,6 +80,58 @@ public class Reconciliation {
 
     }
 
+    /**
+     * Reconcilia as medições escrevendo o resultado em um array fornecido pelo chamador.
+     * Quando a matriz de incidência possui uma única linha (uma única restrição de balanço), a solução
+     * é calculada em forma fechada, em O(n) e sem alocar matrizes. Para chamadas repetidas com várias restrições,
+     * prefira manter uma {@link ReconciliationWorkspace}.
+     *
+     * @param _rawMeasurement as medições brutas.
+     * @param _standardDeviation as variâncias de cada medição.
+     * @param _incidenceMatrix a matriz de incidência das restrições.
+     * @param _reconciledFlow o array que receberá as medições reconciliadas.
+     * @return true se a reconciliação foi calculada, false se os dados forem nulos ou inconsistentes.
+     */
+    public static boolean reconcile(double[] _rawMeasurement, double[] _standardDeviation, double[][] _incidenceMatrix, double[] _reconciledFlow) {
+        if (_rawMeasurement == null || _standardDeviation == null || _incidenceMatrix == null || _reconciledFlow == null) {
+            System.out.println("the rawMeasurement and/or standardDeviation and/or incidenceMatrix have null data.");
+            return false;
+        }
+        if (_rawMeasurement.length != _standardDeviation.length || _standardDeviation.length != _incidenceMatrix[0].length
+                || _reconciledFlow.length < _rawMeasurement.length) {
+            System.out.println("the rawMeasurement and/or standardDeviation and/or incidenceMatrix have inconsistent data/size.");
+            return false;
+        }
+
+        if (_incidenceMatrix.length == 1) {
+            reconcileSingleConstraint(_rawMeasurement, _standardDeviation, _incidenceMatrix[0], _reconciledFlow, 0, _rawMeasurement.length);
+            return true;
+        }
+
+        ReconciliationWorkspace workspace = new ReconciliationWorkspace(_incidenceMatrix.length, _rawMeasurement.length);
+        return workspace.reconcile(_rawMeasurement, _standardDeviation, _incidenceMatrix, _reconciledFlow);
+    }
+
+    /**
+     * Solução em forma fechada para uma única restrição linear a·y = 0:
+     * y_hat[i] = y[i] - v[i]·a[i]·(a·y) / (Σ a[j]²·v[j]).
+     * Se nenhuma medição puder ser ajustada (Σ a[j]²·v[j] = 0), as medições são copiadas sem ajuste.
+     */
+    static void reconcileSingleConstraint(double[] _rawMeasurement, double[] _standardDeviation, double[] _incidenceRow,
+                                          double[] _reconciledFlow, int _offset, int _length) {
+        double residual = 0.0;
+        double weight = 0.0;
+        for (int i = _offset; i < _offset + _length; ++i) {
+            residual += _incidenceRow[i] * _rawMeasurement[i];
+            weight += _incidenceRow[i] * _incidenceRow[i] * _standardDeviation[i];
+        }
+
+        double lambda = weight != 0.0 ? residual / weight : 0.0;
+        for (int i = _offset; i < _offset + _length; ++i) {
+            _reconciledFlow[i] = _rawMeasurement[i] - _standardDeviation[i] * _incidenceRow[i] * lambda;
+        }
+    }
+
     public void printMatrix(double[][] _m) {
         if (_m != null) {
             for(int i = 0; i < _m.length; ++i) {
@@ -0,0 +1,108 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Reconciliação em lote de muitas viagens, para reprocessar o histórico no servidor.
+ * As viagens são empacotadas em arrays primitivos contíguos: a viagem t ocupa as posições
+ * [tripOffsets[t], tripOffsets[t + 1]) das medições, variâncias e coeficientes da sua restrição de balanço.
+ * O lote é dividido entre os núcleos disponíveis com fork/join e cada viagem é resolvida em forma fechada.
+ */
+public final class ReconciliationBatch {
+    // Quantidade de medições abaixo da qual um bloco de viagens é resolvido sem nova divisão
+    private static final int SEQUENTIAL_THRESHOLD = 8192;
+
+    private ReconciliationBatch() {
+    }
+
+    /**
+     * Reconcilia todas as viagens no pool comum de fork/join.
+     *
+     * @param _tripOffsets o início de cada viagem nos arrays empacotados, seguido do tamanho total.
+     * @param _rawMeasurement as medições brutas de todas as viagens.
+     * @param _standardDeviation as variâncias de todas as medições.
+     * @param _incidenceRow os coeficientes da restrição de balanço de cada viagem.
+     * @return as medições reconciliadas de todas as viagens, no mesmo layout da entrada.
+     */
+    public static double[] reconcile(int[] _tripOffsets, double[] _rawMeasurement, double[] _standardDeviation, double[] _incidenceRow) {
+        double[] reconciledFlow = new double[_rawMeasurement.length];
+        reconcile(_tripOffsets, _rawMeasurement, _standardDeviation, _incidenceRow, reconciledFlow, ForkJoinPool.commonPool());
+        return reconciledFlow;
+    }
+
+    /**
+     * Reconcilia todas as viagens no pool informado, escrevendo o resultado em um array fornecido pelo chamador.
+     *
+     * @param _tripOffsets o início de cada viagem nos arrays empacotados, seguido do tamanho total.
+     * @param _rawMeasurement as medições brutas de todas as viagens.
+     * @param _standardDeviation as variâncias de todas as medições.
+     * @param _incidenceRow os coeficientes da restrição de balanço de cada viagem.
+     * @param _reconciledFlow o array que receberá as medições reconciliadas.
+     * @param pool o pool de fork/join usado para dividir o lote.
+     * @throws IllegalArgumentException se os dados forem nulos ou inconsistentes, ou se os inícios das viagens decrescerem.
+     */
+    public static void reconcile(int[] _tripOffsets, double[] _rawMeasurement, double[] _standardDeviation, double[] _incidenceRow,
+                                 double[] _reconciledFlow, ForkJoinPool pool) {
+        if (_tripOffsets == null || _rawMeasurement == null || _standardDeviation == null || _incidenceRow == null || _reconciledFlow == null) {
+            throw new IllegalArgumentException("the tripOffsets and/or rawMeasurement and/or standardDeviation and/or incidenceMatrix have null data.");
+        }
+        int total = _tripOffsets.length > 0 ? _tripOffsets[_tripOffsets.length - 1] : 0;
+        if (_rawMeasurement.length < total || _standardDeviation.length < total || _incidenceRow.length < total || _reconciledFlow.length < total) {
+            throw new IllegalArgumentException("the rawMeasurement and/or standardDeviation and/or incidenceMatrix have inconsistent data/size.");
+        }
+        for (int t = 0; t < _tripOffsets.length; ++t) {
+            if (_tripOffsets[t] < (t > 0 ? _tripOffsets[t - 1] : 0)) {
+                throw new IllegalArgumentException("the tripOffsets must be non-negative and non-decreasing.");
+            }
+        }
+        if (_tripOffsets.length < 2) {
+            return;
+        }
+
+        pool.invoke(new BatchTask(_tripOffsets, _rawMeasurement, _standardDeviation, _incidenceRow, _reconciledFlow,
+                0, _tripOffsets.length - 1));
+    }
+
+    /**
+     * Tarefa que divide um intervalo de viagens ao meio até que o número de medições seja pequeno.
+     */
+    private static final class BatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] tripOffsets;
+        private final double[] rawMeasurement;
+        private final double[] standardDeviation;
+        private final double[] incidenceRow;
+        private final double[] reconciledFlow;
+        private final int firstTrip;
+        private final int endTrip;
+
+        BatchTask(int[] tripOffsets, double[] rawMeasurement, double[] standardDeviation, double[] incidenceRow,
+                  double[] reconciledFlow, int firstTrip, int endTrip) {
+            this.tripOffsets = tripOffsets;
+            this.rawMeasurement = rawMeasurement;
+            this.standardDeviation = standardDeviation;
+            this.incidenceRow = incidenceRow;
+            this.reconciledFlow = reconciledFlow;
+            this.firstTrip = firstTrip;
+            this.endTrip = endTrip;
+        }
+
+        @Override
+        protected void compute() {
+            int measurements = tripOffsets[endTrip] - tripOffsets[firstTrip];
+            if (endTrip - firstTrip <= 1 || measurements <= SEQUENTIAL_THRESHOLD) {
+                for (int t = firstTrip; t < endTrip; ++t) {
+                    Reconciliation.reconcileSingleConstraint(rawMeasurement, standardDeviation, incidenceRow, reconciledFlow,
+                            tripOffsets[t], tripOffsets[t + 1] - tripOffsets[t]);
+                }
+                return;
+            }
+
+            int middle = (firstTrip + endTrip) >>> 1;
+            invokeAll(new BatchTask(tripOffsets, rawMeasurement, standardDeviation, incidenceRow, reconciledFlow, firstTrip, middle),
+                    new BatchTask(tripOffsets, rawMeasurement, standardDeviation, incidenceRow, reconciledFlow, middle, endTrip));
+        }
+    }
+}
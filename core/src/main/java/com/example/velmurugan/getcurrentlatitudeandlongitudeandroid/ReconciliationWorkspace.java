@@ -0,0 +1,141 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.ejml.dense.row.factory.LinearSolverFactory_DDRM;
+import org.ejml.interfaces.linsol.LinearSolverDense;
+
+/**
+ * Área de trabalho reutilizável para reconciliações repetidas com a mesma topologia
+ * (número de restrições × número de medições).
+ * Os buffers são alocados uma única vez no construtor e o sistema A·V·Aᵀ é resolvido por decomposição
+ * de Cholesky (com LU como alternativa), sem calcular a inversa explícita.
+ * Uma instância não deve ser compartilhada entre threads.
+ */
+public class ReconciliationWorkspace {
+    private static final double SINGULAR_TOLERANCE = 1e-12;
+
+    private final int numConstraints;
+    private final int numMeasurements;
+
+    private final DMatrixRMaj incidenceMatrix;
+    private final DMatrixRMaj weightedTranspose;
+    private final DMatrixRMaj system;
+    private final DMatrixRMaj rawMeasurement;
+    private final DMatrixRMaj residual;
+    private final DMatrixRMaj multipliers;
+    private final DMatrixRMaj adjustment;
+
+    private final LinearSolverDense<DMatrixRMaj> cholesky;
+    private final LinearSolverDense<DMatrixRMaj> lu;
+
+    /**
+     * Construtor da classe ReconciliationWorkspace.
+     *
+     * @param numConstraints o número de restrições (linhas da matriz de incidência).
+     * @param numMeasurements o número de medições (colunas da matriz de incidência).
+     */
+    public ReconciliationWorkspace(int numConstraints, int numMeasurements) {
+        this.numConstraints = numConstraints;
+        this.numMeasurements = numMeasurements;
+        this.incidenceMatrix = new DMatrixRMaj(numConstraints, numMeasurements);
+        this.weightedTranspose = new DMatrixRMaj(numMeasurements, numConstraints);
+        this.system = new DMatrixRMaj(numConstraints, numConstraints);
+        this.rawMeasurement = new DMatrixRMaj(numMeasurements, 1);
+        this.residual = new DMatrixRMaj(numConstraints, 1);
+        this.multipliers = new DMatrixRMaj(numConstraints, 1);
+        this.adjustment = new DMatrixRMaj(numMeasurements, 1);
+        this.cholesky = LinearSolverFactory_DDRM.chol(numConstraints);
+        this.lu = LinearSolverFactory_DDRM.lu(numConstraints);
+    }
+
+    /**
+     * Define a matriz de incidência usada pelas próximas reconciliações.
+     *
+     * @param _incidenceMatrix a matriz de incidência com as dimensões da área de trabalho.
+     * @return true se a matriz foi aceita, false se for nula ou tiver dimensões inconsistentes.
+     */
+    public boolean setIncidenceMatrix(double[][] _incidenceMatrix) {
+        if (_incidenceMatrix == null || _incidenceMatrix.length != numConstraints) {
+            System.out.println("the incidenceMatrix has null data or inconsistent size.");
+            return false;
+        }
+        for (int i = 0; i < numConstraints; ++i) {
+            if (_incidenceMatrix[i].length != numMeasurements) {
+                System.out.println("the incidenceMatrix has null data or inconsistent size.");
+                return false;
+            }
+            System.arraycopy(_incidenceMatrix[i], 0, incidenceMatrix.data, i * numMeasurements, numMeasurements);
+        }
+        return true;
+    }
+
+    /**
+     * Define a matriz de incidência e reconcilia as medições.
+     *
+     * @see #reconcile(double[], double[], double[])
+     */
+    public boolean reconcile(double[] _rawMeasurement, double[] _standardDeviation, double[][] _incidenceMatrix, double[] _reconciledFlow) {
+        return setIncidenceMatrix(_incidenceMatrix) && reconcile(_rawMeasurement, _standardDeviation, _reconciledFlow);
+    }
+
+    /**
+     * Reconcilia as medições com a matriz de incidência atual, escrevendo o resultado em um array fornecido pelo chamador.
+     * Nenhuma alocação é feita após a primeira chamada.
+     *
+     * @param _rawMeasurement as medições brutas.
+     * @param _standardDeviation as variâncias de cada medição.
+     * @param _reconciledFlow o array que receberá as medições reconciliadas.
+     * @return true se a reconciliação foi calculada, false se os dados forem inconsistentes ou o sistema for singular.
+     */
+    public boolean reconcile(double[] _rawMeasurement, double[] _standardDeviation, double[] _reconciledFlow) {
+        if (_rawMeasurement == null || _standardDeviation == null || _reconciledFlow == null) {
+            System.out.println("the rawMeasurement and/or standardDeviation have null data.");
+            return false;
+        }
+        if (_rawMeasurement.length != numMeasurements || _standardDeviation.length != numMeasurements
+                || _reconciledFlow.length < numMeasurements) {
+            System.out.println("the rawMeasurement and/or standardDeviation have inconsistent data/size.");
+            return false;
+        }
+
+        // V·Aᵀ, aproveitando que V é diagonal
+        double[] a = incidenceMatrix.data;
+        double[] vat = weightedTranspose.data;
+        for (int i = 0; i < numMeasurements; ++i) {
+            for (int k = 0; k < numConstraints; ++k) {
+                vat[i * numConstraints + k] = _standardDeviation[i] * a[k * numMeasurements + i];
+            }
+        }
+
+        System.arraycopy(_rawMeasurement, 0, rawMeasurement.data, 0, numMeasurements);
+        CommonOps_DDRM.mult(incidenceMatrix, weightedTranspose, system);
+        CommonOps_DDRM.mult(incidenceMatrix, rawMeasurement, residual);
+
+        // Os solvers modificam a matriz do sistema, então ela é recalculada antes de recorrer à LU
+        if (!cholesky.setA(system)) {
+            CommonOps_DDRM.mult(incidenceMatrix, weightedTranspose, system);
+            if (!lu.setA(system) || lu.quality() <= SINGULAR_TOLERANCE) {
+                System.out.println("the system A·V·Aᵀ is singular.");
+                return false;
+            }
+            lu.solve(residual, multipliers);
+        } else {
+            cholesky.solve(residual, multipliers);
+        }
+
+        CommonOps_DDRM.mult(weightedTranspose, multipliers, adjustment);
+        for (int i = 0; i < numMeasurements; ++i) {
+            _reconciledFlow[i] = _rawMeasurement[i] - adjustment.data[i];
+        }
+        return true;
+    }
+
+    public int getNumConstraints() {
+        return numConstraints;
+    }
+
+    public int getNumMeasurements() {
+        return numMeasurements;
+    }
+}
@@ -0,0 +1,532 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Formato binário versionado dos registros de telemetria, usado no lugar do JSON para reduzir o volume enviado.
+ * Em vez dos nomes dos campos, o registro começa com um byte de identificação do esquema; os campos seguem
+ * sempre na mesma ordem.
+ *
+ * Esquema 1: identificação (1 byte), velocidadeMediaParcial e distanciaPercorrida (double de 8 bytes cada),
+ * tempoParaDestinoFinal, respectivoIntervalo e intervaloTempoLocalizacoes (varint em zigzag) e os textos
+ * numeroIdentificacao, dataHoraInicio, dataHoraFim, descricaoCarga e nomeMotorista (tamanho em UTF-8 + 1 como varint,
+ * 0 para null, seguido dos bytes em UTF-8).
+ *
+ * Esquema 2: como o esquema 1, mas no lugar dos textos vem apenas a sequência (varint) do cabeçalho da sessão
+ * que os contém. O cabeçalho (esquema 3) traz apenas os cinco textos, no mesmo formato, e é enviado uma única vez.
+ *
+ * Lote (esquema 4): o número de registros (varint) seguido dos registros dos esquemas 1, 2 ou 6, um após o outro.
+ *
+ * Diferença (esquema 6), usado apenas dentro de um lote: as diferenças (varint em zigzag) de velocidadeMediaParcial,
+ * distanciaPercorrida, tempoParaDestinoFinal, respectivoIntervalo e intervaloTempoLocalizacoes em relação ao registro
+ * anterior do lote. A velocidade e a distância são quantizadas (QUANTUM_VELOCIDADE e QUANTUM_DISTANCIA) antes da
+ * diferença, sempre a partir dos valores atuais, de modo que o erro não se acumula ao longo da série. Os textos
+ * vêm do registro anterior. Cada lote começa com um quadro-chave (esquema 1 ou 2), repetido periodicamente,
+ * para que a série possa ser retomada sem depender de outros lotes.
+ *
+ * Uma instância funciona como leitor sobre um buffer (envolver()): os números são lidos diretamente do buffer,
+ * sem copiar o registro, e os textos só são convertidos em String quando solicitados. Uma instância não é
+ * thread-safe.
+ */
+public class RegistroBinario {
+    public static final byte ESQUEMA_V1 = 1;
+    public static final byte ESQUEMA_V2 = 2;
+    public static final byte ESQUEMA_CABECALHO = 3;
+    public static final byte ESQUEMA_LOTE = 4;
+    public static final byte ESQUEMA_DIFERENCA = 6;
+    public static final double QUANTUM_VELOCIDADE = 0.01; // km/h
+    public static final double QUANTUM_DISTANCIA = 0.0001; // km (10 cm)
+
+    private static final double ESCALA_VELOCIDADE = 100; // 1 / QUANTUM_VELOCIDADE
+    private static final double ESCALA_DISTANCIA = 10000; // 1 / QUANTUM_DISTANCIA
+    private static final double LIMITE_QUANTIZADO = 1L << 52; // Valores quantizados exatos em double
+    private static final int VALORES_SERIE = 5;
+
+    private static final int POSICAO_VELOCIDADE = 1;
+    private static final int POSICAO_DISTANCIA = 9;
+    private static final int POSICAO_VARINTS = 17;
+    private static final int TEXTOS = 5;
+
+    private ByteBuffer buffer;
+    private int inicio;
+    private long sequenciaCabecalho;
+    private CabecalhoSessao cabecalho;
+    private long tempoParaDestinoFinal;
+    private int respectivoIntervalo;
+    private int intervaloTempoLocalizacoes;
+    private final int[] posicoesTextos = new int[TEXTOS];
+    private final int[] tamanhosTextos = new int[TEXTOS];
+    private byte[] bytesTexto = new byte[64];
+    private int posicao; // Posição de leitura usada apenas durante envolver()
+    private ByteBuffer lote;
+    private final long[] serie = new long[VALORES_SERIE]; // Valores quantizados do registro anterior do lote
+    private boolean temAnterior;
+    private boolean diferenca;
+    private double velocidadeMediaParcial;
+    private double distanciaPercorrida;
+    private int proximoNoLote;
+    private int restantesNoLote;
+
+    /**
+     * Verifica se os dados a partir da posição do buffer estão no formato binário. Registros em JSON começam com '{'.
+     */
+    public static boolean ehBinario(ByteBuffer dados) {
+        return dados.hasRemaining() && dados.get(dados.position()) != '{';
+    }
+
+    /**
+     * Escreve o registro no esquema atual a partir da posição do buffer, avançando a posição.
+     *
+     * @param registro o registro com as métricas do veículo e os dados do serviço de transporte.
+     * @param destino  o buffer de destino.
+     * @throws java.nio.BufferOverflowException se o registro não couber no espaço restante do buffer.
+     */
+    public static void escrever(RegistroTelemetria registro, ByteBuffer destino) {
+        destino.put(ESQUEMA_V1);
+        destino.putDouble(registro.getVelocidadeMediaParcial());
+        destino.putDouble(registro.getDistanciaPercorrida());
+        escreverVarint(destino, zigzag(registro.getTempoParaDestinoFinal()));
+        escreverVarint(destino, zigzag(registro.getRespectivoIntervalo()));
+        escreverVarint(destino, zigzag(registro.getIntervaloTempoLocalizacoes()));
+        escreverTexto(destino, registro.getNumeroIdentificacao());
+        escreverTexto(destino, registro.getDataHoraInicio());
+        escreverTexto(destino, registro.getDataHoraFim());
+        escreverTexto(destino, registro.getDescricaoCarga());
+        escreverTexto(destino, registro.getNomeMotorista());
+    }
+
+    /**
+     * Escreve o registro no esquema 2, referenciando o cabeçalho da sessão em vez de repetir os textos.
+     *
+     * @param registro           o registro com as métricas do veículo.
+     * @param sequenciaCabecalho a sequência do cabeçalho da sessão com os dados do serviço de transporte.
+     * @param destino            o buffer de destino.
+     * @throws java.nio.BufferOverflowException se o registro não couber no espaço restante do buffer.
+     */
+    public static void escrever(RegistroTelemetria registro, long sequenciaCabecalho, ByteBuffer destino) {
+        destino.put(ESQUEMA_V2);
+        destino.putDouble(registro.getVelocidadeMediaParcial());
+        destino.putDouble(registro.getDistanciaPercorrida());
+        escreverVarint(destino, zigzag(registro.getTempoParaDestinoFinal()));
+        escreverVarint(destino, zigzag(registro.getRespectivoIntervalo()));
+        escreverVarint(destino, zigzag(registro.getIntervaloTempoLocalizacoes()));
+        escreverVarint(destino, sequenciaCabecalho);
+    }
+
+    /**
+     * Escreve o cabeçalho da sessão a partir da posição do buffer, avançando a posição.
+     *
+     * @param cabecalho o cabeçalho com os dados do serviço de transporte.
+     * @param destino   o buffer de destino.
+     * @throws java.nio.BufferOverflowException se o cabeçalho não couber no espaço restante do buffer.
+     */
+    public static void escreverCabecalho(CabecalhoSessao cabecalho, ByteBuffer destino) {
+        destino.put(ESQUEMA_CABECALHO);
+        escreverTexto(destino, cabecalho.getNumeroIdentificacao());
+        escreverTexto(destino, cabecalho.getDataHoraInicio());
+        escreverTexto(destino, cabecalho.getDataHoraFim());
+        escreverTexto(destino, cabecalho.getDescricaoCarga());
+        escreverTexto(destino, cabecalho.getNomeMotorista());
+    }
+
+    /**
+     * Verifica se os valores do registro podem ser quantizados para o esquema de diferença.
+     */
+    static boolean quantizavel(RegistroTelemetria registro) {
+        return Math.abs(registro.getVelocidadeMediaParcial() * ESCALA_VELOCIDADE) < LIMITE_QUANTIZADO
+                && Math.abs(registro.getDistanciaPercorrida() * ESCALA_DISTANCIA) < LIMITE_QUANTIZADO;
+    }
+
+    /**
+     * Guarda em serie os valores quantizados do registro, usados como base da próxima diferença.
+     */
+    static void quantizar(RegistroTelemetria registro, long[] serie) {
+        serie[0] = Math.round(registro.getVelocidadeMediaParcial() * ESCALA_VELOCIDADE);
+        serie[1] = Math.round(registro.getDistanciaPercorrida() * ESCALA_DISTANCIA);
+        serie[2] = registro.getTempoParaDestinoFinal();
+        serie[3] = registro.getRespectivoIntervalo();
+        serie[4] = registro.getIntervaloTempoLocalizacoes();
+    }
+
+    /**
+     * Escreve o registro no esquema de diferença em relação aos valores quantizados do registro anterior,
+     * atualizando serie com os valores do registro.
+     *
+     * @param registro o registro, que deve ser quantizavel().
+     * @param serie    os valores quantizados do registro anterior (veja quantizar()).
+     * @param destino  o buffer de destino.
+     * @throws java.nio.BufferOverflowException se o registro não couber no espaço restante do buffer.
+     */
+    static void escreverDiferenca(RegistroTelemetria registro, long[] serie, ByteBuffer destino) {
+        long velocidade = Math.round(registro.getVelocidadeMediaParcial() * ESCALA_VELOCIDADE);
+        long distancia = Math.round(registro.getDistanciaPercorrida() * ESCALA_DISTANCIA);
+        destino.put(ESQUEMA_DIFERENCA);
+        escreverVarint(destino, zigzag(velocidade - serie[0]));
+        escreverVarint(destino, zigzag(distancia - serie[1]));
+        escreverVarint(destino, zigzag(registro.getTempoParaDestinoFinal() - serie[2]));
+        escreverVarint(destino, zigzag(registro.getRespectivoIntervalo() - serie[3]));
+        escreverVarint(destino, zigzag(registro.getIntervaloTempoLocalizacoes() - serie[4]));
+        quantizar(registro, serie);
+    }
+
+    /**
+     * Escreve o início de um lote a partir da posição do buffer; os registros devem ser escritos em seguida
+     * com escrever().
+     *
+     * @param quantidade o número de registros do lote.
+     * @param destino    o buffer de destino.
+     */
+    public static void escreverInicioLote(int quantidade, ByteBuffer destino) {
+        destino.put(ESQUEMA_LOTE);
+        escreverVarint(destino, quantidade);
+    }
+
+    /**
+     * Passa a ler o registro que começa na posição do buffer. O buffer não é copiado e deve permanecer inalterado
+     * enquanto o registro for lido; a posição do buffer não é alterada.
+     *
+     * @param dados o buffer com o registro.
+     * @return esta instância, para encadear as leituras.
+     * @throws IllegalArgumentException se o esquema for desconhecido ou o registro estiver incompleto.
+     */
+    public RegistroBinario envolver(ByteBuffer dados) {
+        return envolver(dados, null);
+    }
+
+    /**
+     * Passa a ler o registro que começa na posição do buffer, resolvendo os registros do esquema 2 com os cabeçalhos
+     * da sessão já lidos. O buffer não é copiado e deve permanecer inalterado enquanto o registro for lido.
+     *
+     * @param dados      o buffer com o registro.
+     * @param cabecalhos os cabeçalhos da sessão, indexados pela sequência (veja EnvelopeSessao.getCabecalhos()).
+     * @return esta instância, para encadear as leituras.
+     * @throws IllegalArgumentException se o esquema for desconhecido ou o registro estiver incompleto.
+     * @throws CabecalhoAusenteException se o cabeçalho referenciado não tiver sido lido.
+     */
+    public RegistroBinario envolver(ByteBuffer dados, Map<Long, CabecalhoSessao> cabecalhos) {
+        temAnterior = false;
+        return envolver(dados, dados.position(), cabecalhos);
+    }
+
+    /**
+     * Passa a ler o lote que começa na posição do buffer; os registros são lidos em ordem com proximo().
+     *
+     * @param dados o buffer com o lote.
+     * @return o número de registros do lote.
+     * @throws IllegalArgumentException se os dados não forem um lote.
+     */
+    public int envolverLote(ByteBuffer dados) {
+        buffer = dados;
+        inicio = dados.position();
+        if (!dados.hasRemaining() || dados.get(inicio) != ESQUEMA_LOTE) {
+            throw new IllegalArgumentException("Os dados não são um lote de registros.");
+        }
+        try {
+            posicao = inicio + 1;
+            restantesNoLote = (int) lerVarint();
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Lote de registros incompleto.", e);
+        }
+        lote = dados;
+        proximoNoLote = posicao;
+        temAnterior = false;
+        return restantesNoLote;
+    }
+
+    /**
+     * Passa a ler o próximo registro do lote aberto com envolverLote().
+     *
+     * @param cabecalhos os cabeçalhos da sessão, indexados pela sequência.
+     * @return esta instância, ou null se não houver mais registros no lote.
+     * @throws IllegalArgumentException se o registro for inválido.
+     * @throws CabecalhoAusenteException se o cabeçalho referenciado pelo registro não tiver sido lido.
+     */
+    public RegistroBinario proximo(Map<Long, CabecalhoSessao> cabecalhos) {
+        if (lote == null || restantesNoLote == 0) {
+            return null;
+        }
+        --restantesNoLote;
+        envolver(lote, proximoNoLote, cabecalhos);
+        proximoNoLote = posicao;
+        return this;
+    }
+
+    private RegistroBinario envolver(ByteBuffer dados, int inicio, Map<Long, CabecalhoSessao> cabecalhos) {
+        buffer = dados;
+        this.inicio = inicio;
+        byte esquema = inicio < dados.limit() ? dados.get(inicio) : 0;
+        if (esquema == ESQUEMA_DIFERENCA) {
+            return envolverDiferenca(dados, inicio);
+        }
+        if (esquema != ESQUEMA_V1 && esquema != ESQUEMA_V2) {
+            throw new IllegalArgumentException("Esquema de registro binário desconhecido.");
+        }
+        diferenca = false;
+        try {
+            posicao = inicio + POSICAO_VARINTS;
+            tempoParaDestinoFinal = dezigzag(lerVarint());
+            respectivoIntervalo = (int) dezigzag(lerVarint());
+            intervaloTempoLocalizacoes = (int) dezigzag(lerVarint());
+            if (esquema == ESQUEMA_V1) {
+                sequenciaCabecalho = -1;
+                cabecalho = null;
+                lerTextos();
+            } else {
+                sequenciaCabecalho = lerVarint();
+                cabecalho = cabecalhos != null ? cabecalhos.get(sequenciaCabecalho) : null;
+                if (cabecalho == null) {
+                    throw new CabecalhoAusenteException(sequenciaCabecalho);
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Registro binário incompleto.", e);
+        }
+        if (posicao > dados.limit()) {
+            throw new IllegalArgumentException("Registro binário incompleto.");
+        }
+
+        // O quadro-chave é a base da diferença do próximo registro do lote
+        serie[0] = Math.round(getVelocidadeMediaParcial() * ESCALA_VELOCIDADE);
+        serie[1] = Math.round(getDistanciaPercorrida() * ESCALA_DISTANCIA);
+        serie[2] = tempoParaDestinoFinal;
+        serie[3] = respectivoIntervalo;
+        serie[4] = intervaloTempoLocalizacoes;
+        temAnterior = true;
+        return this;
+    }
+
+    private RegistroBinario envolverDiferenca(ByteBuffer dados, int inicio) {
+        if (!temAnterior) {
+            throw new IllegalArgumentException("Registro de diferença sem um quadro-chave anterior no lote.");
+        }
+        try {
+            posicao = inicio + 1;
+            for (int i = 0; i < VALORES_SERIE; ++i) {
+                serie[i] += dezigzag(lerVarint());
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Registro binário incompleto.", e);
+        }
+        if (posicao > dados.limit()) {
+            throw new IllegalArgumentException("Registro binário incompleto.");
+        }
+        // Os textos e o cabeçalho continuam os do registro anterior
+        diferenca = true;
+        velocidadeMediaParcial = serie[0] / ESCALA_VELOCIDADE;
+        distanciaPercorrida = serie[1] / ESCALA_DISTANCIA;
+        tempoParaDestinoFinal = serie[2];
+        respectivoIntervalo = (int) serie[3];
+        intervaloTempoLocalizacoes = (int) serie[4];
+        return this;
+    }
+
+    /**
+     * Lê o cabeçalho de sessão que começa na posição do buffer, sem alterar a posição.
+     *
+     * @param dados o buffer com o cabeçalho.
+     * @return o cabeçalho.
+     * @throws IllegalArgumentException se os dados não forem um cabeçalho ou estiverem incompletos.
+     */
+    public CabecalhoSessao lerCabecalho(ByteBuffer dados) {
+        buffer = dados;
+        inicio = dados.position();
+        if (!dados.hasRemaining() || dados.get(inicio) != ESQUEMA_CABECALHO) {
+            throw new IllegalArgumentException("Os dados não são um cabeçalho de sessão.");
+        }
+        try {
+            posicao = inicio + 1;
+            lerTextos();
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Cabeçalho de sessão incompleto.", e);
+        }
+        if (posicao > dados.limit()) {
+            throw new IllegalArgumentException("Cabeçalho de sessão incompleto.");
+        }
+        cabecalho = null;
+        temAnterior = false;
+        return new CabecalhoSessao(lerTexto(0), lerTexto(1), lerTexto(2), lerTexto(3), lerTexto(4));
+    }
+
+    /**
+     * Obtém o tamanho em bytes do registro envolvido.
+     */
+    public int getTamanho() {
+        return posicao - inicio;
+    }
+
+    /**
+     * Obtém a sequência do cabeçalho referenciado pelo registro envolvido, ou -1 se o registro traz os próprios textos.
+     */
+    public long getSequenciaCabecalho() {
+        return sequenciaCabecalho;
+    }
+
+    public double getVelocidadeMediaParcial() {
+        return diferenca ? velocidadeMediaParcial : buffer.getDouble(inicio + POSICAO_VELOCIDADE);
+    }
+
+    public double getDistanciaPercorrida() {
+        return diferenca ? distanciaPercorrida : buffer.getDouble(inicio + POSICAO_DISTANCIA);
+    }
+
+    public long getTempoParaDestinoFinal() {
+        return tempoParaDestinoFinal;
+    }
+
+    public int getRespectivoIntervalo() {
+        return respectivoIntervalo;
+    }
+
+    public int getIntervaloTempoLocalizacoes() {
+        return intervaloTempoLocalizacoes;
+    }
+
+    public String getNumeroIdentificacao() {
+        return cabecalho != null ? cabecalho.getNumeroIdentificacao() : lerTexto(0);
+    }
+
+    public String getDataHoraInicio() {
+        return cabecalho != null ? cabecalho.getDataHoraInicio() : lerTexto(1);
+    }
+
+    public String getDataHoraFim() {
+        return cabecalho != null ? cabecalho.getDataHoraFim() : lerTexto(2);
+    }
+
+    public String getDescricaoCarga() {
+        return cabecalho != null ? cabecalho.getDescricaoCarga() : lerTexto(3);
+    }
+
+    public String getNomeMotorista() {
+        return cabecalho != null ? cabecalho.getNomeMotorista() : lerTexto(4);
+    }
+
+    /**
+     * Copia o registro envolvido para um RegistroTelemetria.
+     */
+    public RegistroTelemetria paraRegistro() {
+        return new RegistroTelemetria(getVelocidadeMediaParcial(), getDistanciaPercorrida(), tempoParaDestinoFinal,
+                getNumeroIdentificacao(), getDataHoraInicio(), getDataHoraFim(), getDescricaoCarga(),
+                getNomeMotorista(), respectivoIntervalo, intervaloTempoLocalizacoes);
+    }
+
+    private void lerTextos() {
+        for (int i = 0; i < TEXTOS; ++i) {
+            int tamanho = (int) lerVarint() - 1;
+            tamanhosTextos[i] = tamanho;
+            posicoesTextos[i] = posicao;
+            posicao += Math.max(tamanho, 0);
+        }
+    }
+
+    private String lerTexto(int indice) {
+        int tamanho = tamanhosTextos[indice];
+        if (tamanho < 0) {
+            return null;
+        }
+        if (tamanho > bytesTexto.length) {
+            bytesTexto = new byte[Math.max(tamanho, bytesTexto.length * 2)];
+        }
+        int origem = posicoesTextos[indice];
+        for (int i = 0; i < tamanho; ++i) {
+            bytesTexto[i] = buffer.get(origem + i);
+        }
+        return new String(bytesTexto, 0, tamanho, StandardCharsets.UTF_8);
+    }
+
+    private long lerVarint() {
+        long valor = 0;
+        for (int deslocamento = 0; deslocamento < 64; deslocamento += 7) {
+            byte b = buffer.get(posicao++);
+            valor |= (long) (b & 0x7F) << deslocamento;
+            if (b >= 0) {
+                return valor;
+            }
+        }
+        throw new IllegalArgumentException("Varint inválido no registro binário.");
+    }
+
+    static void escreverVarint(ByteBuffer destino, long valor) {
+        while ((valor & ~0x7FL) != 0) {
+            destino.put((byte) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        destino.put((byte) valor);
+    }
+
+    static long zigzag(long valor) {
+        return (valor << 1) ^ (valor >> 63);
+    }
+
+    static long dezigzag(long valor) {
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+
+    private static void escreverTexto(ByteBuffer destino, String valor) {
+        if (valor == null) {
+            destino.put((byte) 0);
+            return;
+        }
+        escreverVarint(destino, tamanhoUTF8(valor) + 1);
+        for (int i = 0; i < valor.length(); ++i) {
+            char c = valor.charAt(i);
+            if (c < 0x80) {
+                destino.put((byte) c);
+            } else if (c < 0x800) {
+                destino.put((byte) (0xC0 | (c >> 6))).put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < valor.length() && Character.isLowSurrogate(valor.charAt(i + 1))) {
+                int codigo = Character.toCodePoint(c, valor.charAt(++i));
+                destino.put((byte) (0xF0 | (codigo >> 18))).put((byte) (0x80 | ((codigo >> 12) & 0x3F)))
+                        .put((byte) (0x80 | ((codigo >> 6) & 0x3F))).put((byte) (0x80 | (codigo & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                destino.put((byte) '?');
+            } else {
+                destino.put((byte) (0xE0 | (c >> 12))).put((byte) (0x80 | ((c >> 6) & 0x3F))).put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private static int tamanhoUTF8(String valor) {
+        int tamanho = 0;
+        for (int i = 0; i < valor.length(); ++i) {
+            char c = valor.charAt(i);
+            if (c < 0x80) {
+                tamanho += 1;
+            } else if (c < 0x800) {
+                tamanho += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < valor.length() && Character.isLowSurrogate(valor.charAt(i + 1))) {
+                tamanho += 4;
+                ++i;
+            } else if (Character.isSurrogate(c)) {
+                tamanho += 1;
+            } else {
+                tamanho += 3;
+            }
+        }
+        return tamanho;
+    }
+
+    /**
+     * Indica que um registro do esquema 2 referencia um cabeçalho da sessão que ainda não foi lido. Ao contrário dos
+     * demais erros de leitura, o registro é válido e pode ser lido de novo quando o cabeçalho chegar.
+     */
+    public static class CabecalhoAusenteException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        private final long sequenciaCabecalho;
+
+        CabecalhoAusenteException(long sequenciaCabecalho) {
+            super("Cabeçalho " + sequenciaCabecalho + " da sessão não encontrado.");
+            this.sequenciaCabecalho = sequenciaCabecalho;
+        }
+
+        /**
+         * Obtém a sequência do cabeçalho referenciado pelo registro.
+         */
+        public long getSequenciaCabecalho() {
+            return sequenciaCabecalho;
+        }
+    }
+}
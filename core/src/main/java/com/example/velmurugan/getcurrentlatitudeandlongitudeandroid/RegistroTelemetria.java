@@ -0,0 +1,89 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+/**
+ * Registro imutável com as métricas do veículo e os dados do serviço de transporte em uma troca de localização.
+ */
+public class RegistroTelemetria {
+    private final double velocidadeMediaParcial;
+    private final double distanciaPercorrida;
+    private final long tempoParaDestinoFinal;
+    private final String numeroIdentificacao;
+    private final String dataHoraInicio;
+    private final String dataHoraFim;
+    private final String descricaoCarga;
+    private final String nomeMotorista;
+    private final int respectivoIntervalo;
+    private final int intervaloTempoLocalizacoes;
+
+    /**
+     * Construtor da classe RegistroTelemetria.
+     */
+    public RegistroTelemetria(double velocidadeMediaParcial, double distanciaPercorrida,
+                              long tempoParaDestinoFinal, String numeroIdentificacao, String dataHoraInicio,
+                              String dataHoraFim, String descricaoCarga, String nomeMotorista,
+                              int respectivoIntervalo, int intervaloTempoLocalizacoes) {
+        this.velocidadeMediaParcial = velocidadeMediaParcial;
+        this.distanciaPercorrida = distanciaPercorrida;
+        this.tempoParaDestinoFinal = tempoParaDestinoFinal;
+        this.numeroIdentificacao = numeroIdentificacao;
+        this.dataHoraInicio = dataHoraInicio;
+        this.dataHoraFim = dataHoraFim;
+        this.descricaoCarga = descricaoCarga;
+        this.nomeMotorista = nomeMotorista;
+        this.respectivoIntervalo = respectivoIntervalo;
+        this.intervaloTempoLocalizacoes = intervaloTempoLocalizacoes;
+    }
+
+    /**
+     * Cria um registro com as métricas informadas e os dados do serviço de transporte
+     * (primeira carga e primeiro motorista).
+     */
+    public static RegistroTelemetria de(ServicoTransporte servicoTransporte, double velocidadeMediaParcial,
+                                        double distanciaPercorrida, long tempoParaDestinoFinal,
+                                        int respectivoIntervalo, int intervaloTempoLocalizacoes) {
+        return new RegistroTelemetria(velocidadeMediaParcial, distanciaPercorrida, tempoParaDestinoFinal,
+                servicoTransporte.getNumeroIdentificacao(), servicoTransporte.getDataHoraInicio(),
+                servicoTransporte.getDataHoraFim(), servicoTransporte.getCargas().get(0).getDescricao(),
+                servicoTransporte.getMotoristas().get(0).getNome(), respectivoIntervalo, intervaloTempoLocalizacoes);
+    }
+
+    public double getVelocidadeMediaParcial() {
+        return velocidadeMediaParcial;
+    }
+
+    public double getDistanciaPercorrida() {
+        return distanciaPercorrida;
+    }
+
+    public long getTempoParaDestinoFinal() {
+        return tempoParaDestinoFinal;
+    }
+
+    public String getNumeroIdentificacao() {
+        return numeroIdentificacao;
+    }
+
+    public String getDataHoraInicio() {
+        return dataHoraInicio;
+    }
+
+    public String getDataHoraFim() {
+        return dataHoraFim;
+    }
+
+    public String getDescricaoCarga() {
+        return descricaoCarga;
+    }
+
+    public String getNomeMotorista() {
+        return nomeMotorista;
+    }
+
+    public int getRespectivoIntervalo() {
+        return respectivoIntervalo;
+    }
+
+    public int getIntervaloTempoLocalizacoes() {
+        return intervaloTempoLocalizacoes;
+    }
+}
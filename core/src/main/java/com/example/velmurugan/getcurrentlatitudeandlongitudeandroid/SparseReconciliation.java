@@ -0,0 +1,224 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import org.ejml.data.DGrowArray;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.data.DMatrixSparseCSC;
+import org.ejml.data.DMatrixSparseTriplet;
+import org.ejml.data.IGrowArray;
+import org.ejml.ops.DConvertMatrixStruct;
+import org.ejml.sparse.ComputePermutation;
+import org.ejml.sparse.csc.CommonOps_DSCC;
+import org.ejml.sparse.csc.decomposition.chol.CholeskyUpLooking_DSCC;
+import org.ejml.sparse.csc.linsol.chol.LinearSolverCholesky_DSCC;
+import org.ejml.interfaces.linsol.LinearSolverSparse;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Reconciliação para redes de rotas com muitas restrições de janela de tempo em que cada restrição
+ * envolve poucos segmentos. A matriz de incidência é esparsa (CSC) e o sistema A·V·Aᵀ é resolvido por
+ * Cholesky esparsa, de modo que o custo cresce com o número de elementos não nulos e não com n³.
+ * As restrições são eliminadas na ordem de grau mínimo do grafo de A·Aᵀ (duas restrições são vizinhas quando
+ * compartilham uma medição), calculada uma vez no construtor: sem ela, uma restrição que envolve muitas outras,
+ * como o tempo total de uma viagem com vários pontos de controle, preencheria o fator de Cholesky inteiro.
+ * A estrutura do sistema é fixada após a primeira solução e reaproveitada nas seguintes.
+ * Uma instância não deve ser compartilhada entre threads.
+ */
+public class SparseReconciliation {
+    private final int numConstraints;
+    private final int numMeasurements;
+
+    private final DMatrixSparseCSC incidenceMatrix;
+    private final DMatrixSparseCSC incidenceTranspose;
+    private final DMatrixSparseCSC weightedIncidence;
+    private final DMatrixSparseCSC system;
+    private final DMatrixRMaj rawMeasurement;
+    private final DMatrixRMaj residual;
+    private final DMatrixRMaj multipliers;
+    private final DMatrixRMaj adjustment;
+
+    private final IGrowArray gw = new IGrowArray();
+    private final DGrowArray gx = new DGrowArray();
+    private final CholeskyUpLooking_DSCC decomposition = new CholeskyUpLooking_DSCC();
+    private final LinearSolverSparse<DMatrixSparseCSC, DMatrixRMaj> cholesky;
+    private boolean structureLocked;
+
+    /**
+     * Construtor da classe SparseReconciliation a partir das entradas não nulas da matriz de incidência.
+     *
+     * @param numConstraints o número de restrições (linhas da matriz de incidência).
+     * @param numMeasurements o número de medições (colunas da matriz de incidência).
+     * @param _constraintIndex a restrição (linha) de cada entrada não nula.
+     * @param _measurementIndex a medição (coluna) de cada entrada não nula.
+     * @param _coefficient o coeficiente de cada entrada não nula.
+     */
+    public SparseReconciliation(int numConstraints, int numMeasurements,
+                                int[] _constraintIndex, int[] _measurementIndex, double[] _coefficient) {
+        if (_constraintIndex == null || _measurementIndex == null || _coefficient == null) {
+            throw new IllegalArgumentException("the incidenceMatrix has null data.");
+        }
+        if (_constraintIndex.length != _measurementIndex.length || _measurementIndex.length != _coefficient.length) {
+            throw new IllegalArgumentException("the incidenceMatrix has inconsistent data/size.");
+        }
+
+        this.numConstraints = numConstraints;
+        this.numMeasurements = numMeasurements;
+
+        DMatrixSparseTriplet triplet = new DMatrixSparseTriplet(numConstraints, numMeasurements, _coefficient.length);
+        for (int i = 0; i < _coefficient.length; ++i) {
+            triplet.addItem(_constraintIndex[i], _measurementIndex[i], _coefficient[i]);
+        }
+        this.incidenceMatrix = DConvertMatrixStruct.convert(triplet, (DMatrixSparseCSC) null);
+        this.incidenceTranspose = CommonOps_DSCC.transpose(incidenceMatrix, null, gw);
+        this.weightedIncidence = new DMatrixSparseCSC(incidenceMatrix);
+        this.system = new DMatrixSparseCSC(numConstraints, numConstraints, 0);
+        this.rawMeasurement = new DMatrixRMaj(numMeasurements, 1);
+        this.residual = new DMatrixRMaj(numConstraints, 1);
+        this.multipliers = new DMatrixRMaj(numConstraints, 1);
+        this.adjustment = new DMatrixRMaj(numMeasurements, 1);
+        this.cholesky = new LinearSolverCholesky_DSCC(decomposition, new FixedOrdering(minimumDegreeOrder(incidenceMatrix)));
+    }
+
+    /**
+     * Reconcilia as medições, escrevendo o resultado em um array fornecido pelo chamador.
+     *
+     * @param _rawMeasurement as medições brutas.
+     * @param _standardDeviation as variâncias de cada medição.
+     * @param _reconciledFlow o array que receberá as medições reconciliadas.
+     * @return true se a reconciliação foi calculada, false se os dados forem inconsistentes ou o sistema não for definido positivo.
+     */
+    public boolean reconcile(double[] _rawMeasurement, double[] _standardDeviation, double[] _reconciledFlow) {
+        if (_rawMeasurement == null || _standardDeviation == null || _reconciledFlow == null) {
+            System.out.println("the rawMeasurement and/or standardDeviation have null data.");
+            return false;
+        }
+        if (_rawMeasurement.length != numMeasurements || _standardDeviation.length != numMeasurements
+                || _reconciledFlow.length < numMeasurements) {
+            System.out.println("the rawMeasurement and/or standardDeviation have inconsistent data/size.");
+            return false;
+        }
+
+        // A·V escalando as colunas de A, e então A·V·Aᵀ; a estrutura de não nulos não depende de V
+        weightedIncidence.setTo(incidenceMatrix);
+        CommonOps_DSCC.multColumns(weightedIncidence, _standardDeviation, 0);
+        CommonOps_DSCC.mult(weightedIncidence, incidenceTranspose, system, gw, gx);
+
+        System.arraycopy(_rawMeasurement, 0, rawMeasurement.data, 0, numMeasurements);
+        CommonOps_DSCC.mult(incidenceMatrix, rawMeasurement, residual);
+
+        if (!cholesky.setA(system)) {
+            System.out.println("the system A·V·Aᵀ is not positive definite.");
+            return false;
+        }
+        if (!structureLocked) {
+            cholesky.setStructureLocked(true);
+            structureLocked = true;
+        }
+        cholesky.solve(residual, multipliers);
+
+        CommonOps_DSCC.multTransA(incidenceMatrix, multipliers, adjustment, gx);
+        for (int i = 0; i < numMeasurements; ++i) {
+            _reconciledFlow[i] = _rawMeasurement[i] - _standardDeviation[i] * adjustment.data[i];
+        }
+        return true;
+    }
+
+    public int getNumConstraints() {
+        return numConstraints;
+    }
+
+    public int getNumMeasurements() {
+        return numMeasurements;
+    }
+
+    public int getNonZeros() {
+        return incidenceMatrix.nz_length;
+    }
+
+    /**
+     * Obtém o número de elementos não nulos do fator de Cholesky da última solução.
+     *
+     * @return os não nulos do fator L, ou 0 antes da primeira solução.
+     */
+    public int getFactorNonZeros() {
+        return structureLocked ? decomposition.getL().nz_length : 0;
+    }
+
+    /**
+     * Ordem de eliminação de grau mínimo das restrições: a cada passo elimina a restrição com menos vizinhas
+     * restantes e liga as suas vizinhas entre si, como a eliminação faz no fator.
+     */
+    static int[] minimumDegreeOrder(DMatrixSparseCSC _incidenceMatrix) {
+        int n = _incidenceMatrix.numRows;
+        List<Set<Integer>> adjacency = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i) {
+            adjacency.add(new HashSet<Integer>());
+        }
+        for (int col = 0; col < _incidenceMatrix.numCols; ++col) {
+            int end = _incidenceMatrix.col_idx[col + 1];
+            for (int a = _incidenceMatrix.col_idx[col]; a < end; ++a) {
+                for (int b = a + 1; b < end; ++b) {
+                    int first = _incidenceMatrix.nz_rows[a];
+                    int second = _incidenceMatrix.nz_rows[b];
+                    adjacency.get(first).add(second);
+                    adjacency.get(second).add(first);
+                }
+            }
+        }
+
+        // Grau nos 32 bits altos e restrição nos baixos; entradas com grau desatualizado são ignoradas
+        PriorityQueue<Long> candidates = new PriorityQueue<>();
+        for (int i = 0; i < n; ++i) {
+            candidates.add(((long) adjacency.get(i).size() << 32) | i);
+        }
+        boolean[] eliminated = new boolean[n];
+        int[] order = new int[n];
+        int k = 0;
+        while (k < n) {
+            long candidate = candidates.poll();
+            int node = (int) candidate;
+            Set<Integer> neighbours = adjacency.get(node);
+            if (eliminated[node] || (candidate >>> 32) != neighbours.size()) {
+                continue;
+            }
+            eliminated[node] = true;
+            order[k++] = node;
+            for (int u : neighbours) {
+                Set<Integer> adjacentU = adjacency.get(u);
+                adjacentU.remove(node);
+                for (int w : neighbours) {
+                    if (w != u) {
+                        adjacentU.add(w);
+                    }
+                }
+                candidates.add(((long) adjacentU.size() << 32) | u);
+            }
+            neighbours.clear();
+        }
+        return order;
+    }
+
+    /**
+     * Permutação simétrica fixa, calculada uma vez; o solver a aplica ao sistema a cada solução.
+     */
+    private static final class FixedOrdering extends ComputePermutation<DMatrixSparseCSC> {
+        private final int[] order;
+
+        FixedOrdering(int[] order) {
+            super(true, true);
+            this.order = order;
+        }
+
+        @Override
+        public void process(DMatrixSparseCSC m) {
+            prow.reshape(order.length);
+            pcol.reshape(order.length);
+            System.arraycopy(order, 0, prow.data, 0, order.length);
+            System.arraycopy(order, 0, pcol.data, 0, order.length);
+        }
+    }
+}
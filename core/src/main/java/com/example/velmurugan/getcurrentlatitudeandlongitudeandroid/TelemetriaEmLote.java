@@ -0,0 +1,305 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementação de TelemetrySink que agrupa os registros em escritas multi-caminho. Cada registro é criptografado
+ * no modo de envelope de sessão e colocado sob a sua própria chave ("sessoesCriptografadas/{id}/registros/{seq}");
+ * quando o lote atinge o tamanho configurado, ou quando termina a janela de tempo iniciada pelo primeiro registro
+ * pendente, todo o lote é enviado ao TelemetryStore em uma única escrita atômica.
+ *
+ * A chave da sessão (criptografada com RSA) e a chave RSA seguem na mesma escrita do primeiro registro da sessão.
+ * Se a escrita de um lote falhar, todo o lote segue no lote seguinte (ou na próxima chamada a descarregar()), já que
+ * os registros posteriores dependem da chave e dos cabeçalhos que ele levava. Uma falha de criptografia é repassada
+ * a quem enviou o registro, e os registros já aceitos continuam pendentes.
+ *
+ * No modo compacto, os registros de cada sessão no lote são serializados juntos, comprimidos e criptografados
+ * de uma só vez, sob uma única chave ("sessoesCriptografadas/{id}/lotes/{seq}"), o que reduz o volume enviado
+ * e a criptografia a uma operação por sessão e por lote.
+ *
+ * Os lotes chegam ao TelemetryStore na ordem em que foram fechados, mesmo quando quem produz os registros e a thread
+ * da janela de tempo os fecham ao mesmo tempo: o envio de cada lote é reservado antes de o lote seguinte poder ser
+ * fechado, e as escritas em si acontecem fora do lock dos registros pendentes.
+ *
+ * Com uma duração de faixa de tempo, os registros e lotes são gravados por serviço de transporte e faixa de tempo
+ * da escrita (veja FaixasTempo), para que o histórico possa ser consultado por janela de tempo; a chave e os
+ * cabeçalhos continuam no nó da sessão.
+ */
+public class TelemetriaEmLote implements TelemetrySink {
+    public static final String CAMINHO_SESSOES = "sessoesCriptografadas"; // Fora de "dadosCriptografados", que o modo anterior lê inteiro
+
+    private final TelemetryStore armazenamento;
+    private final GerenciadorChaves gerenciadorChaves;
+    private final int tamanhoLote;
+    private final long janelaTempo;
+    private final boolean compacto;
+    private final long duracaoFaixa;
+    private final PipelineRegistro pipeline;
+    private final ScheduledExecutorService agendador;
+    private final ReentrantLock envio = new ReentrantLock(); // Mantido de retirarLote() até o fim da escrita do lote
+    private final Map<String, Object> reenvio = new LinkedHashMap<>(); // Escritas de um lote que falhou, protegidas por envio
+    private Map<String, Object> pendentes = new LinkedHashMap<>();
+    private Map<EnvelopeSessao, List<RegistroTelemetria>> registrosPorSessao = new LinkedHashMap<>();
+    private int registrosPendentes;
+    private long lote;
+
+    /**
+     * Construtor da classe TelemetriaEmLote.
+     *
+     * @param armazenamento     o armazenamento que recebe as escritas multi-caminho.
+     * @param gerenciadorChaves o gerenciador que fornece as chaves e o envelope de sessão de cada serviço de transporte.
+     * @param tamanhoLote       o número de registros que dispara o envio do lote.
+     * @param janelaTempo       o tempo máximo, em milissegundos, que um registro aguarda no lote; 0 desativa a janela.
+     */
+    public TelemetriaEmLote(TelemetryStore armazenamento, GerenciadorChaves gerenciadorChaves, int tamanhoLote, long janelaTempo) {
+        this(armazenamento, gerenciadorChaves, tamanhoLote, janelaTempo, false);
+    }
+
+    /**
+     * Construtor da classe TelemetriaEmLote.
+     *
+     * @param armazenamento     o armazenamento que recebe as escritas multi-caminho.
+     * @param gerenciadorChaves o gerenciador que fornece as chaves e o envelope de sessão de cada serviço de transporte.
+     * @param tamanhoLote       o número de registros que dispara o envio do lote.
+     * @param janelaTempo       o tempo máximo, em milissegundos, que um registro aguarda no lote; 0 desativa a janela.
+     * @param compacto          true para enviar os registros de cada sessão como um único lote comprimido.
+     */
+    public TelemetriaEmLote(TelemetryStore armazenamento, GerenciadorChaves gerenciadorChaves, int tamanhoLote,
+                            long janelaTempo, boolean compacto) {
+        this(armazenamento, gerenciadorChaves, tamanhoLote, janelaTempo, compacto, 0);
+    }
+
+    /**
+     * Construtor da classe TelemetriaEmLote.
+     *
+     * @param armazenamento     o armazenamento que recebe as escritas multi-caminho.
+     * @param gerenciadorChaves o gerenciador que fornece as chaves e o envelope de sessão de cada serviço de transporte.
+     * @param tamanhoLote       o número de registros que dispara o envio do lote.
+     * @param janelaTempo       o tempo máximo, em milissegundos, que um registro aguarda no lote; 0 desativa a janela.
+     * @param compacto          true para enviar os registros de cada sessão como um único lote comprimido.
+     * @param duracaoFaixa      a duração, em milissegundos, das faixas de tempo em que os registros são gravados
+     *                          (veja FaixasTempo); 0 grava os registros no nó da sessão.
+     */
+    public TelemetriaEmLote(TelemetryStore armazenamento, GerenciadorChaves gerenciadorChaves, int tamanhoLote,
+                            long janelaTempo, boolean compacto, long duracaoFaixa) {
+        if (tamanhoLote < 1) {
+            throw new IllegalArgumentException("O tamanho do lote deve ser positivo.");
+        }
+        if (duracaoFaixa != 0) {
+            // Valida a duração antes do primeiro registro
+            FaixasTempo.chaveFaixa(0, duracaoFaixa);
+        }
+        this.armazenamento = armazenamento;
+        this.gerenciadorChaves = gerenciadorChaves;
+        this.tamanhoLote = tamanhoLote;
+        this.janelaTempo = janelaTempo;
+        this.compacto = compacto;
+        this.duracaoFaixa = duracaoFaixa;
+        this.pipeline = new PipelineRegistro(1024, PipelineRegistro.Formato.BINARIO, compacto);
+        this.agendador = janelaTempo > 0 ? Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "TelemetriaEmLote");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }) : null;
+    }
+
+    /**
+     * Criptografa o registro e o adiciona ao lote, enviando o lote se ele estiver completo.
+     *
+     * @param registro o registro com as métricas do veículo e os dados do serviço de transporte.
+     * @throws IllegalStateException se a criptografia do registro ou do lote falhar.
+     */
+    @Override
+    public void enviar(RegistroTelemetria registro) {
+        Map<String, Object> completo = null;
+        synchronized (this) {
+            try {
+                adicionar(registro);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Falha ao criptografar o registro de telemetria.", e);
+            }
+            if (registrosPendentes >= tamanhoLote) {
+                completo = retirarLote();
+            } else if (registrosPendentes == 1 && agendador != null) {
+                final long loteAtual = lote;
+                agendador.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            descarregar(loteAtual);
+                        } catch (RuntimeException e) {
+                            // Os registros que não foram criptografados continuam pendentes, e um lote que falhou segue no seguinte
+                            e.printStackTrace();
+                        }
+                    }
+                }, janelaTempo, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (completo != null) {
+            enviarLote(completo);
+        }
+    }
+
+    /**
+     * Envia imediatamente os registros pendentes e as escritas de um lote anterior que falhou, se houver.
+     */
+    public void descarregar() {
+        Map<String, Object> completo;
+        synchronized (this) {
+            completo = registrosPendentes > 0 || haReenvio() ? retirarLote() : null;
+        }
+        if (completo != null) {
+            enviarLote(completo);
+        }
+    }
+
+    /**
+     * Envia os registros pendentes e encerra a thread da janela de tempo.
+     */
+    public void encerrar() {
+        descarregar();
+        if (agendador != null) {
+            agendador.shutdownNow();
+        }
+    }
+
+    private void descarregar(long loteAgendado) {
+        Map<String, Object> completo = null;
+        synchronized (this) {
+            // O lote agendado pode já ter sido enviado por ter atingido o tamanho máximo
+            if (loteAgendado == lote && registrosPendentes > 0) {
+                completo = retirarLote();
+            }
+        }
+        if (completo != null) {
+            enviarLote(completo);
+        }
+    }
+
+    private void adicionar(RegistroTelemetria registro) throws GeneralSecurityException {
+        EnvelopeSessao envelope = gerenciadorChaves.obterEnvelopeSessao(registro.getNumeroIdentificacao());
+        String caminhoSessao = CAMINHO_SESSOES + "/" + envelope.getIdSessao();
+
+        // A chave da sessão segue junto com o primeiro registro da sessão, com a chave privada do par que a criptografou
+        if (envelope.marcarPublicada()) {
+            KeyPair parDeChaves = envelope.getParDeChaves();
+            pendentes.put(caminhoSessao + "/chaveAES", Base64.getEncoder().encodeToString(envelope.getChaveCriptografada()));
+            pendentes.put(caminhoSessao + "/chaveRSA", Base64.getEncoder().encodeToString(parDeChaves.getPrivate().getEncoded()));
+        }
+
+        // Os dados do serviço de transporte seguem em um cabeçalho, enviado apenas quando mudam; o registro só o referencia
+        if (envelope.atualizarCabecalho(registro)) {
+            long sequenciaCabecalho = envelope.getSequenciaCabecalho(registro);
+            pendentes.put(caminhoSessao + "/cabecalhos/" + sequenciaCabecalho, pipeline.codificarCabecalhoParaTexto(envelope, sequenciaCabecalho));
+        }
+
+        if (compacto) {
+            List<RegistroTelemetria> registros = registrosPorSessao.get(envelope);
+            if (registros == null) {
+                registros = new ArrayList<>();
+                registrosPorSessao.put(envelope, registros);
+            }
+            registros.add(registro);
+        } else {
+            long sequencia = envelope.proximaSequencia();
+            pendentes.put(caminho(registro.getNumeroIdentificacao(), envelope, "/registros/", sequencia),
+                    pipeline.codificarParaTexto(registro, envelope, sequencia));
+        }
+        ++registrosPendentes;
+    }
+
+    /**
+     * Escreve um lote retirado com retirarLote() e libera o envio do lote seguinte.
+     */
+    private void enviarLote(Map<String, Object> completo) {
+        try {
+            armazenamento.atualizar(completo);
+        } catch (RuntimeException e) {
+            reenvio.putAll(completo);
+            throw e;
+        } finally {
+            envio.unlock();
+        }
+    }
+
+    /**
+     * Retira o lote pendente e reserva o seu envio; deve ser chamado com o lock da instância, e o lote retirado deve
+     * ser passado a enviarLote(). Se o lote anterior ainda estiver sendo escrito, aguarda o fim da escrita antes de
+     * liberar o lock, de modo que nenhum lote posterior seja fechado e enviado antes dele.
+     */
+    private Map<String, Object> retirarLote() {
+        // Os lotes compactos são criptografados antes de o estado mudar: se a criptografia falhar, nada é retirado
+        Map<String, Object> lotes = new LinkedHashMap<>();
+        for (Map.Entry<EnvelopeSessao, List<RegistroTelemetria>> sessao : registrosPorSessao.entrySet()) {
+            EnvelopeSessao envelope = sessao.getKey();
+            long sequencia = envelope.proximaSequencia();
+            try {
+                lotes.put(caminho(sessao.getValue().get(0).getNumeroIdentificacao(), envelope, "/lotes/", sequencia),
+                        pipeline.codificarLoteParaTexto(sessao.getValue(), envelope, sequencia));
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Falha ao criptografar o lote de telemetria.", e);
+            }
+        }
+        Map<String, Object> completo = pendentes;
+        completo.putAll(lotes);
+        pendentes = new LinkedHashMap<>();
+        registrosPorSessao = new LinkedHashMap<>();
+        registrosPendentes = 0;
+        ++lote;
+        envio.lock();
+        // As escritas de um lote anterior que falhou seguem neste lote
+        if (!reenvio.isEmpty()) {
+            for (Map.Entry<String, Object> atualizacao : reenvio.entrySet()) {
+                if (!completo.containsKey(atualizacao.getKey())) {
+                    completo.put(atualizacao.getKey(), atualizacao.getValue());
+                }
+            }
+            reenvio.clear();
+        }
+        return completo;
+    }
+
+    /**
+     * Verifica se há escritas de um lote que falhou aguardando reenvio; deve ser chamado com o lock da instância.
+     */
+    private boolean haReenvio() {
+        envio.lock();
+        try {
+            return !reenvio.isEmpty();
+        } finally {
+            envio.unlock();
+        }
+    }
+
+    /**
+     * Obtém o caminho de um registro ou lote: no nó da sessão ou, com faixas de tempo, na faixa do instante atual.
+     */
+    private String caminho(String numeroIdentificacao, EnvelopeSessao envelope, String tipo, long sequencia) {
+        if (duracaoFaixa == 0) {
+            return CAMINHO_SESSOES + "/" + envelope.getIdSessao() + tipo + sequencia;
+        }
+        return FaixasTempo.caminhoRegistro(numeroIdentificacao, FaixasTempo.chaveFaixa(agora(), duracaoFaixa),
+                envelope.getIdSessao(), sequencia);
+    }
+
+    /**
+     * Obtém o instante atual, em milissegundos, usado para escolher a faixa de tempo dos registros.
+     */
+    protected long agora() {
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+/**
+ * Destino dos registros de telemetria produzidos pelo veículo a cada troca de localização.
+ * No aplicativo os registros são criptografados e enviados ao Firebase Realtime Database.
+ */
+public interface TelemetrySink {
+
+    /**
+     * Envia um registro de telemetria.
+     *
+     * @param registro o registro com as métricas do veículo e os dados do serviço de transporte.
+     */
+    void enviar(RegistroTelemetria registro);
+}
@@ -0,0 +1,78 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import java.util.SortedMap;
+
+/**
+ * Origem dos registros de telemetria criptografados, o lado de leitura do TelemetryStore. No aplicativo é o
+ * Firebase Realtime Database; em testes e benchmarks pode ser substituída por um armazenamento local.
+ */
+public interface TelemetrySource {
+
+    /**
+     * Interface para receber o resultado de uma leitura.
+     */
+    interface Callback {
+        /**
+         * Chamado com os valores lidos.
+         *
+         * @param valores os valores abaixo do caminho lido, indexados pelo caminho relativo a ele e ordenados
+         *                pelo caminho; o valor do próprio caminho, se houver, tem a chave "".
+         */
+        void onResult(SortedMap<String, Object> valores);
+
+        void onError(Exception e);
+    }
+
+    /**
+     * Lê todos os valores abaixo de um caminho. Dependendo da implementação, o callback pode ser chamado
+     * na própria thread ou posteriormente, em outra thread.
+     *
+     * @param caminho  o caminho relativo à raiz.
+     * @param callback o objeto que recebe os valores lidos.
+     */
+    void ler(String caminho, Callback callback);
+
+    /**
+     * Lê os valores abaixo dos filhos de um caminho cujas chaves estão entre chaveInicial e chaveFinal (inclusive),
+     * na ordem das chaves como texto, sem ler os demais filhos.
+     *
+     * @param caminho      o caminho relativo à raiz.
+     * @param chaveInicial a menor chave de filho incluída.
+     * @param chaveFinal   a maior chave de filho incluída.
+     * @param callback     o objeto que recebe os valores lidos, indexados pelo caminho relativo a caminho.
+     */
+    void lerIntervalo(String caminho, String chaveInicial, String chaveFinal, Callback callback);
+
+    /**
+     * Interface para receber os filhos de um caminho em uma leitura contínua.
+     */
+    interface OuvinteFilhos {
+        /**
+         * Chamado para cada filho existente no início da assinatura e, depois, para cada filho novo ou alterado.
+         *
+         * @param chave o nome do filho, relativo ao caminho assinado.
+         * @param valor o valor do filho.
+         */
+        void onFilho(String chave, Object valor);
+
+        void onError(Exception e);
+    }
+
+    /**
+     * Assinatura de uma leitura contínua, que continua ativa até ser cancelada.
+     */
+    interface Assinatura {
+        void cancelar();
+    }
+
+    /**
+     * Assina os filhos de um caminho: o ouvinte recebe os filhos já existentes e, enquanto a assinatura estiver
+     * ativa, apenas os filhos novos ou alterados, sem reler o caminho inteiro. Só os filhos com um valor
+     * (folhas) são entregues, como os registros, lotes e cabeçalhos de uma sessão.
+     *
+     * @param caminho o caminho relativo à raiz.
+     * @param ouvinte o objeto que recebe os filhos.
+     * @return a assinatura, para cancelá-la.
+     */
+    Assinatura assinar(String caminho, OuvinteFilhos ouvinte);
+}
@@ -0,0 +1,20 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import java.util.Map;
+
+/**
+ * Armazenamento dos registros de telemetria já criptografados. No aplicativo é o Firebase Realtime Database;
+ * em testes e benchmarks pode ser substituído por um armazenamento local.
+ *
+ * Diferente do TelemetrySink, que recebe registros, o TelemetryStore recebe escritas já prontas, endereçadas
+ * por caminhos no formato do Realtime Database ("sessoesCriptografadas/{id}/registros/{seq}").
+ */
+public interface TelemetryStore {
+
+    /**
+     * Aplica uma escrita multi-caminho de forma atômica, em uma única ida e volta ao armazenamento.
+     *
+     * @param atualizacoes os valores a escrever, indexados pelo caminho relativo à raiz.
+     */
+    void atualizar(Map<String, Object> atualizacoes);
+}
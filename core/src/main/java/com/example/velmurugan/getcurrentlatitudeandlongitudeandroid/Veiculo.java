@@ -1,14 +1,5 @@
 package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
 
-import android.os.Build;
-
-import androidx.annotation.RequiresApi;
-
-import java.security.KeyPair;
-import java.security.KeyPairGenerator;
-import java.security.NoSuchAlgorithmException;
-import java.security.PrivateKey;
-import java.security.PublicKey;
 import java.util.List;
 
 
@@ -22,6 +13,7 @@ public class Veiculo {
     private static final double LONGITUDE_FINAL = -45.83586333333333;
     private static final long TEMPO_PARA_DESTINO_FINAL = 100;
     private static final double DESLOCAMENTO_PARCIAL = 0.5052034858527461;
+    private static final int NUMERO_SEGMENTOS = 5;
 
     private boolean verificaTrocaLocalizacao;
     private double velocidadeMediaParcial;
@@ -34,24 +26,43 @@ public class Veiculo {
     private int intervaloLocalizacoes;
     private int respectivoIntervalo;
 
-    private GpsTracker gpsTracker;
+    private LocationSource locationSource;
+    private TelemetrySink telemetrySink;
     private ServicoTransporte servicoTransporte;
 
+    // Reconciliação para cálculo da velocidade recomendada com base no Tempo para chegar ao Destino Final
+    private final ReconciliacaoRota reconciliacaoRota;
+
+    /**
+     * Construtor da classe Veiculo para a rota padrão.
+     *
+     * @param servicoTransporte O objeto ServicoTransporte responsável pelo serviço de transporte associado ao veículo.
+     * @param locationSource A fonte das localizações do veículo.
+     * @param telemetrySink O destino dos registros de telemetria produzidos a cada troca de localização.
+     */
+    public Veiculo(ServicoTransporte servicoTransporte, LocationSource locationSource, TelemetrySink telemetrySink) {
+        this(servicoTransporte, locationSource, telemetrySink, NUMERO_SEGMENTOS);
+    }
+
     /**
      * Construtor da classe Veiculo.
      *
      * @param servicoTransporte O objeto ServicoTransporte responsável pelo serviço de transporte associado ao veículo.
-     * @param gpsTracker O objeto GpsTracker responsável por rastrear a localização do veículo.
+     * @param locationSource A fonte das localizações do veículo.
+     * @param telemetrySink O destino dos registros de telemetria produzidos a cada troca de localização.
+     * @param numeroSegmentos O número de segmentos da rota.
      */
-    public Veiculo(ServicoTransporte servicoTransporte, GpsTracker gpsTracker) {
+    public Veiculo(ServicoTransporte servicoTransporte, LocationSource locationSource, TelemetrySink telemetrySink, int numeroSegmentos) {
         this.servicoTransporte = servicoTransporte;
-        this.gpsTracker = gpsTracker;
+        this.locationSource = locationSource;
+        this.telemetrySink = telemetrySink;
+        this.reconciliacaoRota = new ReconciliacaoRota(numeroSegmentos, TEMPO_PARA_DESTINO_FINAL);
         this.verificaTrocaLocalizacao = false;
         this.velocidadeMediaParcial = 0;
         this.distanciaPercorrida = 0;
         this.consumoCombustivelTotal = 0;
         this.velocidadeMediaTotal = 0;
-        this.velocidadeRecomendada = (DESLOCAMENTO_PARCIAL * 1000 / 20 ) * 3.6;
+        this.velocidadeRecomendada = (DESLOCAMENTO_PARCIAL * 1000 / reconciliacaoRota.getTempoEstimadoSegmento()) * 3.6;
         this.tempoDeslocamento = 0;
         this.tempoParaDestinoFinal = TEMPO_PARA_DESTINO_FINAL;
         this.intervaloLocalizacoes = 1;
@@ -149,15 +160,14 @@ public class Veiculo {
     }
 
     /**
-     * Atualiza os dados do veículo com a nova localização e escreva os dados no JSON criptografado usando a classe JSONEscritor
+     * Atualiza os dados do veículo com a nova localização e envia um registro de telemetria ao TelemetrySink
      *
      * @param latitude  a nova latitude.
      * @param longitude a nova longitude.
      * @param timestamp o timestamp da nova localização.
      */
-    @RequiresApi(api = Build.VERSION_CODES.O)
     public void atualizarDados(double latitude, double longitude, long timestamp) {
-        List<LocationData> locationDataList = gpsTracker.getSortedLocationData();
+        List<LocationData> locationDataList = locationSource.getSortedLocationData();
         int size = locationDataList.size();
 
         if (size >= 1) {
@@ -198,24 +208,9 @@ public class Veiculo {
                     velocidadeRecomendada = calculoVelocidadeReconciliacao();
 
                     try {
-                        // Gere um par de chaves RSA
-                        KeyPair keyPair = gerarParDeChavesRSA();
-                        PublicKey publicKey = keyPair.getPublic();
-                        PrivateKey privateKey = keyPair.getPrivate();
-
-                        // Escreva os dados no JSON criptografado usando a classe JSONEscritor
-                        JSONEscritor writerThread = new JSONEscritor(velocidadeMediaParcial, distanciaPercorrida,
-                                tempoParaDestinoFinal, servicoTransporte.getNumeroIdentificacao(), servicoTransporte.getDataHoraInicio(),
-                                servicoTransporte.getDataHoraFim(), servicoTransporte.getCargas().get(0).getDescricao(),
-                                servicoTransporte.getMotoristas().get(0).getNome(), respectivoIntervalo, intervaloLocalizacoes, publicKey, privateKey);
-
-                        writerThread.start();
-                        try {
-                            writerThread.join();
-                        } catch (InterruptedException e) {
-                            e.printStackTrace();
-                        }
-
+                        // Envia o registro de telemetria com as métricas atualizadas
+                        telemetrySink.enviar(RegistroTelemetria.de(servicoTransporte, velocidadeMediaParcial,
+                                distanciaPercorrida, tempoParaDestinoFinal, respectivoIntervalo, intervaloLocalizacoes));
                     } catch (Exception e) {
                         e.printStackTrace();
                     }
@@ -251,60 +246,26 @@ public class Veiculo {
         return raioTerra * c;
     }
 
-    // Variáveis de Reconciliação para cálculo da velocidade recomendada com base no Tempo para chegar ao Destino Final
-    private double P1 = 20.0;
-    private double P2 = 20.0;
-    private double P3 = 20.0;
-    private double P4 = 20.0;
-    private double P5 = 20.0;
-    private double variacaoTempoParaDestinoFinal = 0.0;
-    private double V1 = 1.0;
-    private double V2 = 1.0;
-    private double V3 = 1.0;
-    private double V4 = 1.0;
-    private double V5 = 1.0;
-
     /**
      * Calcula a velocidade de reconciliação com base no tempo para o chegar ao Destino Final.
      *
      * @return a velocidade de reconciliação em km/h.
      */
     private double calculoVelocidadeReconciliacao() {
+        int intervalo = getRespectivoIntervalo();
+        int numeroSegmentos = reconciliacaoRota.getNumeroSegmentos();
 
-        // Atualiza as variáveis P e V com base no intervalo atual
-        if (getRespectivoIntervalo() == 1) {
-            P1 = getIntervaloTempoLocalizacoes();
-            V1 = 0.0;
-        } else if (getRespectivoIntervalo() == 2) {
-            P2 = getIntervaloTempoLocalizacoes();
-            V2 = 0.0;
-        } else if (getRespectivoIntervalo() == 3) {
-            P3 = getIntervaloTempoLocalizacoes();
-            V3 = 0.0;
-        } else if (getRespectivoIntervalo() == 4) {
-            P4 = getIntervaloTempoLocalizacoes();
-            V4 = 0.0;
-        } else if (getRespectivoIntervalo() == 5) {
-            P5 = getIntervaloTempoLocalizacoes();
-            V5 = 0.0;
-            variacaoTempoParaDestinoFinal = 1.0;
+        // Atualiza a medição do intervalo atual
+        if (intervalo >= 1 && intervalo <= numeroSegmentos) {
+            reconciliacaoRota.registrarSegmento(intervalo, getIntervaloTempoLocalizacoes());
         }
 
-        double[] y = new double[]{TEMPO_PARA_DESTINO_FINAL, P1, P2, P3, P4, P5};
-        double[] v = new double[]{variacaoTempoParaDestinoFinal, V1, V2, V3, V4, V5};
-        double[][] A = new double[][]{{1.0, -1.0, -1.0, -1.0, -1.0, -1.0}};
-        Reconciliation rec = new Reconciliation(y, v, A);
-
-        // System.out.println("Y_hat:");
-        // rec.printMatrix(rec.getReconciledFlow());
-
-        double[] reconciledFlow = rec.getReconciledFlow();
-
-        if (getRespectivoIntervalo() >= 5) {
+        // Após o último segmento não há próximo trecho para recomendar velocidade
+        if (intervalo >= numeroSegmentos) {
             return 0;
         }
 
-        return (DESLOCAMENTO_PARCIAL * 1000 / reconciledFlow[getRespectivoIntervalo()+1])*3.6;
+        return (DESLOCAMENTO_PARCIAL * 1000 / reconciliacaoRota.getTempoReconciliado(intervalo + 1))*3.6;
     }
 
     /**
@@ -325,15 +286,4 @@ public class Veiculo {
 
         return DESLOCAMENTO_PARCIAL * consumoCombustivelPorKm;
     }
-
-    /**
-     * Método para gerar um par de chaves RSA.
-     *
-     * @return Um par de chaves RSA (pública e privada).
-     */
-    public static KeyPair gerarParDeChavesRSA() throws NoSuchAlgorithmException {
-        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
-        keyPairGenerator.initialize(2048); // Tamanho da chave (2048 bits)
-        return keyPairGenerator.generateKeyPair();
-    }
 }
\ No newline at end of file
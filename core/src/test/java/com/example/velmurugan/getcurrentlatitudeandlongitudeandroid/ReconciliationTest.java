@@ -0,0 +1,392 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testes locais da reconciliação de dados usada no cálculo da velocidade recomendada.
+ */
+public class ReconciliationTest {
+    private static final double TOLERANCIA = 1e-9;
+
+    private static final double[][] A = new double[][]{{1.0, -1.0, -1.0, -1.0, -1.0, -1.0}};
+
+    @Test
+    public void reconcile_singleConstraintMatchesEjml() {
+        double[] y = new double[]{100, 23, 18, 20, 20, 20};
+        double[] v = new double[]{0.0, 0.0, 0.0, 1.0, 1.0, 1.0};
+
+        double[] esperado = new Reconciliation(y, v, A).getReconciledFlow();
+        double[] obtido = new double[y.length];
+
+        assertTrue(Reconciliation.reconcile(y, v, A, obtido));
+        assertArrayEquals(esperado, obtido, TOLERANCIA);
+    }
+
+    @Test
+    public void reconcile_singleConstraintWithoutFreeMeasurementsKeepsInput() {
+        double[] y = new double[]{100, 23, 18, 20, 20, 20};
+        double[] v = new double[6];
+        double[] obtido = new double[y.length];
+
+        assertTrue(Reconciliation.reconcile(y, v, A, obtido));
+        assertArrayEquals(y, obtido, 0.0);
+    }
+
+    @Test
+    public void workspace_reusedAcrossCallsMatchesEjml() {
+        double[][] incidencia = new double[][]{
+                {1.0, -1.0, -1.0, 0.0, 0.0},
+                {0.0, 1.0, 0.0, -1.0, -1.0}};
+        double[] v = new double[]{0.5, 1.0, 1.0, 2.0, 1.0};
+        double[] obtido = new double[v.length];
+        ReconciliationWorkspace workspace = new ReconciliationWorkspace(2, 5);
+        assertTrue(workspace.setIncidenceMatrix(incidencia));
+
+        for (int k = 0; k < 3; ++k) {
+            double[] y = new double[]{100 + k, 61, 42 - k, 30, 33 + k};
+            double[] esperado = new Reconciliation(y, v, incidencia).getReconciledFlow();
+
+            assertTrue(workspace.reconcile(y, v, obtido));
+            assertArrayEquals(esperado, obtido, TOLERANCIA);
+        }
+    }
+
+    @Test
+    public void incremental_rankOneUpdatesMatchFullSolve() {
+        double[] y = new double[]{100, 20, 20, 20, 20, 20};
+        double[] v = new double[]{0.0, 1.0, 1.0, 1.0, 1.0, 1.0};
+        IncrementalReconciliation incremental = new IncrementalReconciliation(y, v, A);
+        double[] esperado = new double[y.length];
+        double[] obtido = new double[y.length];
+
+        double[] medidos = new double[]{23, 18, 25, 19, 21};
+        for (int intervalo = 1; intervalo <= 5; ++intervalo) {
+            if (intervalo == 5) {
+                v[0] = 1.0;
+                assertTrue(incremental.updateMeasurement(0, y[0], v[0]));
+            }
+            y[intervalo] = medidos[intervalo - 1];
+            v[intervalo] = 0.0;
+            assertTrue(incremental.updateMeasurement(intervalo, y[intervalo], v[intervalo]));
+
+            assertTrue(Reconciliation.reconcile(y, v, A, esperado));
+            incremental.getReconciledFlow(obtido);
+            assertArrayEquals(esperado, obtido, TOLERANCIA);
+        }
+    }
+
+    @Test
+    public void sparse_matchesDenseSolve() {
+        double[][] incidencia = new double[][]{
+                {1.0, -1.0, -1.0, 0.0, 0.0},
+                {0.0, 1.0, 0.0, -1.0, -1.0}};
+        double[] v = new double[]{0.5, 1.0, 1.0, 2.0, 1.0};
+        double[] y = new double[]{100, 61, 42, 30, 33};
+        SparseReconciliation sparse = new SparseReconciliation(2, 5,
+                new int[]{0, 0, 0, 1, 1, 1},
+                new int[]{0, 1, 2, 1, 3, 4},
+                new double[]{1.0, -1.0, -1.0, 1.0, -1.0, -1.0});
+        double[] esperado = new Reconciliation(y, v, incidencia).getReconciledFlow();
+        double[] obtido = new double[y.length];
+
+        for (int k = 0; k < 2; ++k) {
+            assertTrue(sparse.reconcile(y, v, obtido));
+            assertArrayEquals(esperado, obtido, TOLERANCIA);
+        }
+    }
+
+    @Test
+    public void sparse_multiCheckpointNetworkMatchesDenseWithLittleFill() {
+        // Uma viagem com 40 pontos de controle: cada janela iguala o seu tempo medido à soma dos seus 10 segmentos,
+        // e a restrição 0 iguala o tempo total à soma dos tempos das janelas, compartilhando uma medição com cada uma.
+        // As janelas estão em ordem aleatória, então a matriz não tem estrutura de banda
+        Random random = new Random(3);
+        int janelas = 40;
+        int segmentos = 10 * janelas;
+        int restricoes = janelas + 1;
+        int medicoes = segmentos + janelas + 1;
+        int[] linhaJanela = new int[janelas];
+        for (int j = 0; j < janelas; ++j) {
+            linhaJanela[j] = j + 1;
+        }
+        for (int j = janelas - 1; j > 0; --j) {
+            int outra = random.nextInt(j + 1);
+            int troca = linhaJanela[j];
+            linhaJanela[j] = linhaJanela[outra];
+            linhaJanela[outra] = troca;
+        }
+
+        List<int[]> entradas = new ArrayList<>();
+        List<Double> coeficientes = new ArrayList<>();
+        double[][] incidencia = new double[restricoes][medicoes];
+        double[] y = new double[medicoes];
+        double[] v = new double[medicoes];
+        for (int i = 0; i < segmentos; ++i) {
+            int linha = linhaJanela[i / 10];
+            entradas.add(new int[]{linha, i});
+            coeficientes.add(-1.0);
+            y[i] = 10 + random.nextGaussian();
+            v[i] = 1.0;
+        }
+        for (int j = 0; j < janelas; ++j) {
+            int medicao = segmentos + j;
+            entradas.add(new int[]{linhaJanela[j], medicao});
+            coeficientes.add(1.0);
+            entradas.add(new int[]{0, medicao});
+            coeficientes.add(-1.0);
+            y[medicao] = 100 + random.nextGaussian();
+            v[medicao] = 0.5;
+        }
+        entradas.add(new int[]{0, medicoes - 1});
+        coeficientes.add(1.0);
+        y[medicoes - 1] = 100 * janelas;
+        v[medicoes - 1] = 0.1;
+
+        int[] linhas = new int[entradas.size()];
+        int[] colunas = new int[entradas.size()];
+        double[] valores = new double[entradas.size()];
+        for (int k = 0; k < linhas.length; ++k) {
+            linhas[k] = entradas.get(k)[0];
+            colunas[k] = entradas.get(k)[1];
+            valores[k] = coeficientes.get(k);
+            incidencia[linhas[k]][colunas[k]] = valores[k];
+        }
+
+        SparseReconciliation sparse = new SparseReconciliation(restricoes, medicoes, linhas, colunas, valores);
+        ReconciliationWorkspace densa = new ReconciliationWorkspace(restricoes, medicoes);
+        assertTrue(densa.setIncidenceMatrix(incidencia));
+        double[] esperado = new double[medicoes];
+        double[] obtido = new double[medicoes];
+        for (int k = 0; k < 2; ++k) {
+            v[k] = 2.0;
+            assertTrue(densa.reconcile(y, v, esperado));
+            assertTrue(sparse.reconcile(y, v, obtido));
+            assertArrayEquals(esperado, obtido, 1e-8);
+        }
+
+        // Eliminando a restrição do tempo total primeiro, o fator seria denso (cerca de restricoes²/2 não nulos)
+        assertTrue(String.valueOf(sparse.getFactorNonZeros()), sparse.getFactorNonZeros() <= 2 * restricoes);
+    }
+
+    @Test
+    public void float_divergenceFromDoubleIsBounded() {
+        java.util.Random random = new java.util.Random(7);
+        for (int n : new int[]{6, 50, 200}) {
+            double[] y = new double[n];
+            double[] v = new double[n];
+            double[][] incidencia = new double[1][n];
+            float[] yf = new float[n];
+            float[] vf = new float[n];
+            float[][] incidenciaf = new float[1][n];
+            y[0] = 100;
+            incidencia[0][0] = 1.0;
+            for (int i = 1; i < n; ++i) {
+                y[i] = 100.0 / (n - 1) + random.nextGaussian();
+                v[i] = i % 2 == 0 ? 0.0 : 1.0;
+                incidencia[0][i] = -1.0;
+            }
+            for (int i = 0; i < n; ++i) {
+                yf[i] = (float) y[i];
+                vf[i] = (float) v[i];
+                incidenciaf[0][i] = (float) incidencia[0][i];
+            }
+
+            double[] esperado = new Reconciliation(y, v, incidencia).getReconciledFlow();
+            float[] obtido = new FloatReconciliation(yf, vf, incidenciaf).getReconciledFlow();
+
+            // Erro relativo compatível com a precisão simples (cerca de 7 dígitos significativos)
+            for (int i = 0; i < n; ++i) {
+                assertEquals(esperado[i], obtido[i], 1e-4 * Math.max(1.0, Math.abs(esperado[i])));
+            }
+        }
+    }
+
+    @Test
+    public void float_singularSystemHasNoResult() {
+        // Restrições proporcionais tornam A·V·Aᵀ singular: a Cholesky falha e a LU deixa um pivô residual em vez de zero
+        float[] y = new float[]{100, 21, 19, 20, 22, 20};
+        float[] v = new float[]{0, 1, 1, 1, 1, 1};
+        float[][] incidencia = new float[][]{
+                {1, -1.1f, -0.9f, -1.3f, -0.7f, -1},
+                {3, -3.3f, -2.7f, -3.9f, -2.1f, -3}};
+
+        assertNull(new FloatReconciliation(y, v, incidencia).getReconciledFlow());
+    }
+
+    @Test
+    public void float_weightedFormMatchesDouble() {
+        double[] y = new double[]{100, 21, 19, 20, 22, 20};
+        double[] desvio = new double[]{0.01, 0.1, 0.1, 0.2, 0.1, 0.1};
+        double[] a = new double[]{1.0, -1.0, -1.0, -1.0, -1.0, -1.0};
+        float[] yf = new float[]{100, 21, 19, 20, 22, 20};
+        float[] desviof = new float[]{0.01f, 0.1f, 0.1f, 0.2f, 0.1f, 0.1f};
+        float[] af = new float[]{1.0f, -1.0f, -1.0f, -1.0f, -1.0f, -1.0f};
+
+        double[] esperado = new Reconciliation(y, desvio, a).getReconciledFlow();
+        float[] obtido = new FloatReconciliation(yf, desviof, af).getReconciledFlow();
+
+        assertEquals(esperado.length, obtido.length);
+        for (int i = 0; i < y.length; ++i) {
+            assertEquals(esperado[i], obtido[i], 1e-4 * Math.abs(esperado[i]));
+        }
+    }
+
+    @Test
+    public void batch_eachTripMatchesSingleReconciliation() {
+        // Viagens de tamanhos variados, incluindo uma com uma única medição e uma sem medições ajustáveis;
+        // o total passa do limite sequencial, para que o lote seja dividido entre tarefas
+        Random random = new Random(11);
+        int viagens = 400;
+        int[] inicios = new int[viagens + 1];
+        for (int t = 0; t < viagens; ++t) {
+            int tamanho = t == 1 ? 1 : 2 + random.nextInt(60);
+            inicios[t + 1] = inicios[t] + tamanho;
+        }
+        int total = inicios[viagens];
+        double[] y = new double[total];
+        double[] v = new double[total];
+        double[] a = new double[total];
+        for (int t = 0; t < viagens; ++t) {
+            y[inicios[t]] = 100;
+            a[inicios[t]] = 1.0;
+            for (int i = inicios[t] + 1; i < inicios[t + 1]; ++i) {
+                y[i] = 100.0 / (inicios[t + 1] - inicios[t] - 1) + random.nextGaussian();
+                v[i] = t == 2 ? 0.0 : 0.5 + random.nextDouble();
+                a[i] = -1.0;
+            }
+        }
+        assertTrue(total > 8192);
+
+        double[] comum = ReconciliationBatch.reconcile(inicios, y, v, a);
+        double[] proprio = new double[total];
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            ReconciliationBatch.reconcile(inicios, y, v, a, proprio, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        for (int t = 0; t < viagens; ++t) {
+            int inicio = inicios[t];
+            int tamanho = inicios[t + 1] - inicio;
+            double[] yViagem = Arrays.copyOfRange(y, inicio, inicio + tamanho);
+            double[] vViagem = Arrays.copyOfRange(v, inicio, inicio + tamanho);
+            double[][] aViagem = new double[][]{Arrays.copyOfRange(a, inicio, inicio + tamanho)};
+            double[] esperado = new double[tamanho];
+            assertTrue(Reconciliation.reconcile(yViagem, vViagem, aViagem, esperado));
+            if (t == 2) {
+                assertArrayEquals(yViagem, esperado, 0.0);
+            }
+
+            assertArrayEquals(esperado, Arrays.copyOfRange(comum, inicio, inicio + tamanho), TOLERANCIA);
+            assertArrayEquals(esperado, Arrays.copyOfRange(proprio, inicio, inicio + tamanho), TOLERANCIA);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void batch_rejectsDecreasingTripOffsets() {
+        double[] y = new double[]{100, 50, 50, 100, 50, 50};
+        ReconciliationBatch.reconcile(new int[]{0, 4, 3, 6}, y, new double[6], new double[6]);
+    }
+
+    @Test
+    public void rota_veiculoRecomendaVelocidadeEmTodosOsSegmentos() {
+        final int segmentos = 50;
+        final double tempoTotal = 100;
+        final double deslocamentoPorHora = 0.5052034858527461 * 1000 * 3.6;
+
+        // Veículo cujas localizações mudam a cada atualização, fechando um segmento por chamada
+        final List<LocationData> localizacoes = new ArrayList<>();
+        localizacoes.add(new LocationData(-20.466, -45.813, 0));
+        localizacoes.add(new LocationData(-20.466, -45.813, 0));
+        ServicoTransporte servico = new ServicoTransporte("ST-ROTA", "2023-06-01 08:00", "2023-06-01 12:00");
+        servico.getCargas().add(new Carga("Eletrônicos"));
+        servico.getMotoristas().add(new Motorista("Maria Souza"));
+        final List<RegistroTelemetria> enviados = new ArrayList<>();
+        Veiculo veiculo = new Veiculo(servico, new LocationSource() {
+            @Override
+            public List<LocationData> getSortedLocationData() {
+                return localizacoes;
+            }
+        }, new TelemetrySink() {
+            @Override
+            public void enviar(RegistroTelemetria registro) {
+                enviados.add(registro);
+            }
+        }, segmentos);
+
+        // Solução completa do mesmo problema: tempo total fixo até o último segmento, segmentos medidos com variância 0
+        double[] y = new double[segmentos + 1];
+        double[] v = new double[segmentos + 1];
+        double[][] incidencia = new double[1][segmentos + 1];
+        y[0] = tempoTotal;
+        incidencia[0][0] = 1.0;
+        for (int i = 1; i <= segmentos; ++i) {
+            y[i] = tempoTotal / segmentos;
+            v[i] = 1.0;
+            incidencia[0][i] = -1.0;
+        }
+        double[] esperado = new double[segmentos + 1];
+
+        for (int intervalo = 1; intervalo <= segmentos; ++intervalo) {
+            int tempoMedido = veiculo.getIntervaloTempoLocalizacoes();
+            veiculo.atualizarDados(-20.466 + intervalo * 1e-4, -45.813, intervalo);
+
+            if (intervalo == segmentos) {
+                v[0] = 1.0;
+            }
+            y[intervalo] = tempoMedido;
+            v[intervalo] = 0.0;
+            assertTrue(Reconciliation.reconcile(y, v, incidencia, esperado));
+
+            if (intervalo < segmentos) {
+                assertTrue(veiculo.getVelocidadeRecomendada() > 0);
+                assertEquals(deslocamentoPorHora / esperado[intervalo + 1], veiculo.getVelocidadeRecomendada(), TOLERANCIA);
+            } else {
+                assertEquals(0.0, veiculo.getVelocidadeRecomendada(), 0.0);
+            }
+        }
+        assertEquals(segmentos, enviados.size());
+    }
+
+    @Test
+    public void rota_cinquentaSegmentosMatchFullSolve() {
+        final int segmentos = 50;
+        Random random = new Random(5);
+        ReconciliacaoRota rota = new ReconciliacaoRota(segmentos, 500);
+        double[] y = new double[segmentos + 1];
+        double[] v = new double[segmentos + 1];
+        double[][] incidencia = new double[1][segmentos + 1];
+        y[0] = 500;
+        incidencia[0][0] = 1.0;
+        for (int i = 1; i <= segmentos; ++i) {
+            y[i] = rota.getTempoEstimadoSegmento();
+            v[i] = 1.0;
+            incidencia[0][i] = -1.0;
+        }
+        double[] esperado = new double[segmentos + 1];
+
+        for (int segmento = 1; segmento <= segmentos; ++segmento) {
+            double tempoMedido = 8 + 4 * random.nextDouble();
+            rota.registrarSegmento(segmento, tempoMedido);
+            if (segmento == segmentos) {
+                v[0] = 1.0;
+            }
+            y[segmento] = tempoMedido;
+            v[segmento] = 0.0;
+
+            assertTrue(Reconciliation.reconcile(y, v, incidencia, esperado));
+            for (int i = 1; i <= segmentos; ++i) {
+                assertEquals(esperado[i], rota.getTempoReconciliado(i), TOLERANCIA);
+            }
+        }
+    }
+}
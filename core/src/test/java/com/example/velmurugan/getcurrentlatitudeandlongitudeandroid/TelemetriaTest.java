@@ -0,0 +1,813 @@
+package com.example.velmurugan.getcurrentlatitudeandlongitudeandroid;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testes locais do caminho de escrita da telemetria, usando o MemoryTelemetryStore e o ArquivoTelemetryStore
+ * no lugar do Firebase.
+ */
+public class TelemetriaTest {
+    private static final GerenciadorChaves GERENCIADOR_CHAVES = new GerenciadorChaves();
+
+    private static RegistroTelemetria registro(String numeroIdentificacao, int intervalo) {
+        return new RegistroTelemetria(62.5, 100.0 * intervalo, 1800 - intervalo, numeroIdentificacao,
+                "2023-06-01 08:00", "2023-06-01 12:00", "Eletrônicos", "Maria Souza", intervalo, 15);
+    }
+
+    /**
+     * Lê todos os valores sob o caminho de um armazenamento síncrono, falhando o teste se a leitura falhar.
+     */
+    private static SortedMap<String, Object> lerTudo(TelemetrySource source, String caminho) {
+        Coletor coletor = new Coletor();
+        source.ler(caminho, coletor);
+        assertNotNull(coletor.valores);
+        return coletor.valores;
+    }
+
+    /**
+     * Abre para leitura o envelope de uma sessão a partir da chave AES lida do armazenamento (em Base64).
+     */
+    private static EnvelopeSessao abrirEnvelope(String idSessao, Object chaveAES, String numeroIdentificacao) throws Exception {
+        return EnvelopeSessao.abrir(idSessao, Base64.getDecoder().decode((String) chaveAES),
+                GERENCIADOR_CHAVES.obterParDeChaves(numeroIdentificacao).getPrivate());
+    }
+
+    @Test
+    public void lote_agrupaRegistrosEmUmaEscritaMultiCaminho() throws Exception {
+        MemoryTelemetryStore armazenamento = new MemoryTelemetryStore();
+        TelemetriaEmLote telemetria = new TelemetriaEmLote(armazenamento, GERENCIADOR_CHAVES, 10, 0);
+
+        for (int i = 0; i < 25; ++i) {
+            telemetria.enviar(registro("ST-LOTE", i));
+        }
+        assertEquals(2, armazenamento.getIdasEVoltas());
+
+        telemetria.descarregar();
+        assertEquals(3, armazenamento.getIdasEVoltas());
+        // 25 registros, cada um sob a sua chave, mais o cabeçalho, a chave da sessão e a chave RSA enviados uma única vez
+        assertEquals(28, armazenamento.getTamanho());
+
+        EnvelopeSessao envelope = GERENCIADOR_CHAVES.obterEnvelopeSessao("ST-LOTE");
+        String caminhoSessao = TelemetriaEmLote.CAMINHO_SESSOES + "/" + envelope.getIdSessao();
+        EnvelopeSessao leitor = abrirEnvelope(envelope.getIdSessao(), armazenamento.ler(caminhoSessao + "/chaveAES"), "ST-LOTE");
+        PipelineRegistro pipeline = new PipelineRegistro();
+        // O cabeçalho ocupa a sequência 0, e os registros seguem a partir da sequência 1
+        CabecalhoSessao cabecalho = pipeline.decodificarCabecalho((String) armazenamento.ler(caminhoSessao + "/cabecalhos/0"), leitor, 0);
+        assertEquals("ST-LOTE", cabecalho.getNumeroIdentificacao());
+        String json = pipeline.decodificarParaTexto((String) armazenamento.ler(caminhoSessao + "/registros/8"), leitor, 8);
+        assertTrue(json.contains("\"respectivoIntervalo\":7"));
+        assertTrue(json.contains("\"descricaoCarga\":\"Eletrônicos\""));
+    }
+
+    @Test
+    public void chaves_descartarNaoAfetaOutroServicoComMesmoPrefixo() throws Exception {
+        GerenciadorChaves gerenciadorChaves = new GerenciadorChaves();
+        java.security.KeyPair parDeChaves = GERENCIADOR_CHAVES.obterParDeChaves("ST-LOTE");
+        gerenciadorChaves.registrarParDeChaves("ST", parDeChaves);
+        gerenciadorChaves.registrarParDeChaves("ST#1", parDeChaves);
+
+        gerenciadorChaves.descartar("ST");
+
+        // O par de chaves de "ST#1" continua registrado, sem uma nova geração
+        assertSame(parDeChaves, gerenciadorChaves.obterParDeChaves("ST#1"));
+        gerenciadorChaves.encerrar();
+    }
+
+    @Test(timeout = 10000)
+    public void chaves_interrupcaoNaoGeraOutroPar() throws Exception {
+        GerenciadorChaves gerenciadorChaves = new GerenciadorChaves();
+        Thread.currentThread().interrupt();
+        try {
+            gerenciadorChaves.obterParDeChaves("ST-INTERROMPIDO");
+            fail("A espera interrompida deveria falhar.");
+        } catch (IllegalStateException e) {
+            assertTrue(Thread.interrupted());
+        }
+
+        // O par agendado antes da interrupção é o mesmo das chamadas seguintes
+        java.security.KeyPair parDeChaves = gerenciadorChaves.obterParDeChaves("ST-INTERROMPIDO");
+        assertSame(parDeChaves, gerenciadorChaves.obterParDeChaves("ST-INTERROMPIDO"));
+        assertSame(parDeChaves, gerenciadorChaves.obterEnvelopeSessao("ST-INTERROMPIDO").getParDeChaves());
+        gerenciadorChaves.encerrar();
+    }
+
+    @Test(timeout = 10000)
+    public void fila_bloquearEsperaEspacoSemPerderRegistros() throws Exception {
+        DestinoRetido destino = new DestinoRetido();
+        final FilaTelemetria fila = new FilaTelemetria(destino, 2, FilaTelemetria.PoliticaExcesso.BLOQUEAR);
+        destino.encher(fila);
+
+        Thread produtor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                fila.enviar(registro("ST-FILA", 3));
+            }
+        });
+        produtor.start();
+        produtor.join(200);
+        assertTrue(produtor.isAlive());
+        assertEquals(2, fila.getPendentes());
+
+        destino.liberar();
+        produtor.join();
+        assertTrue(fila.encerrar(5000));
+        assertEquals(Arrays.asList(0, 1, 2, 3), destino.recebidos);
+        assertEquals(0, fila.getDescartados());
+    }
+
+    @Test(timeout = 10000)
+    public void fila_descartarMaisAntigoDaLugarAoNovo() throws Exception {
+        DestinoRetido destino = new DestinoRetido();
+        FilaTelemetria fila = new FilaTelemetria(destino, 2, FilaTelemetria.PoliticaExcesso.DESCARTAR_MAIS_ANTIGO);
+        destino.encher(fila);
+        fila.enviar(registro("ST-FILA", 3));
+
+        destino.liberar();
+        assertTrue(fila.encerrar(5000));
+        assertEquals(Arrays.asList(0, 2, 3), destino.recebidos);
+        assertEquals(1, fila.getDescartados());
+    }
+
+    @Test(timeout = 10000)
+    public void fila_manterMaisRecenteSubstituiOUltimo() throws Exception {
+        DestinoRetido destino = new DestinoRetido();
+        FilaTelemetria fila = new FilaTelemetria(destino, 2, FilaTelemetria.PoliticaExcesso.MANTER_MAIS_RECENTE);
+        destino.encher(fila);
+        fila.enviar(registro("ST-FILA", 3));
+        fila.enviar(registro("ST-FILA", 4));
+
+        destino.liberar();
+        assertTrue(fila.encerrar(5000));
+        assertEquals(Arrays.asList(0, 1, 4), destino.recebidos);
+        assertEquals(2, fila.getDescartados());
+    }
+
+    @Test(timeout = 10000)
+    public void fila_encerrarRespeitaOTempoMaximoEEnviaOsPendentes() throws Exception {
+        DestinoRetido destino = new DestinoRetido();
+        FilaTelemetria fila = new FilaTelemetria(destino, 2, FilaTelemetria.PoliticaExcesso.BLOQUEAR);
+        destino.encher(fila);
+
+        // O destino continua retido: o encerramento desiste após o tempo máximo, e novos registros são descartados
+        long inicio = System.nanoTime();
+        assertFalse(fila.encerrar(100));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) < 2000);
+        fila.enviar(registro("ST-FILA", 3));
+        assertEquals(1, fila.getDescartados());
+
+        // A thread escritora ainda envia os registros enfileirados antes do encerramento
+        destino.liberar();
+        assertTrue(fila.encerrar(5000));
+        assertEquals(Arrays.asList(0, 1, 2), destino.recebidos);
+    }
+
+    /**
+     * Destino que retém a thread escritora no primeiro registro até ser liberado, para que a fila possa ser enchida.
+     */
+    private static final class DestinoRetido implements TelemetrySink {
+        final List<Integer> recebidos = Collections.synchronizedList(new ArrayList<Integer>());
+        private final CountDownLatch iniciado = new CountDownLatch(1);
+        private final CountDownLatch liberado = new CountDownLatch(1);
+
+        @Override
+        public void enviar(RegistroTelemetria registro) {
+            iniciado.countDown();
+            try {
+                liberado.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            recebidos.add(registro.getRespectivoIntervalo());
+        }
+
+        /**
+         * Envia o registro 0, que fica retido na thread escritora, e enche a fila com os registros 1 e 2.
+         */
+        void encher(FilaTelemetria fila) throws InterruptedException {
+            fila.enviar(registro("ST-FILA", 0));
+            assertTrue(iniciado.await(5, TimeUnit.SECONDS));
+            fila.enviar(registro("ST-FILA", 1));
+            fila.enviar(registro("ST-FILA", 2));
+        }
+
+        void liberar() {
+            liberado.countDown();
+        }
+    }
+
+    @Test
+    public void lote_loteQueFalhouSegueNoLoteSeguinte() throws Exception {
+        final MemoryTelemetryStore armazenamento = new MemoryTelemetryStore();
+        final boolean[] conectado = {false};
+        TelemetriaEmLote telemetria = new TelemetriaEmLote(new TelemetryStore() {
+            @Override
+            public void atualizar(Map<String, Object> atualizacoes) {
+                if (!conectado[0]) {
+                    throw new IllegalStateException("Sem conexão.");
+                }
+                armazenamento.atualizar(atualizacoes);
+            }
+        }, GERENCIADOR_CHAVES, 2, 0);
+
+        telemetria.enviar(registro("ST-REENVIO", 0));
+        try {
+            telemetria.enviar(registro("ST-REENVIO", 1));
+            fail("O envio do primeiro lote deveria falhar.");
+        } catch (IllegalStateException e) {
+            // O lote inteiro aguarda o próximo envio
+        }
+        telemetria.enviar(registro("ST-REENVIO", 2));
+        try {
+            telemetria.enviar(registro("ST-REENVIO", 3));
+            fail("O envio do segundo lote deveria falhar.");
+        } catch (IllegalStateException e) {
+            // O segundo lote leva também o primeiro
+        }
+        assertEquals(0, armazenamento.getTamanho());
+
+        // Sem registros pendentes, descarregar() reenvia os lotes que falharam
+        conectado[0] = true;
+        telemetria.descarregar();
+        assertEquals(1, armazenamento.getIdasEVoltas());
+        assertEquals(7, armazenamento.getTamanho());
+        telemetria.enviar(registro("ST-REENVIO", 4));
+        telemetria.enviar(registro("ST-REENVIO", 5));
+        assertEquals(9, armazenamento.getTamanho());
+
+        EnvelopeSessao envelope = GERENCIADOR_CHAVES.obterEnvelopeSessao("ST-REENVIO");
+        String caminhoSessao = TelemetriaEmLote.CAMINHO_SESSOES + "/" + envelope.getIdSessao();
+        EnvelopeSessao leitor = abrirEnvelope(envelope.getIdSessao(), armazenamento.ler(caminhoSessao + "/chaveAES"), "ST-REENVIO");
+        PipelineRegistro pipeline = new PipelineRegistro();
+        pipeline.decodificarCabecalho((String) armazenamento.ler(caminhoSessao + "/cabecalhos/0"), leitor, 0);
+        for (int i = 0; i < 6; ++i) {
+            String json = pipeline.decodificarParaTexto((String) armazenamento.ler(caminhoSessao + "/registros/" + (i + 1)), leitor, i + 1);
+            assertTrue(json.contains("\"respectivoIntervalo\":" + i));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void lote_enviaOsLotesNaOrdemEmQueForamFechados() throws Exception {
+        final CountDownLatch primeiroIniciado = new CountDownLatch(1);
+        final CountDownLatch liberado = new CountDownLatch(1);
+        final List<Integer> tamanhos = Collections.synchronizedList(new ArrayList<Integer>());
+        TelemetryStore lento = new TelemetryStore() {
+            @Override
+            public void atualizar(Map<String, Object> atualizacoes) {
+                tamanhos.add(atualizacoes.size());
+                primeiroIniciado.countDown();
+                try {
+                    liberado.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        final TelemetriaEmLote telemetria = new TelemetriaEmLote(lento, GERENCIADOR_CHAVES, 2, 0);
+
+        // O primeiro lote (chaves, cabeçalho e dois registros) fica retido na escrita
+        Thread produtor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                telemetria.enviar(registro("ST-ORDEM", 0));
+                telemetria.enviar(registro("ST-ORDEM", 1));
+            }
+        });
+        produtor.start();
+        assertTrue(primeiroIniciado.await(5, TimeUnit.SECONDS));
+
+        // O segundo lote é fechado por outra thread, mas só é escrito depois do primeiro
+        telemetria.enviar(registro("ST-ORDEM", 2));
+        Thread descarga = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                telemetria.descarregar();
+            }
+        });
+        descarga.start();
+        descarga.join(200);
+        assertEquals(Collections.singletonList(5), tamanhos);
+
+        liberado.countDown();
+        produtor.join();
+        descarga.join();
+        assertEquals(Arrays.asList(5, 1), tamanhos);
+    }
+
+    @Test
+    public void lote_janelaDeTempoEnviaLoteIncompleto() throws Exception {
+        MemoryTelemetryStore armazenamento = new MemoryTelemetryStore();
+        TelemetriaEmLote telemetria = new TelemetriaEmLote(armazenamento, GERENCIADOR_CHAVES, 100, 50);
+
+        for (int i = 0; i < 3; ++i) {
+            telemetria.enviar(registro("ST-JANELA", i));
+        }
+        assertEquals(0, armazenamento.getIdasEVoltas());
+
+        long limite = System.currentTimeMillis() + 5000;
+        while (armazenamento.getIdasEVoltas() == 0 && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, armazenamento.getIdasEVoltas());
+        assertEquals(6, armazenamento.getTamanho());
+        telemetria.encerrar();
+    }
+
+    @Test
+    public void arquivo_reaplicaEscritasEDescartaEntradaIncompleta() throws Exception {
+        File arquivo = File.createTempFile("telemetria", ".log");
+        arquivo.delete();
+        arquivo.deleteOnExit();
+
+        ArquivoTelemetryStore armazenamento = new ArquivoTelemetryStore(arquivo);
+        TelemetriaEmLote telemetria = new TelemetriaEmLote(armazenamento, GERENCIADOR_CHAVES, 4, 0);
+        for (int i = 0; i < 8; ++i) {
+            telemetria.enviar(registro("ST-ARQUIVO", i));
+        }
+        armazenamento.close();
+        long tamanhoValido = arquivo.length();
+
+        // Simula uma escrita interrompida no meio de uma entrada
+        try (RandomAccessFile acesso = new RandomAccessFile(arquivo, "rw")) {
+            acesso.seek(tamanhoValido);
+            acesso.writeInt(3);
+            acesso.writeUTF("sessoesCriptografadas/incompleta");
+        }
+
+        ArquivoTelemetryStore reaberto = new ArquivoTelemetryStore(arquivo);
+        assertEquals(2, reaberto.getEntradas());
+        assertEquals(tamanhoValido, arquivo.length());
+
+        String idSessao = GERENCIADOR_CHAVES.obterEnvelopeSessao("ST-ARQUIVO").getIdSessao();
+        SortedMap<String, Object> sessao = lerTudo(reaberto, TelemetriaEmLote.CAMINHO_SESSOES + "/" + idSessao);
+        // 8 registros mais o cabeçalho, a chave da sessão e a chave RSA
+        assertEquals(11, sessao.size());
+        assertTrue(sessao.containsKey("registros/7"));
+        reaberto.close();
+    }
+
+    @Test
+    public void binario_leCamposSemCopiarORegistro() {
+        RegistroTelemetria original = new RegistroTelemetria(-3.25, 1e9, -42, "ST-Ω", "2023-06-01 08:00", null,
+                "Café \uD83D\uDE9A", "José", 300, 15);
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        buffer.position(7);
+        RegistroBinario.escrever(original, buffer);
+        int fim = buffer.position();
+        buffer.flip().position(7);
+
+        assertTrue(RegistroBinario.ehBinario(buffer));
+        RegistroBinario leitor = new RegistroBinario().envolver(buffer);
+        assertEquals(fim - 7, leitor.getTamanho());
+        assertEquals(7, buffer.position());
+        assertEquals(-3.25, leitor.getVelocidadeMediaParcial(), 0);
+        assertEquals(1e9, leitor.getDistanciaPercorrida(), 0);
+        assertEquals(-42, leitor.getTempoParaDestinoFinal());
+        assertEquals(300, leitor.getRespectivoIntervalo());
+        assertEquals(15, leitor.getIntervaloTempoLocalizacoes());
+        assertEquals("ST-Ω", leitor.getNumeroIdentificacao());
+        assertNull(leitor.getDataHoraFim());
+        assertEquals("Café \uD83D\uDE9A", leitor.getDescricaoCarga());
+        assertEquals("José", leitor.getNomeMotorista());
+
+        buffer.limit(fim - 1);
+        try {
+            leitor.envolver(buffer);
+            fail("Registro incompleto aceito.");
+        } catch (IllegalArgumentException e) {
+            // esperado
+        }
+    }
+
+    @Test
+    public void cabecalho_registrosReferenciamOCabecalhoDaSessao() throws Exception {
+        EnvelopeSessao envelope = EnvelopeSessao.criar("ST-CABECALHO", GERENCIADOR_CHAVES.obterParDeChaves("ST-LOTE").getPublic());
+        PipelineRegistro pipeline = new PipelineRegistro();
+
+        int tamanhoCompleto = pipeline.codificar(registro("ST-CABECALHO", 1), envelope, envelope.proximaSequencia());
+        assertTrue(envelope.atualizarCabecalho(registro("ST-CABECALHO", 1)));
+        assertFalse(envelope.atualizarCabecalho(registro("ST-CABECALHO", 2)));
+        long sequenciaCabecalho = envelope.getSequenciaCabecalho(registro("ST-CABECALHO", 2));
+        String cabecalho = pipeline.codificarCabecalhoParaTexto(envelope, sequenciaCabecalho);
+        long sequencia = envelope.proximaSequencia();
+        String registro = pipeline.codificarParaTexto(registro("ST-CABECALHO", 2), envelope, sequencia);
+        assertTrue(registro.length() < tamanhoCompleto / 2);
+
+        // Outro motorista muda os dados do serviço de transporte e exige um novo cabeçalho
+        assertTrue(envelope.atualizarCabecalho(new RegistroTelemetria(50, 10, 100, "ST-CABECALHO",
+                "2023-06-01 08:00", "2023-06-01 12:00", "Eletrônicos", "João Lima", 3, 15)));
+
+        RegistroBinario leitor = new RegistroBinario();
+        try {
+            leitor.envolver(pipeline.decodificar(registro, envelope, sequencia), new HashMap<Long, CabecalhoSessao>());
+            fail("Registro sem cabeçalho aceito.");
+        } catch (IllegalArgumentException e) {
+            // esperado
+        }
+        PipelineRegistro outroLeitor = new PipelineRegistro();
+        outroLeitor.decodificarCabecalho(cabecalho, envelope, sequenciaCabecalho);
+        RegistroBinario lido = outroLeitor.decodificarRegistro(registro, envelope, sequencia);
+        assertEquals(sequenciaCabecalho, lido.getSequenciaCabecalho());
+        assertEquals("Maria Souza", lido.getNomeMotorista());
+        assertEquals(2, lido.getRespectivoIntervalo());
+    }
+
+    @Test
+    public void compacto_enviaUmLoteComprimidoPorSessao() throws Exception {
+        MemoryTelemetryStore armazenamento = new MemoryTelemetryStore();
+        TelemetriaEmLote telemetria = new TelemetriaEmLote(armazenamento, GERENCIADOR_CHAVES, 10, 0, true);
+
+        for (int i = 0; i < 25; ++i) {
+            telemetria.enviar(registro(i % 2 == 0 ? "ST-COMPACTO-A" : "ST-COMPACTO-B", i));
+        }
+        telemetria.descarregar();
+        assertEquals(3, armazenamento.getIdasEVoltas());
+
+        EnvelopeSessao envelope = GERENCIADOR_CHAVES.obterEnvelopeSessao("ST-COMPACTO-A");
+        SortedMap<String, Object> sessao = lerTudo(armazenamento, TelemetriaEmLote.CAMINHO_SESSOES + "/" + envelope.getIdSessao());
+        // Chave da sessão, chave RSA, cabeçalho e um lote por escrita
+        assertEquals(6, sessao.size());
+
+        EnvelopeSessao leitor = abrirEnvelope(envelope.getIdSessao(), sessao.get("chaveAES"), "ST-COMPACTO-A");
+        PipelineRegistro pipeline = new PipelineRegistro();
+        pipeline.decodificarCabecalho((String) sessao.get("cabecalhos/0"), leitor, 0);
+        int esperado = 0;
+        for (Map.Entry<String, Object> valor : sessao.entrySet()) {
+            String caminho = valor.getKey();
+            if (caminho.startsWith("lotes/")) {
+                RegistroBinario lote = pipeline.decodificarLote((String) valor.getValue(), leitor,
+                        Long.parseLong(caminho.substring("lotes/".length())));
+                while (lote.proximo(leitor.getCabecalhos()) != null) {
+                    assertEquals(esperado, lote.getRespectivoIntervalo());
+                    assertEquals("ST-COMPACTO-A", lote.getNumeroIdentificacao());
+                    esperado += 2;
+                }
+            }
+        }
+        assertEquals(26, esperado);
+    }
+
+    @Test
+    public void diferenca_reconstroiSerieDentroDoQuantum() throws Exception {
+        EnvelopeSessao envelope = EnvelopeSessao.criar("ST-DIFERENCA", GERENCIADOR_CHAVES.obterParDeChaves("ST-LOTE").getPublic());
+        List<RegistroTelemetria> registros = new ArrayList<>();
+        for (int i = 0; i < 70; ++i) {
+            registros.add(new RegistroTelemetria(55 + 8 * Math.sin(i / 5.0), 12840.3 + 0.0637 * i, 1860 - 15 * i,
+                    "ST-DIFERENCA", "2023-06-01 08:00", "2023-06-01 12:00", "Eletrônicos", "Maria Souza", i, 15));
+        }
+        envelope.atualizarCabecalho(registros.get(0));
+
+        PipelineRegistro completo = new PipelineRegistro();
+        completo.setIntervaloQuadroChave(1);
+        long sequenciaCompleto = envelope.proximaSequencia();
+        int tamanhoCompleto = completo.codificarLote(registros, envelope, sequenciaCompleto);
+        PipelineRegistro pipeline = new PipelineRegistro();
+        long sequencia = envelope.proximaSequencia();
+        String lote = pipeline.codificarLoteParaTexto(registros, envelope, sequencia);
+        assertTrue(lote.length() * 2 < tamanhoCompleto);
+
+        RegistroBinario leitor = new PipelineRegistro().decodificarLote(lote, envelope, sequencia);
+        int quadrosChave = 0;
+        for (RegistroTelemetria registro : registros) {
+            assertNotNull(leitor.proximo(envelope.getCabecalhos()));
+            if (leitor.getTamanho() > 20) {
+                // Os quadros-chave trazem os valores exatos
+                assertEquals(registro.getDistanciaPercorrida(), leitor.getDistanciaPercorrida(), 0);
+                ++quadrosChave;
+            }
+            assertEquals(registro.getVelocidadeMediaParcial(), leitor.getVelocidadeMediaParcial(), RegistroBinario.QUANTUM_VELOCIDADE / 2);
+            assertEquals(registro.getDistanciaPercorrida(), leitor.getDistanciaPercorrida(), RegistroBinario.QUANTUM_DISTANCIA / 2);
+            assertEquals(registro.getTempoParaDestinoFinal(), leitor.getTempoParaDestinoFinal());
+            assertEquals(registro.getRespectivoIntervalo(), leitor.getRespectivoIntervalo());
+            assertEquals("Maria Souza", leitor.getNomeMotorista());
+        }
+        assertNull(leitor.proximo(envelope.getCabecalhos()));
+        // Registros 0, 32 e 64
+        assertEquals(3, quadrosChave);
+
+        try {
+            pipeline.setIntervaloQuadroChave(0);
+            fail("Intervalo inválido aceito.");
+        } catch (IllegalArgumentException e) {
+            // esperado
+        }
+    }
+
+    @Test
+    public void assinatura_entregaApenasOsFilhosNovos() throws Exception {
+        MemoryTelemetryStore armazenamento = new MemoryTelemetryStore();
+        TelemetriaEmLote telemetria = new TelemetriaEmLote(armazenamento, GERENCIADOR_CHAVES, 5, 0, true);
+        for (int i = 0; i < 10; ++i) {
+            telemetria.enviar(registro("ST-ASSINATURA", i));
+        }
+        telemetria.descarregar();
+
+        String caminho = TelemetriaEmLote.CAMINHO_SESSOES + "/" + GERENCIADOR_CHAVES.obterEnvelopeSessao("ST-ASSINATURA").getIdSessao();
+        final List<String> lotes = new ArrayList<>();
+        TelemetrySource.Assinatura assinatura = armazenamento.assinar(caminho + "/lotes", new TelemetrySource.OuvinteFilhos() {
+            @Override
+            public void onFilho(String chave, Object valor) {
+                lotes.add(chave);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                fail(e.getMessage());
+            }
+        });
+        assertEquals(2, lotes.size());
+
+        for (int i = 10; i < 15; ++i) {
+            telemetria.enviar(registro("ST-ASSINATURA", i));
+        }
+        telemetria.descarregar();
+        assertEquals(3, lotes.size());
+        assertFalse(lotes.get(2).equals(lotes.get(0)) || lotes.get(2).equals(lotes.get(1)));
+
+        assinatura.cancelar();
+        for (int i = 15; i < 20; ++i) {
+            telemetria.enviar(registro("ST-ASSINATURA", i));
+        }
+        telemetria.descarregar();
+        assertEquals(3, lotes.size());
+    }
+
+    @Test
+    public void historico_decodificaEmColunasNaOrdemDeSequencia() throws Exception {
+        MemoryTelemetryStore armazenamento = new MemoryTelemetryStore();
+        TelemetriaEmLote avulsos = new TelemetriaEmLote(armazenamento, GERENCIADOR_CHAVES, 7, 0);
+        TelemetriaEmLote compacto = new TelemetriaEmLote(armazenamento, GERENCIADOR_CHAVES, 7, 0, true);
+        for (int i = 0; i < 300; ++i) {
+            // Registros avulsos e lotes na mesma sessão, com mais de um bloco de decodificação
+            (i < 150 ? avulsos : compacto).enviar(registro("ST-HISTORICO", i));
+        }
+        avulsos.descarregar();
+        compacto.descarregar();
+
+        final EnvelopeSessao envelope = GERENCIADOR_CHAVES.obterEnvelopeSessao("ST-HISTORICO");
+        SortedMap<String, Object> valores = lerTudo(armazenamento, TelemetriaEmLote.CAMINHO_SESSOES + "/" + envelope.getIdSessao());
+        EnvelopeSessao leitor = abrirEnvelope(envelope.getIdSessao(), valores.get("chaveAES"), "ST-HISTORICO");
+
+        HistoricoSessao historico = LeitorHistorico.decodificar(valores, leitor, 0, Long.MAX_VALUE);
+        assertEquals(300, historico.getTamanho());
+        assertEquals(300, historico.getDistanciasPercorridas().length);
+        for (int i = 0; i < 300; ++i) {
+            assertEquals(i, historico.getRespectivosIntervalos()[i]);
+            assertEquals(100.0 * i, historico.getDistanciasPercorridas()[i], RegistroBinario.QUANTUM_DISTANCIA);
+            assertEquals(1800 - i, historico.getTemposParaDestinoFinal()[i]);
+            assertTrue(i == 0 || historico.getSequencias()[i] >= historico.getSequencias()[i - 1]);
+        }
+
+        // Apenas os registros avulsos das sequências 100 a 120
+        HistoricoSessao intervalo = LeitorHistorico.decodificar(valores, leitor, 100, 120);
+        assertEquals(21, intervalo.getTamanho());
+        assertEquals(100, intervalo.getSequencias()[0]);
+    }
+
+    @Test
+    public void faixasTempo_consultaLeApenasAsFaixasDaJanela() throws Exception {
+        MemoryTelemetryStore armazenamento = new MemoryTelemetryStore();
+        final long[] instante = {1685606400000L}; // 2023-06-01 08:00 UTC
+        TelemetriaEmLote telemetria = new TelemetriaEmLote(armazenamento, GERENCIADOR_CHAVES, 5, 0, false, 60000) {
+            @Override
+            protected long agora() {
+                return instante[0];
+            }
+        };
+        for (int i = 0; i < 30; ++i) {
+            // Dez registros por minuto, em três faixas de um minuto
+            instante[0] = 1685606400000L + (i / 10) * 60000L + (i % 10) * 5000L;
+            telemetria.enviar(registro("ST-FAIXAS", i));
+        }
+        telemetria.descarregar();
+        // Os caracteres não permitidos nas chaves são escapados sem que serviços diferentes colidam
+        assertEquals("servicos/ST%2E01%25", FaixasTempo.caminhoServico("ST.01%"));
+        assertNotEquals(FaixasTempo.caminhoServico("ST.01"), FaixasTempo.caminhoServico("ST_01"));
+        assertNotEquals(FaixasTempo.caminhoServico("ST.01"), FaixasTempo.caminhoServico("ST%2E01"));
+        assertEquals("servicos/ST-FAIXAS/2023-06-01T08:01", FaixasTempo.caminhoServico("ST-FAIXAS") + "/"
+                + FaixasTempo.chaveFaixa(1685606400000L + 60000L + 59999L, 60000));
+
+        String faixa = FaixasTempo.chaveFaixa(1685606400000L + 60000L, 60000);
+        Coletor coletor = new Coletor();
+        armazenamento.lerIntervalo(FaixasTempo.caminhoServico("ST-FAIXAS"), faixa, faixa, coletor);
+        SortedMap<String, Object> janela = coletor.valores;
+        assertEquals(10, janela.size());
+
+        // A chave e os cabeçalhos continuam no nó da sessão, que não tem os registros
+        EnvelopeSessao envelope = GERENCIADOR_CHAVES.obterEnvelopeSessao("ST-FAIXAS");
+        SortedMap<String, Object> sessao = lerTudo(armazenamento, TelemetriaEmLote.CAMINHO_SESSOES + "/" + envelope.getIdSessao());
+        assertTrue(sessao.containsKey("chaveAES"));
+        assertTrue(sessao.containsKey("cabecalhos/0"));
+        for (String chave : sessao.keySet()) {
+            assertFalse(chave.startsWith("registros/"));
+        }
+
+        EnvelopeSessao leitor = abrirEnvelope(envelope.getIdSessao(), sessao.get("chaveAES"), "ST-FAIXAS");
+        PipelineRegistro pipeline = new PipelineRegistro();
+        pipeline.decodificarCabecalho((String) sessao.get("cabecalhos/0"), leitor, 0);
+        for (Map.Entry<String, Object> lido : janela.entrySet()) {
+            String[] partes = lido.getKey().split("/");
+            assertEquals(faixa, partes[0]);
+            assertEquals(envelope.getIdSessao(), partes[1]);
+            RegistroBinario registro = pipeline.decodificarRegistro((String) lido.getValue(), leitor, Long.parseLong(partes[2]));
+            assertTrue(registro.getRespectivoIntervalo() >= 10 && registro.getRespectivoIntervalo() < 20);
+        }
+    }
+
+    @Test
+    public void diario_reenviaAposReinicioSemPerderNemRepetir() throws Exception {
+        File arquivo = File.createTempFile("telemetria", ".diario");
+        File controle = new File(arquivo.getPath() + ".confirmado");
+        arquivo.deleteOnExit();
+        controle.deleteOnExit();
+
+        // Sem conexão: o destino recusa os envios e as escritas ficam no diário
+        TelemetryStore semConexao = new TelemetryStore() {
+            @Override
+            public void atualizar(Map<String, Object> atualizacoes) {
+                throw new IllegalStateException("Sem conexão.");
+            }
+        };
+        DiarioTelemetria diario = new DiarioTelemetria(arquivo, semConexao, 10, 7, DiarioTelemetria.CAPACIDADE_PADRAO);
+        TelemetriaEmLote telemetria = new TelemetriaEmLote(diario, GERENCIADOR_CHAVES, 4, 0, true);
+        for (int i = 0; i < 40; ++i) {
+            telemetria.enviar(registro("ST-DIARIO", i));
+        }
+        telemetria.descarregar();
+        assertFalse(diario.esvaziar(100));
+        assertEquals(10, diario.getEntradasPendentes());
+        diario.close();
+
+        // Simula uma escrita interrompida no meio de uma entrada
+        long tamanhoValido = arquivo.length();
+        try (RandomAccessFile acesso = new RandomAccessFile(arquivo, "rw")) {
+            acesso.seek(tamanhoValido);
+            acesso.writeInt(100);
+            acesso.writeInt(0);
+        }
+
+        // Após o reinício, as escritas pendentes são enviadas em poucas escritas multi-caminho
+        MemoryTelemetryStore armazenamento = new MemoryTelemetryStore();
+        DiarioTelemetria reaberto = new DiarioTelemetria(arquivo, armazenamento, 10, 7, DiarioTelemetria.CAPACIDADE_PADRAO);
+        assertTrue(reaberto.aguardarAbertura(5000));
+        assertEquals(tamanhoValido, arquivo.length());
+        assertEquals(10, reaberto.getEntradasPendentes());
+        assertTrue(reaberto.esvaziar(5000));
+        assertEquals(0, reaberto.getBytesPendentes());
+        assertEquals(2, armazenamento.getIdasEVoltas());
+        String caminho = TelemetriaEmLote.CAMINHO_SESSOES + "/" + GERENCIADOR_CHAVES.obterEnvelopeSessao("ST-DIARIO").getIdSessao();
+        assertNotNull(armazenamento.ler(caminho + "/chaveAES"));
+        for (int i = 0; i < 10; ++i) {
+            assertNotNull(armazenamento.ler(caminho + "/lotes/" + (i + 1)));
+        }
+        reaberto.close();
+
+        // As escritas confirmadas não são reenviadas
+        MemoryTelemetryStore outro = new MemoryTelemetryStore();
+        DiarioTelemetria confirmado = new DiarioTelemetria(arquivo, outro, 10, 7, DiarioTelemetria.CAPACIDADE_PADRAO);
+        assertTrue(confirmado.aguardarAbertura(5000));
+        assertEquals(0, confirmado.getEntradasPendentes());
+        assertTrue(confirmado.esvaziar(1000));
+        assertEquals(0, outro.getIdasEVoltas());
+        confirmado.close();
+    }
+
+    @Test(timeout = 30000)
+    public void diario_compactaEReabreComValoresGrandes() throws Exception {
+        File arquivo = File.createTempFile("telemetria", ".diario");
+        File controle = new File(arquivo.getPath() + ".confirmado");
+        arquivo.deleteOnExit();
+        controle.deleteOnExit();
+        // Valores maiores que os 64 KB do UTF modificado
+        String grande = new String(new char[100000]).replace('\0', 'G');
+        String lote = new String(new char[4000]).replace('\0', 'L');
+
+        // Mais de 1 MiB de escritas confirmadas, o que compacta o arquivo
+        MemoryTelemetryStore armazenamento = new MemoryTelemetryStore();
+        DiarioTelemetria diario = new DiarioTelemetria(arquivo, armazenamento, 10, DiarioTelemetria.ENTRADAS_POR_ENVIO_PADRAO,
+                DiarioTelemetria.CAPACIDADE_PADRAO);
+        diario.atualizar(Collections.<String, Object>singletonMap("sessoesCriptografadas/sessao/lotes/0", grande));
+        for (int i = 1; i <= 300; ++i) {
+            diario.atualizar(Collections.<String, Object>singletonMap("sessoesCriptografadas/sessao/lotes/" + i, lote));
+        }
+        assertTrue(diario.esvaziar(10000));
+        diario.close();
+        assertEquals(grande, armazenamento.ler("sessoesCriptografadas/sessao/lotes/0"));
+        assertEquals(301, armazenamento.getTamanho());
+        assertTrue(arquivo.length() < 1 << 20);
+
+        // Escritas não confirmadas depois da compactação
+        DiarioTelemetria semConexao = new DiarioTelemetria(arquivo, new TelemetryStore() {
+            @Override
+            public void atualizar(Map<String, Object> atualizacoes) {
+                throw new IllegalStateException("Sem conexão.");
+            }
+        }, 10, DiarioTelemetria.ENTRADAS_POR_ENVIO_PADRAO, DiarioTelemetria.CAPACIDADE_PADRAO);
+        for (int i = 301; i <= 310; ++i) {
+            semConexao.atualizar(Collections.<String, Object>singletonMap("sessoesCriptografadas/sessao/lotes/" + i, i == 305 ? grande : lote));
+        }
+        assertFalse(semConexao.esvaziar(100));
+        semConexao.close();
+
+        // Apenas as escritas não confirmadas são reenviadas, com os valores intactos
+        MemoryTelemetryStore reenviado = new MemoryTelemetryStore();
+        DiarioTelemetria reaberto = new DiarioTelemetria(arquivo, reenviado, 10, DiarioTelemetria.ENTRADAS_POR_ENVIO_PADRAO,
+                DiarioTelemetria.CAPACIDADE_PADRAO);
+        assertTrue(reaberto.esvaziar(10000));
+        reaberto.close();
+        assertEquals(10, reenviado.getTamanho());
+        assertEquals(grande, reenviado.ler("sessoesCriptografadas/sessao/lotes/305"));
+        assertEquals(lote, reenviado.ler("sessoesCriptografadas/sessao/lotes/310"));
+    }
+
+    @Test(timeout = 10000)
+    public void diario_cheioAguardaEspacoEmVezDeDescartar() throws Exception {
+        File arquivo = File.createTempFile("telemetria", ".diario");
+        File controle = new File(arquivo.getPath() + ".confirmado");
+        arquivo.deleteOnExit();
+        controle.deleteOnExit();
+        final String valor = new String(new char[1000]).replace('\0', 'V');
+
+        final MemoryTelemetryStore armazenamento = new MemoryTelemetryStore();
+        final boolean[] conectado = {false};
+        final DiarioTelemetria diario = new DiarioTelemetria(arquivo, new TelemetryStore() {
+            @Override
+            public void atualizar(Map<String, Object> atualizacoes) {
+                synchronized (conectado) {
+                    if (!conectado[0]) {
+                        throw new IllegalStateException("Sem conexão.");
+                    }
+                }
+                armazenamento.atualizar(atualizacoes);
+            }
+        }, 10, DiarioTelemetria.ENTRADAS_POR_ENVIO_PADRAO, 2500);
+        diario.atualizar(Collections.<String, Object>singletonMap("a/0", valor));
+        diario.atualizar(Collections.<String, Object>singletonMap("a/1", valor));
+
+        // A terceira escrita não cabe: espera pelo envio das anteriores
+        Thread escritor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                diario.atualizar(Collections.<String, Object>singletonMap("a/2", valor));
+            }
+        });
+        escritor.start();
+        escritor.join(300);
+        assertTrue(escritor.isAlive());
+        synchronized (conectado) {
+            conectado[0] = true;
+        }
+        escritor.join(5000);
+        assertFalse(escritor.isAlive());
+        assertTrue(diario.esvaziar(5000));
+        assertEquals(3, armazenamento.getTamanho());
+
+        diario.close();
+        try {
+            diario.atualizar(Collections.<String, Object>singletonMap("a/3", valor));
+            fail("Uma escrita no diário encerrado deveria falhar.");
+        } catch (IllegalStateException e) {
+            // A escrita não é descartada sem aviso
+        }
+
+        // Sem capacidade, toda escrita com outra pendente esperaria e falharia
+        try {
+            new DiarioTelemetria(arquivo, armazenamento, 10, DiarioTelemetria.ENTRADAS_POR_ENVIO_PADRAO, 0);
+            fail("Uma capacidade não positiva deveria ser recusada.");
+        } catch (IllegalArgumentException e) {
+            // Esperado
+        }
+    }
+
+    /**
+     * Callback que guarda os valores lidos, falhando o teste se a leitura falhar.
+     */
+    private static final class Coletor implements TelemetrySource.Callback {
+        SortedMap<String, Object> valores;
+
+        @Override
+        public void onResult(SortedMap<String, Object> valores) {
+            this.valores = valores;
+        }
+
+        @Override
+        public void onError(Exception e) {
+            fail(e.getMessage());
+        }
+    }
+}